@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Releases global resources of the platform modules when the bundle gets stopped.
+ */
+public class Activator implements BundleActivator {
+
+	@Override
+	public void start(final BundleContext context) throws Exception {
+		// nothing to do
+	}
+
+	@Override
+	public void stop(final BundleContext context) throws Exception {
+		WorkspaceFileIndex.dispose();
+		ScriptEnginePool.disposeAll();
+	}
+}
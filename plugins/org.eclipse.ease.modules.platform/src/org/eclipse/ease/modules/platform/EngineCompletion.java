@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.ease.IScriptEngine;
+import org.eclipse.ease.ScriptResult;
+
+/**
+ * Collects completion notifications of multiple script engines. Engines are reported in the order they finish. Waiting threads wake up as soon as an engine
+ * is done. Pooled engines do not terminate, they are done when the script forked on them is done.
+ */
+class EngineCompletion {
+
+	private final BlockingQueue<IScriptEngine> fFinished = new LinkedBlockingQueue<IScriptEngine>();
+	private final Map<Job, IJobChangeListener> fListeners = new HashMap<Job, IJobChangeListener>();
+
+	/**
+	 * Constructor. Starts tracking the given engines.
+	 *
+	 * @param engines
+	 *            engines to track
+	 * @param pooledScripts
+	 *            scripts forked on pooled engines by engine
+	 */
+	public EngineCompletion(final IScriptEngine[] engines, final Map<IScriptEngine, ScriptResult> pooledScripts) {
+		for (final IScriptEngine engine : engines) {
+			// report each engine once, even if notified multiple times
+			final AtomicBoolean reported = new AtomicBoolean(false);
+			final Runnable done = new Runnable() {
+
+				@Override
+				public void run() {
+					if (reported.compareAndSet(false, true))
+						fFinished.add(engine);
+				}
+			};
+
+			final ScriptResult pooledScript = pooledScripts.get(engine);
+			if (pooledScript != null)
+				ScriptEnginePool.addCompletionListener(pooledScript, done);
+
+			else if (engine instanceof Job) {
+				final IJobChangeListener listener = new JobChangeAdapter() {
+					@Override
+					public void done(final IJobChangeEvent event) {
+						done.run();
+					}
+				};
+
+				((Job) engine).addJobChangeListener(listener);
+				fListeners.put((Job) engine, listener);
+
+				// engine might have finished before we registered
+				if (((Job) engine).getState() == Job.NONE)
+					done.run();
+
+			} else
+				// cannot evaluate engine state
+				throw new RuntimeException("Cannot evaluate engine state");
+		}
+	}
+
+	/**
+	 * Wait for the next engine to finish.
+	 *
+	 * @param timeout
+	 *            time to wait in [ms] for this call, 0 to wait endlessly, negative values do not wait at all
+	 * @return finished engine or <code>null</code> when the timeout expired
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public IScriptEngine next(final long timeout) throws InterruptedException {
+		if (timeout == 0)
+			return fFinished.take();
+
+		return fFinished.poll(Math.max(0, timeout), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop tracking engines.
+	 */
+	public void dispose() {
+		for (final Entry<Job, IJobChangeListener> entry : fListeners.entrySet())
+			entry.getKey().removeJobChangeListener(entry.getValue());
+
+		fListeners.clear();
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.e4.core.services.events.IEventBroker;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Persistent subscription to the event broker. Events are queued until they are received by the script, so no events get lost between two receive calls.
+ * The queue is bounded: when it is full the oldest event is dropped, as the event broker must not be blocked by slow scripts. When coalescing is enabled a
+ * queued event gets replaced by a newer event of the same topic.
+ */
+public class EventSubscription implements EventHandler {
+
+	private final IEventBroker fBroker;
+	private final String fTopic;
+	private final int fCapacity;
+	private final boolean fCoalesce;
+
+	/** Queued events. Keyed by topic when coalescing, by a unique key otherwise. */
+	private final Map<Object, Event> fEvents = new LinkedHashMap<Object, Event>();
+
+	private long fDropped = 0;
+	private boolean fActive = true;
+
+	/**
+	 * Constructor. Subscribes to the event broker.
+	 *
+	 * @param broker
+	 *            event broker to subscribe to
+	 * @param topic
+	 *            topic to subscribe for, may contain wildcards
+	 * @param capacity
+	 *            maximum amount of queued events
+	 * @param coalesce
+	 *            <code>true</code> to keep only the latest queued event per topic
+	 */
+	public EventSubscription(final IEventBroker broker, final String topic, final int capacity, final boolean coalesce) {
+		fBroker = broker;
+		fTopic = topic;
+		fCapacity = Math.max(1, capacity);
+		fCoalesce = coalesce;
+
+		fBroker.subscribe(topic, this);
+	}
+
+	@Override
+	public synchronized void handleEvent(final Event event) {
+		if (!fActive)
+			return;
+
+		final Object key = (fCoalesce) ? event.getTopic() : new Object();
+		if ((!fEvents.containsKey(key)) && (fEvents.size() >= fCapacity)) {
+			// drop oldest event
+			final Iterator<Object> iterator = fEvents.keySet().iterator();
+			iterator.next();
+			iterator.remove();
+			fDropped++;
+		}
+
+		fEvents.put(key, event);
+		notifyAll();
+	}
+
+	/**
+	 * Receive a single event. Blocks while no event is queued.
+	 *
+	 * @param timeout
+	 *            time to wait for an event [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return received event or <code>null</code> when the timeout expired or the subscription got canceled
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public Event receive(final long timeout) throws InterruptedException {
+		final Event[] events = drain(1, timeout);
+		return (events.length > 0) ? events[0] : null;
+	}
+
+	/**
+	 * Receive multiple events at once. Waits for the first event only, then takes all queued events up to <i>maxEvents</i>.
+	 *
+	 * @param maxEvents
+	 *            maximum amount of events to receive, negative values for no limit
+	 * @param timeout
+	 *            time to wait for the first event [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return received events in order of arrival, empty when the timeout expired or the subscription got canceled
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public synchronized Event[] drain(final int maxEvents, final long timeout) throws InterruptedException {
+		if (maxEvents == 0)
+			return new Event[0];
+
+		if (timeout >= 0) {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			while ((fEvents.isEmpty()) && (fActive)) {
+				if (timeout == 0)
+					wait();
+
+				else {
+					final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if (remaining <= 0)
+						break;
+
+					wait(remaining);
+				}
+			}
+		}
+
+		final List<Event> events = new ArrayList<Event>();
+		final Iterator<Event> iterator = fEvents.values().iterator();
+		while ((iterator.hasNext()) && ((maxEvents < 0) || (events.size() < maxEvents))) {
+			events.add(iterator.next());
+			iterator.remove();
+		}
+
+		return events.toArray(new Event[events.size()]);
+	}
+
+	/**
+	 * Stop receiving events. Threads waiting for events return immediately, queued events remain available.
+	 */
+	public void unsubscribe() {
+		fBroker.unsubscribe(this);
+
+		synchronized (this) {
+			fActive = false;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Check whether the subscription still receives events.
+	 *
+	 * @return <code>true</code> when subscribed
+	 */
+	public synchronized boolean isActive() {
+		return fActive;
+	}
+
+	/**
+	 * Get the subscribed topic.
+	 *
+	 * @return topic
+	 */
+	public String getTopic() {
+		return fTopic;
+	}
+
+	/**
+	 * Get the amount of queued events.
+	 *
+	 * @return queued events
+	 */
+	public synchronized int size() {
+		return fEvents.size();
+	}
+
+	/**
+	 * Get the amount of events dropped as the queue was full.
+	 *
+	 * @return dropped events
+	 */
+	public synchronized long getDropped() {
+		return fDropped;
+	}
+}
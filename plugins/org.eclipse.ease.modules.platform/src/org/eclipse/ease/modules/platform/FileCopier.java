@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Streaming copy operations for workspace and file system resources. File content is never loaded into memory as a whole. Local files are copied by channel
+ * transfers.
+ */
+public final class FileCopier {
+
+	/** Buffer size for stream copies. */
+	private static final int BUFFER_SIZE = 1024 * 64;
+
+	private FileCopier() {
+	}
+
+	/**
+	 * Copy a single file. Parent folders of the target are created when needed, an existing target gets overwritten. Copying a file onto itself leaves it
+	 * unchanged.
+	 *
+	 * @param source
+	 *            source {@link IFile} or {@link File}
+	 * @param target
+	 *            target {@link IFile} or {@link File}
+	 * @throws Exception
+	 *             on access errors
+	 */
+	public static void copy(final Object source, final Object target) throws Exception {
+		// opening the target would truncate the source
+		if (isSameFile(source, target))
+			return;
+
+		final File localSource = getLocalFile(source);
+
+		if (target instanceof File) {
+			final File parent = ((File) target).getParentFile();
+			if ((parent != null) && (!parent.exists()))
+				parent.mkdirs();
+
+			if (localSource != null)
+				transfer(localSource, (File) target);
+
+			else {
+				final InputStream input = openStream(source);
+				try {
+					final OutputStream output = new FileOutputStream((File) target);
+					try {
+						final byte[] buffer = new byte[BUFFER_SIZE];
+						int length;
+						while ((length = input.read(buffer)) != -1)
+							output.write(buffer, 0, length);
+					} finally {
+						output.close();
+					}
+				} finally {
+					input.close();
+				}
+			}
+
+		} else if (target instanceof IFile) {
+			final InputStream input = openStream(source);
+			try {
+				if (((IFile) target).exists())
+					((IFile) target).setContents(input, true, false, new NullProgressMonitor());
+
+				else {
+					ResourceHandle.createFolder(((IFile) target).getParent());
+					((IFile) target).create(input, true, new NullProgressMonitor());
+				}
+			} finally {
+				input.close();
+			}
+
+		} else
+			throw new IOException("Invalid copy target: " + target);
+	}
+
+	/**
+	 * Copy a folder with all its content. Files are copied in parallel. When the target is located in the workspace, files are copied on file system level
+	 * and the target container is refreshed once at the end.
+	 *
+	 * @param source
+	 *            source {@link IContainer} or {@link File}
+	 * @param target
+	 *            target {@link IContainer} or {@link File}
+	 * @param parallelism
+	 *            amount of parallel copy operations
+	 * @return amount of copied files
+	 * @throws Exception
+	 *             on access errors
+	 */
+	public static int copyFolder(final Object source, final Object target, final int parallelism) throws Exception {
+		// resolve target location
+		Object targetRoot = target;
+		if (target instanceof IContainer) {
+			ResourceHandle.createFolder((IContainer) target);
+
+			final IPath location = ((IContainer) target).getLocation();
+			if (location != null)
+				targetRoot = location.toFile();
+		}
+
+		// collect files to copy
+		final List<Object[]> copyJobs = new ArrayList<Object[]>();
+		final List<Object> folders = new ArrayList<Object>();
+		collectFiles(source, targetRoot, copyJobs, folders);
+
+		// create folder structure, including empty folders
+		for (final Object folder : folders) {
+			if (folder instanceof IContainer)
+				ResourceHandle.createFolder((IContainer) folder);
+			else
+				((File) folder).mkdirs();
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		try {
+			final List<Future<Object>> results = new ArrayList<Future<Object>>();
+			for (final Object[] copyJob : copyJobs) {
+				results.add(executor.submit(new Callable<Object>() {
+
+					@Override
+					public Object call() throws Exception {
+						copy(copyJob[0], copyJob[1]);
+						return null;
+					}
+				}));
+			}
+
+			// wait for completion, report first error
+			for (final Future<Object> result : results) {
+				try {
+					result.get();
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+
+					throw e;
+				}
+			}
+
+		} finally {
+			executor.shutdownNow();
+
+			if ((target instanceof IContainer) && (targetRoot instanceof File))
+				// files were copied on file system level, update workspace once
+				((IContainer) target).refreshLocal(IResource.DEPTH_INFINITE, new NullProgressMonitor());
+		}
+
+		return copyJobs.size();
+	}
+
+	/**
+	 * Collect source/target pairs for all files located within <i>source</i>.
+	 *
+	 * @param source
+	 *            source folder
+	 * @param target
+	 *            target folder
+	 * @param copyJobs
+	 *            list to add source/target pairs to
+	 * @param folders
+	 *            list to add target folders to, parent folders are added before their children
+	 * @throws CoreException
+	 *             when workspace folders cannot be accessed
+	 */
+	private static void collectFiles(final Object source, final Object target, final List<Object[]> copyJobs, final List<Object> folders)
+			throws CoreException {
+		final LinkedList<Object[]> toVisit = new LinkedList<Object[]>();
+		toVisit.add(new Object[] { source, target });
+
+		while (!toVisit.isEmpty()) {
+			final Object[] pair = toVisit.removeFirst();
+			folders.add(pair[1]);
+
+			if (pair[0] instanceof IContainer) {
+				for (final IResource child : ((IContainer) pair[0]).members()) {
+					final Object childTarget = getChild(pair[1], child.getName(), child instanceof IFile);
+					if (child instanceof IFile)
+						copyJobs.add(new Object[] { child, childTarget });
+					else if (child instanceof IContainer)
+						toVisit.add(new Object[] { child, childTarget });
+				}
+
+			} else if (pair[0] instanceof File) {
+				final File[] children = ((File) pair[0]).listFiles();
+				if (children != null) {
+					for (final File child : children) {
+						final Object childTarget = getChild(pair[1], child.getName(), child.isFile());
+						if (child.isFile())
+							copyJobs.add(new Object[] { child, childTarget });
+						else if (child.isDirectory())
+							toVisit.add(new Object[] { child, childTarget });
+					}
+				}
+			}
+		}
+	}
+
+	private static Object getChild(final Object folder, final String name, final boolean isFile) {
+		if (folder instanceof IContainer)
+			return (isFile) ? ((IContainer) folder).getFile(new org.eclipse.core.runtime.Path(name)) : ((IContainer) folder).getFolder(
+					new org.eclipse.core.runtime.Path(name));
+
+		return new File((File) folder, name);
+	}
+
+	/**
+	 * Get the local file system location of a file.
+	 *
+	 * @param file
+	 *            {@link IFile} or {@link File}
+	 * @return local file or <code>null</code> when the file is not located on the local file system
+	 */
+	private static File getLocalFile(final Object file) {
+		if (file instanceof File)
+			return (File) file;
+
+		if (file instanceof IFile) {
+			final IPath location = ((IFile) file).getLocation();
+			if ((location != null) && (location.toFile().exists()))
+				return location.toFile();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Check whether two locations point to the same physical file.
+	 *
+	 * @param source
+	 *            source {@link IFile} or {@link File}
+	 * @param target
+	 *            target {@link IFile} or {@link File}
+	 * @return <code>true</code> when both locations refer to the same existing file
+	 * @throws IOException
+	 *             on access errors
+	 */
+	private static boolean isSameFile(final Object source, final Object target) throws IOException {
+		if (source.equals(target))
+			return true;
+
+		final File localSource = getLocalFile(source);
+		final File localTarget = getLocalFile(target);
+		if ((localSource != null) && (localTarget != null) && (localSource.exists()) && (localTarget.exists()))
+			// handles links and case insensitive file systems
+			return Files.isSameFile(localSource.toPath(), localTarget.toPath());
+
+		return false;
+	}
+
+	private static InputStream openStream(final Object file) throws Exception {
+		if (file instanceof IFile)
+			return ((IFile) file).getContents();
+
+		if (file instanceof File)
+			return new FileInputStream((File) file);
+
+		throw new IOException("Invalid copy source: " + file);
+	}
+
+	/**
+	 * Copy a local file using channel transfers.
+	 *
+	 * @param source
+	 *            source file
+	 * @param target
+	 *            target file
+	 * @throws IOException
+	 *             on access errors
+	 */
+	private static void transfer(final File source, final File target) throws IOException {
+		final FileInputStream input = new FileInputStream(source);
+		try {
+			final FileOutputStream output = new FileOutputStream(target);
+			try {
+				final FileChannel inputChannel = input.getChannel();
+				final FileChannel outputChannel = output.getChannel();
+
+				final long size = inputChannel.size();
+				long position = 0;
+				while (position < size)
+					position += inputChannel.transferTo(position, size - position, outputChannel);
+
+			} finally {
+				output.close();
+			}
+		} finally {
+			input.close();
+		}
+	}
+}
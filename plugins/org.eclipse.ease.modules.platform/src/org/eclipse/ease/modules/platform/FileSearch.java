@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Parallel file search on the workspace or the file system. Containers are traversed on a shared {@link ForkJoinPool}. Matches are available through the
+ * iterator interface as soon as they are found, so consumers may start processing before the search is finished.
+ */
+public class FileSearch implements Iterator<Object> {
+
+	/** Shared pool for all searches. */
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	/** Marker object indicating the end of the search. */
+	private static final Object END_OF_SEARCH = new Object();
+
+	/**
+	 * Compile a file name pattern. Use * and ? as wildcards. If the pattern starts with '^' then a regular expression is used.
+	 *
+	 * @param pattern
+	 *            file name pattern
+	 * @return compiled pattern
+	 */
+	public static Pattern compileNamePattern(final String pattern) {
+		if (pattern.startsWith("^"))
+			return Pattern.compile(pattern);
+
+		return Pattern.compile(pattern.replace("*", ".*").replace('?', '.'));
+	}
+
+	/**
+	 * Compile a path glob to a regular expression. '**' matches any amount of folders, '*' matches within a single path segment, '?' matches a single
+	 * character. Paths are always delimited by '/'.
+	 *
+	 * @param glob
+	 *            glob pattern like <i>&#42;&#42;/target/&#42;&#42;</i>
+	 * @return compiled pattern
+	 */
+	public static Pattern compileGlob(final String glob) {
+		final StringBuilder expression = new StringBuilder();
+		final StringBuilder literal = new StringBuilder();
+
+		int index = 0;
+		while (index < glob.length()) {
+			final char character = glob.charAt(index);
+			if ((character == '*') || (character == '?')) {
+				// flush literal text
+				if (literal.length() > 0) {
+					expression.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+
+				if (glob.startsWith("**/", index)) {
+					expression.append("(?:.*/)?");
+					index += 3;
+
+				} else if (glob.startsWith("**", index)) {
+					expression.append(".*");
+					index += 2;
+
+				} else {
+					expression.append((character == '*') ? "[^/]*" : "[^/]");
+					index++;
+				}
+
+			} else {
+				literal.append(character);
+				index++;
+			}
+		}
+
+		if (literal.length() > 0)
+			expression.append(Pattern.quote(literal.toString()));
+
+		return Pattern.compile(expression.toString());
+	}
+
+	/**
+	 * Compile multiple globs into a single pattern.
+	 *
+	 * @param globs
+	 *            globs to compile, may be <code>null</code>
+	 * @return compiled pattern or <code>null</code> when no globs are provided
+	 */
+	public static Pattern compileGlobs(final String[] globs) {
+		if ((globs == null) || (globs.length == 0))
+			return null;
+
+		final StringBuilder expression = new StringBuilder();
+		for (final String glob : globs) {
+			if (expression.length() > 0)
+				expression.append('|');
+
+			expression.append("(?:").append(compileGlob(glob).pattern()).append(')');
+		}
+
+		return Pattern.compile(expression.toString());
+	}
+
+	/**
+	 * Traverses a single container and forks tasks for its child containers.
+	 */
+	private class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 2472135493856472925L;
+
+		private final Object fContainer;
+		private final String fRelativePath;
+		private final boolean fRoot;
+
+		public SearchTask(final Object container, final String relativePath, final boolean root) {
+			fContainer = container;
+			fRelativePath = relativePath;
+			fRoot = root;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				final List<SearchTask> subTasks = new ArrayList<SearchTask>();
+
+				if (fContainer instanceof IContainer) {
+					try {
+						for (final IResource child : ((IContainer) fContainer).members()) {
+							if (fCanceled)
+								return;
+
+							if (child instanceof IFile)
+								visitFile(child, child.getName());
+
+							else if ((fRecursive) && (child instanceof IContainer) && (!isExcluded(fRelativePath + child.getName() + "/")))
+								subTasks.add(new SearchTask(child, fRelativePath + child.getName() + "/", false));
+						}
+					} catch (final CoreException e) {
+						// cannot parse container, skip and continue with next one
+					}
+
+				} else if (fContainer instanceof File) {
+					final File[] children = ((File) fContainer).listFiles();
+					if (children != null) {
+						for (final File child : children) {
+							if (fCanceled)
+								return;
+
+							if (child.isFile())
+								visitFile(child, child.getName());
+
+							else if ((fRecursive) && (child.isDirectory()) && (!isExcluded(fRelativePath + child.getName() + "/")))
+								subTasks.add(new SearchTask(child, fRelativePath + child.getName() + "/", false));
+						}
+					}
+				}
+
+				invokeAll(subTasks);
+
+			} finally {
+				if (fRoot)
+					fResults.add(END_OF_SEARCH);
+			}
+		}
+
+		private void visitFile(final Object file, final String name) {
+			if ((fPattern.matcher(name).matches()) && (!isExcluded(fRelativePath + name)))
+				fResults.add(file);
+		}
+	}
+
+	private final Pattern fPattern;
+	private final Pattern fExcludes;
+	private final boolean fRecursive;
+	private final BlockingQueue<Object> fResults = new LinkedBlockingQueue<Object>();
+
+	private volatile boolean fCanceled = false;
+	private boolean fDone = false;
+	private Object fNext = null;
+
+	/**
+	 * Constructor. Starts the search immediately.
+	 *
+	 * @param root
+	 *            root {@link IContainer} or {@link File} to search in
+	 * @param pattern
+	 *            compiled file name pattern
+	 * @param excludes
+	 *            compiled pattern for root relative paths to exclude, folder paths end with '/'. May be <code>null</code>
+	 * @param recursive
+	 *            searches subfolders when set to <code>true</code>
+	 */
+	public FileSearch(final Object root, final Pattern pattern, final Pattern excludes, final boolean recursive) {
+		fPattern = pattern;
+		fExcludes = excludes;
+		fRecursive = recursive;
+
+		POOL.execute(new SearchTask(root, "", true));
+	}
+
+	/**
+	 * Constructor for searches where all results are already known.
+	 *
+	 * @param results
+	 *            search results
+	 */
+	public FileSearch(final Collection<?> results) {
+		fPattern = null;
+		fExcludes = null;
+		fRecursive = false;
+
+		fResults.addAll(results);
+		fResults.add(END_OF_SEARCH);
+	}
+
+	private boolean isExcluded(final String relativePath) {
+		return (fExcludes != null) && (fExcludes.matcher(relativePath).matches());
+	}
+
+	@Override
+	public synchronized boolean hasNext() {
+		if ((fNext == null) && (!fDone)) {
+			try {
+				fNext = fResults.take();
+			} catch (final InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+			}
+
+			if ((fNext == END_OF_SEARCH) || (fNext == null)) {
+				fNext = null;
+				fDone = true;
+			}
+		}
+
+		return fNext != null;
+	}
+
+	@Override
+	public synchronized Object next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		final Object result = fNext;
+		fNext = null;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Search results cannot be removed");
+	}
+
+	/**
+	 * Stop the search. Matches found so far may still be retrieved.
+	 */
+	public void cancel() {
+		fCanceled = true;
+	}
+
+	/**
+	 * Wait for the search to finish and return all remaining matches.
+	 *
+	 * @return all matches not consumed yet
+	 */
+	public Object[] toArray() {
+		final List<Object> result = new ArrayList<Object>();
+		while (hasNext())
+			result.add(next());
+
+		return result.toArray(new Object[result.size()]);
+	}
+}
@@ -0,0 +1,462 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.ease.Logger;
+
+/**
+ * Follows a growing file and provides data appended since the last read. The read offset is kept in the handle, so data is never read twice. Local files are
+ * watched using a {@link WatchService}, workspace files are watched using resource change events.
+ * <p>
+ * Data may either be pulled using {@link #readBytes()}/{@link #readLines()} or pushed to an {@link IFileTailListener}. Byte and line based reads must not be
+ * mixed on the same instance.
+ * </p>
+ */
+public class FileTail implements IResourceChangeListener {
+
+	/** Shared watch service for all local files. */
+	private static WatchService fWatchService = null;
+
+	/** Registered tails by watched file path. */
+	private static final Map<Path, Set<FileTail>> fWatchedFiles = new ConcurrentHashMap<Path, Set<FileTail>>();
+
+	/** Watch keys by folder path. */
+	private static final Map<Path, WatchKey> fWatchKeys = new HashMap<Path, WatchKey>();
+
+	private static synchronized void register(final FileTail tail, final Path path) throws IOException {
+		if (fWatchService == null) {
+			fWatchService = FileSystems.getDefault().newWatchService();
+
+			final Thread dispatcher = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					dispatchEvents(fWatchService);
+				}
+			}, "EASE file tail watcher");
+			dispatcher.setDaemon(true);
+			dispatcher.start();
+		}
+
+		final Path folder = path.getParent();
+		if (!fWatchKeys.containsKey(folder))
+			fWatchKeys.put(folder, folder.register(fWatchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+
+		Set<FileTail> tails = fWatchedFiles.get(path);
+		if (tails == null) {
+			tails = Collections.newSetFromMap(new ConcurrentHashMap<FileTail, Boolean>());
+			fWatchedFiles.put(path, tails);
+		}
+
+		tails.add(tail);
+	}
+
+	private static synchronized void unregister(final FileTail tail, final Path path) {
+		final Set<FileTail> tails = fWatchedFiles.get(path);
+		if (tails != null) {
+			tails.remove(tail);
+			if (tails.isEmpty())
+				fWatchedFiles.remove(path);
+		}
+
+		// release folder when no other file of that folder is watched
+		final Path folder = path.getParent();
+		for (final Path watchedPath : fWatchedFiles.keySet()) {
+			if (folder.equals(watchedPath.getParent()))
+				return;
+		}
+
+		final WatchKey key = fWatchKeys.remove(folder);
+		if (key != null)
+			key.cancel();
+	}
+
+	private static void dispatchEvents(final WatchService watchService) {
+		try {
+			while (true) {
+				final WatchKey key = watchService.take();
+				final Path folder = (Path) key.watchable();
+
+				for (final WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path) {
+						final Set<FileTail> tails = fWatchedFiles.get(folder.resolve((Path) event.context()));
+						if (tails != null) {
+							for (final FileTail tail : tails)
+								tail.fileChanged();
+						}
+					}
+				}
+
+				key.reset();
+			}
+
+		} catch (final InterruptedException e) {
+			// terminate dispatcher
+		} catch (final ClosedWatchServiceException e) {
+			// terminate dispatcher
+		}
+	}
+
+	private final Object fFile;
+	private final File fLocalFile;
+	private final Path fWatchedPath;
+	private final IFileTailListener fListener;
+
+	private final CharsetDecoder fDecoder;
+
+	/** Bytes not decoded yet as they do not form a complete character. */
+	private ByteBuffer fUndecoded = ByteBuffer.allocate(0);
+
+	/** Characters of an incomplete line. */
+	private final StringBuilder fPartialLine = new StringBuilder();
+
+	private long fOffset;
+	private boolean fClosed = false;
+
+	/** Set on change notifications for files without local location. */
+	private boolean fChanged = false;
+
+	/**
+	 * Constructor. Starts watching the file immediately.
+	 *
+	 * @param file
+	 *            {@link IFile} or {@link File} to follow
+	 * @param listener
+	 *            listener to be notified on appended data, may be <code>null</code>
+	 * @param charset
+	 *            charset to decode lines, <code>null</code> for the default charset of the file
+	 * @param fromEnd
+	 *            <code>true</code> to ignore existing content, <code>false</code> to start reading from the beginning of the file. Workspace files
+	 *            without a local location are always read from the beginning
+	 * @throws IOException
+	 *             when the file cannot be watched
+	 */
+	public FileTail(final Object file, final IFileTailListener listener, final Charset charset, final boolean fromEnd) throws IOException {
+		fFile = file;
+		fListener = listener;
+
+		if (file instanceof IFile) {
+			final IPath location = ((IFile) file).getLocation();
+			fLocalFile = (location != null) ? location.toFile() : null;
+			fWatchedPath = null;
+
+		} else if (file instanceof File) {
+			fLocalFile = ((File) file).getAbsoluteFile();
+			fWatchedPath = fLocalFile.toPath();
+
+		} else
+			throw new IOException("Cannot follow \"" + file + "\"");
+
+		fDecoder = getCharset(charset).newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		fOffset = (fromEnd) ? Math.max(0, getSize()) : 0;
+
+		if (fWatchedPath != null)
+			register(this, fWatchedPath);
+		else
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	private Charset getCharset(final Charset charset) {
+		if (charset != null)
+			return charset;
+
+		if (fFile instanceof IFile) {
+			try {
+				return Charset.forName(((IFile) fFile).getCharset());
+			} catch (final Exception e) {
+				// fall back to platform default
+			}
+		}
+
+		return Charset.defaultCharset();
+	}
+
+	private long getSize() {
+		if (fLocalFile != null)
+			return fLocalFile.length();
+
+		// workspace file without local location
+		return -1;
+	}
+
+	/**
+	 * Get the followed file.
+	 *
+	 * @return {@link IFile} or {@link File} instance
+	 */
+	public Object getFile() {
+		return fFile;
+	}
+
+	/**
+	 * Get the byte offset of the next read.
+	 *
+	 * @return read offset
+	 */
+	public synchronized long getOffset() {
+		return fOffset;
+	}
+
+	/**
+	 * Read data appended since the last read.
+	 *
+	 * @return appended data, empty when no data is available
+	 * @throws IOException
+	 *             on access errors
+	 */
+	public synchronized byte[] readBytes() throws IOException {
+		if (fClosed)
+			return new byte[0];
+
+		final byte[] data;
+		if (fLocalFile != null)
+			data = readLocalFile();
+
+		else {
+			fChanged = false;
+			data = readWorkspaceFile();
+		}
+
+		fOffset += data.length;
+		return data;
+	}
+
+	private byte[] readLocalFile() throws IOException {
+		if (!fLocalFile.isFile()) {
+			// file deleted or not created yet
+			fOffset = 0;
+			return new byte[0];
+		}
+
+		final RandomAccessFile file = new RandomAccessFile(fLocalFile, "r");
+		try {
+			// a second attempt is needed when the file gets truncated while reading
+			for (int attempt = 0; attempt < 2; attempt++) {
+				final long size = file.length();
+				if (size < fOffset)
+					// file got truncated, start over
+					fOffset = 0;
+
+				if (size <= fOffset)
+					return new byte[0];
+
+				final byte[] data = new byte[(int) Math.min(Integer.MAX_VALUE, size - fOffset)];
+				file.seek(fOffset);
+
+				int read = 0;
+				while (read < data.length) {
+					final int length = file.read(data, read, data.length - read);
+					if (length == -1)
+						break;
+
+					read += length;
+				}
+
+				if (read == data.length)
+					return data;
+
+				if (file.length() >= fOffset)
+					// file shrunk but still contains the read offset, return what is available
+					return Arrays.copyOf(data, read);
+			}
+
+			return new byte[0];
+
+		} finally {
+			file.close();
+		}
+	}
+
+	private byte[] readWorkspaceFile() throws IOException {
+		try {
+			final InputStream input = ((IFile) fFile).getContents(true);
+			try {
+				long skipped = 0;
+				while (skipped < fOffset) {
+					final long step = input.skip(fOffset - skipped);
+					if (step <= 0)
+						break;
+
+					skipped += step;
+				}
+
+				if (skipped < fOffset) {
+					// file got truncated, start over
+					fOffset = 0;
+					return new byte[0];
+				}
+
+				final ByteArrayOutputStream output = new ByteArrayOutputStream();
+				final byte[] buffer = new byte[1024 * 8];
+				int length;
+				while ((length = input.read(buffer)) != -1)
+					output.write(buffer, 0, length);
+
+				return output.toByteArray();
+
+			} finally {
+				input.close();
+			}
+		} catch (final CoreException e) {
+			throw new IOException("Cannot read \"" + fFile + "\"", e);
+		}
+	}
+
+	/**
+	 * Read lines completed since the last read. An incomplete last line is kept until its line delimiter is appended.
+	 *
+	 * @return completed lines, empty when no complete line is available
+	 * @throws IOException
+	 *             on access errors
+	 */
+	public synchronized String[] readLines() throws IOException {
+		return decodeLines(readBytes());
+	}
+
+	private String[] decodeLines(final byte[] data) {
+		if (data.length == 0)
+			return new String[0];
+
+		final ByteBuffer input = ByteBuffer.allocate(fUndecoded.remaining() + data.length);
+		input.put(fUndecoded).put(data).flip();
+
+		final CharBuffer output = CharBuffer.allocate((int) (input.remaining() * (double) fDecoder.maxCharsPerByte()) + 1);
+		fDecoder.decode(input, output, false);
+		output.flip();
+		fUndecoded = input.slice();
+
+		final List<String> lines = new ArrayList<String>();
+		while (output.hasRemaining()) {
+			final char character = output.get();
+			if (character == '\n') {
+				final int length = fPartialLine.length();
+				lines.add(((length > 0) && (fPartialLine.charAt(length - 1) == '\r')) ? fPartialLine.substring(0, length - 1) : fPartialLine.toString());
+				fPartialLine.setLength(0);
+
+			} else
+				fPartialLine.append(character);
+		}
+
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * Wait for data to be appended to the file.
+	 *
+	 * @param timeout
+	 *            maximum time to wait in [ms], 0 to wait forever
+	 * @return <code>true</code> when unread data is available
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public synchronized boolean waitForData(final long timeout) throws InterruptedException {
+		final long end = System.currentTimeMillis() + timeout;
+
+		while ((!fClosed) && (!hasData())) {
+			final long remaining = end - System.currentTimeMillis();
+			if ((timeout > 0) && (remaining <= 0))
+				return false;
+
+			wait((timeout > 0) ? remaining : 0);
+		}
+
+		return hasData();
+	}
+
+	private boolean hasData() {
+		final long size = getSize();
+		return (size < 0) ? fChanged : (size != fOffset);
+	}
+
+	/**
+	 * Called when the followed file was modified.
+	 */
+	private void fileChanged() {
+		byte[] data = null;
+		String[] lines = null;
+
+		synchronized (this) {
+			if (fListener != null) {
+				// data is consumed by the listener, so hasData() remains in sync
+				try {
+					data = readBytes();
+					lines = decodeLines(data);
+				} catch (final IOException e) {
+					Logger.error(PluginConstants.PLUGIN_ID, "Could not read appended data from \"" + fFile + "\"", e);
+				}
+
+			} else
+				fChanged = true;
+
+			notifyAll();
+		}
+
+		if ((data != null) && (data.length > 0))
+			fListener.dataAppended(this, data, lines);
+	}
+
+	@Override
+	public void resourceChanged(final IResourceChangeEvent event) {
+		if (event.getDelta() != null) {
+			final IResourceDelta delta = event.getDelta().findMember(((IFile) fFile).getFullPath());
+			if ((delta != null) && ((delta.getKind() == IResourceDelta.ADDED) || ((delta.getFlags() & IResourceDelta.CONTENT) != 0)))
+				fileChanged();
+		}
+	}
+
+	/**
+	 * Stop following the file.
+	 */
+	public void close() {
+		if (fWatchedPath != null)
+			unregister(this, fWatchedPath);
+		else
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+
+		synchronized (this) {
+			fClosed = true;
+			notifyAll();
+		}
+	}
+}
@@ -12,31 +12,62 @@ package org.eclipse.ease.modules.platform;
 
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 public class FilesystemHandle implements IFileHandle {
 
+	/** Buffer size used when reading a whole file in binary mode. */
+	private static final int BINARY_BUFFER_SIZE = 1024 * 8;
+
 	private final File fFile;
 	private int fMode;
+	private Charset fCharset;
 	protected BufferedReader fReader = null;
+	private ReadableByteChannel fInputChannel = null;
 	private PrintWriter fWriter = null;
 	private OutputStream fOutput = null;
 
 	public FilesystemHandle(final File file, final int mode) {
+		this(file, mode, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            file to access
+	 * @param mode
+	 *            access mode
+	 * @param charset
+	 *            charset for text data or <code>null</code> to use the default charset of the file
+	 */
+	public FilesystemHandle(final File file, final int mode, final Charset charset) {
 		fFile = file;
 		fMode = mode;
+		fCharset = charset;
+	}
+
+	protected InputStream createInputStream() throws Exception {
+		return new FileInputStream(fFile);
 	}
 
 	protected BufferedReader createReader() throws Exception {
-		return new BufferedReader(new InputStreamReader(new FileInputStream(fFile)));
+		return new BufferedReader(new InputStreamReader(createInputStream(), getCharset()));
 	}
 
 	private BufferedReader getReader() {
@@ -50,21 +81,54 @@ public class FilesystemHandle implements IFileHandle {
 		return fReader;
 	}
 
+	private ReadableByteChannel getInputChannel() throws IOException {
+		if (fInputChannel == null) {
+			try {
+				final InputStream input = createInputStream();
+				fInputChannel = (input instanceof FileInputStream) ? ((FileInputStream) input).getChannel() : Channels.newChannel(input);
+
+			} catch (final IOException e) {
+				throw e;
+			} catch (final Exception e) {
+				throw new IOException("Could not open file \"" + getFile() + "\"", e);
+			}
+		}
+
+		return fInputChannel;
+	}
+
+	/**
+	 * Get the default charset to be used when no explicit charset was set.
+	 *
+	 * @return default charset
+	 */
+	protected Charset getDefaultCharset() {
+		return Charset.defaultCharset();
+	}
+
+	@Override
+	public Charset getCharset() {
+		if (fCharset == null)
+			fCharset = getDefaultCharset();
+
+		return fCharset;
+	}
+
 	@Override
 	public String read(final int characters) throws IOException {
 		final BufferedReader reader = getReader();
 		if (reader != null) {
 			final StringBuilder result = new StringBuilder();
 			final char[] buffer = new char[1024 * 4];
-			while (characters != 0) {
-				final int length = reader.read(buffer, 0, (characters < 0) ? buffer.length : Math.min(buffer.length, characters));
+			while ((characters < 0) || (result.length() < characters)) {
+				final int length = reader.read(buffer, 0, (characters < 0) ? buffer.length : Math.min(buffer.length, characters - result.length()));
 				if (length == -1) {
 					// EOF reached
 					reader.close();
 					break;
 				}
 
-				result.append(new String(buffer, 0, length));
+				result.append(buffer, 0, length);
 			}
 
 			return result.toString();
@@ -73,6 +137,40 @@ public class FilesystemHandle implements IFileHandle {
 		return null;
 	}
 
+	@Override
+	public byte[] readBytes(final int bytes) throws IOException {
+		final ReadableByteChannel channel = getInputChannel();
+
+		if (bytes < 0) {
+			// read whole file
+			final ByteArrayOutputStream result = new ByteArrayOutputStream();
+			final ByteBuffer buffer = ByteBuffer.allocate(BINARY_BUFFER_SIZE);
+			while (channel.read(buffer) != -1) {
+				result.write(buffer.array(), 0, buffer.position());
+				buffer.clear();
+			}
+
+			return (result.size() > 0) ? result.toByteArray() : null;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(bytes);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1)
+				break;
+		}
+
+		if ((buffer.position() == 0) && (bytes > 0))
+			// EOF reached
+			return null;
+
+		return (buffer.hasRemaining()) ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+	}
+
+	@Override
+	public int readInto(final ByteBuffer buffer) throws IOException {
+		return getInputChannel().read(buffer);
+	}
+
 	@Override
 	public String readLine() throws IOException {
 		final BufferedReader reader = getReader();
@@ -90,11 +188,13 @@ public class FilesystemHandle implements IFileHandle {
 				if (fOutput == null)
 					fOutput = new BufferedOutputStream(new FileOutputStream(fFile, (fMode & APPEND) == APPEND));
 
-				fWriter = new PrintWriter(new OutputStreamWriter(fOutput));
+				fWriter = new PrintWriter(new OutputStreamWriter(fOutput, getCharset()));
 			}
 
 			fWriter.print(data);
-			fWriter.flush();
+			if (!isBuffered())
+				fWriter.flush();
+
 			return true;
 
 		} catch (final Exception e) {
@@ -110,8 +210,14 @@ public class FilesystemHandle implements IFileHandle {
 			if (fOutput == null)
 				fOutput = new BufferedOutputStream(new FileOutputStream(fFile, (fMode & APPEND) == APPEND));
 
+			if (fWriter != null)
+				// keep order of previously written text data
+				fWriter.flush();
+
 			fOutput.write(data);
-			fOutput.flush();
+			if (!isBuffered())
+				fOutput.flush();
+
 			return true;
 
 		} catch (final Exception e) {
@@ -136,6 +242,23 @@ public class FilesystemHandle implements IFileHandle {
 		return null;
 	}
 
+	@Override
+	public boolean flush() {
+		try {
+			if (fWriter != null)
+				fWriter.flush();
+
+			if (fOutput != null)
+				fOutput.flush();
+
+			return true;
+
+		} catch (final IOException e) {
+		}
+
+		return false;
+	}
+
 	@Override
 	public boolean exists() {
 		return fFile.exists();
@@ -160,6 +283,10 @@ public class FilesystemHandle implements IFileHandle {
 		return fMode;
 	}
 
+	protected boolean isBuffered() {
+		return (fMode & BUFFERED) == BUFFERED;
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		close();
@@ -175,6 +302,12 @@ public class FilesystemHandle implements IFileHandle {
 		} catch (final IOException e) {
 		}
 
+		try {
+			if (fInputChannel != null)
+				fInputChannel.close();
+		} catch (final IOException e) {
+		}
+
 		try {
 			if (fWriter != null)
 				fWriter.close();
@@ -1,111 +1,401 @@
 package org.eclipse.ease.modules.platform;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.ease.Logger;
 
 /**
- * Future object tracking an asynchronous execution result.
+ * Future object tracking an asynchronous execution result. Output and error streams of the process are read by background threads as soon as the process
+ * is started, so a process never blocks on a full pipe. Stream content is kept completely unless a buffer size is given, then only the last characters of
+ * each stream are kept. The future completes with the exit code of the process once the process terminated and both streams are fully read.
  */
-public class Future {
+public class Future implements java.util.concurrent.Future<Integer> {
+
+	/** Default amount of characters kept per stream, 0 keeps all characters. */
+	public static final int DEFAULT_BUFFER_SIZE = 0;
+
+	/** Threads reading process streams. */
+	private static ExecutorService fWorkers = null;
+
+	/** Thread killing processes on timeouts. */
+	private static ScheduledThreadPoolExecutor fWatchdog = null;
+
+	private static final ThreadFactory DAEMON_FACTORY = new ThreadFactory() {
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "External process monitor");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private static synchronized ExecutorService getWorkers() {
+		if (fWorkers == null)
+			fWorkers = Executors.newCachedThreadPool(DAEMON_FACTORY);
+
+		return fWorkers;
+	}
+
+	private static synchronized ScheduledThreadPoolExecutor getWatchdog() {
+		if (fWatchdog == null) {
+			fWatchdog = new ScheduledThreadPoolExecutor(1, DAEMON_FACTORY);
+			fWatchdog.setRemoveOnCancelPolicy(true);
+		}
+
+		return fWatchdog;
+	}
 
 	private final Process fProcess;
 	private final Exception fException;
 
+	private final OutputBuffer fOutput;
+	private final OutputBuffer fError;
+	private final IProcessListener fListener;
+
+	/** Released when the process terminated and its streams are read. */
+	private final CountDownLatch fDone = new CountDownLatch(1);
+
+	/** Released when both stream readers are done. */
+	private final CountDownLatch fReaders = new CountDownLatch(2);
+
+	private final ScheduledFuture<?> fTimeout;
+	private volatile boolean fTimedOut = false;
+	private volatile boolean fCanceled = false;
+
+	private final long fStartTime = System.currentTimeMillis();
+	private volatile long fEndTime = 0;
+
 	/**
 	 * Constructor for a process.
-	 * 
+	 *
 	 * @param process
 	 *            running process
 	 */
 	public Future(Process process) {
+		this(process, null, 0, DEFAULT_BUFFER_SIZE, null);
+	}
+
+	/**
+	 * Constructor for a process.
+	 *
+	 * @param process
+	 *            running process
+	 * @param input
+	 *            text to pipe to the standard input of the process, the input stream of the process is closed afterwards. <code>null</code> leaves the input
+	 *            stream untouched
+	 * @param timeout
+	 *            maximum runtime of the process in [ms], the process gets killed when exceeded. Use 0 for no timeout
+	 * @param bufferSize
+	 *            amount of characters to keep for output and error stream each, older content is dropped. Use 0 to keep all characters
+	 * @param listener
+	 *            listener to be informed on each output line, may be <code>null</code>
+	 */
+	public Future(final Process process, final String input, final long timeout, final int bufferSize, final IProcessListener listener) {
 		fProcess = process;
 		fException = null;
+		fOutput = new OutputBuffer(bufferSize);
+		fError = new OutputBuffer(bufferSize);
+		fListener = listener;
+
+		if (timeout > 0) {
+			fTimeout = getWatchdog().schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						fProcess.exitValue();
+					} catch (final IllegalThreadStateException e) {
+						// process still running
+						fTimedOut = true;
+						kill();
+					}
+				}
+			}, timeout, TimeUnit.MILLISECONDS);
+		} else
+			fTimeout = null;
+
+		final ExecutorService workers = getWorkers();
+		workers.execute(createReader(process.getInputStream(), fOutput, false));
+		workers.execute(createReader(process.getErrorStream(), fError, true));
+		workers.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				writeInput(input);
+
+				try {
+					fProcess.waitFor();
+
+					// the process might have written its last output right before terminating
+					fReaders.await();
+				} catch (final InterruptedException e) {
+					fProcess.destroy();
+				}
+
+				if (fTimeout != null)
+					fTimeout.cancel(false);
+
+				fEndTime = System.currentTimeMillis();
+				fDone.countDown();
+			}
+		});
 	}
 
 	/**
 	 * Constructor for exceptions.
-	 * 
+	 *
 	 * @param exception
 	 *            exception to provide for user
 	 */
 	public Future(Exception exception) {
 		fException = exception;
 		fProcess = null;
+		fOutput = new OutputBuffer(1);
+		fError = new OutputBuffer(1);
+		fListener = null;
+		fTimeout = null;
+
+		fEndTime = fStartTime;
+		fDone.countDown();
+	}
+
+	private Runnable createReader(final InputStream stream, final OutputBuffer buffer, final boolean error) {
+		return new Runnable() {
+
+			@Override
+			public void run() {
+				final StringBuilder line = new StringBuilder();
+				final char[] data = new char[8192];
+
+				try {
+					final Reader reader = new InputStreamReader(stream);
+					int length;
+					while ((length = reader.read(data)) != -1) {
+						buffer.append(data, 0, length);
+
+						if (fListener != null) {
+							for (int index = 0; index < length; index++) {
+								if (data[index] == '\n') {
+									notifyListener(line, error);
+									line.setLength(0);
+								} else
+									line.append(data[index]);
+							}
+						}
+					}
+
+				} catch (final IOException e) {
+					// stream got closed, typically as the process got killed
+				} finally {
+					if (line.length() > 0)
+						notifyListener(line, error);
+
+					try {
+						stream.close();
+					} catch (final IOException e) {
+						// ignore
+					}
+
+					fReaders.countDown();
+				}
+			}
+		};
+	}
+
+	private void notifyListener(final StringBuilder line, final boolean error) {
+		// strip windows line delimiters
+		if ((line.length() > 0) && (line.charAt(line.length() - 1) == '\r'))
+			line.setLength(line.length() - 1);
+
+		try {
+			fListener.lineReceived(this, line.toString(), error);
+		} catch (final Exception e) {
+			Logger.error(PluginConstants.PLUGIN_ID, "Process listener failed", e);
+		}
+	}
+
+	private void writeInput(final String input) {
+		if (input == null)
+			return;
+
+		try {
+			final Writer writer = new OutputStreamWriter(fProcess.getOutputStream());
+			try {
+				writer.write(input);
+			} finally {
+				writer.close();
+			}
+		} catch (final IOException e) {
+			// process does not read its input
+		}
 	}
 
 	/**
 	 * Query external process for finished state.
-	 * 
+	 *
 	 * @return <code>true</code> when finished
 	 */
 	public boolean isFinished() {
-		if (fException == null) {
+		return fDone.getCount() == 0;
+	}
 
-			try {
-				fProcess.exitValue();
-				return true;
-			} catch (final IllegalThreadStateException e) {
-				return false;
-			}
+	/**
+	 * Wait for external process to finish
+	 *
+	 * @return <code>true</code> when finished
+	 */
+	public boolean join() {
+		try {
+			fDone.await();
+		} catch (final InterruptedException e) {
 		}
 
-		return true;
+		return isFinished();
 	}
 
 	/**
-	 * Wait for external process to finish
-	 * 
+	 * Wait for external process to finish.
+	 *
+	 * @param timeout
+	 *            maximum time to wait in [ms]
 	 * @return <code>true</code> when finished
 	 */
-	public boolean join() {
-		if (!isFinished()) {
-			try {
-				fProcess.waitFor();
-			} catch (final InterruptedException e) {
-			}
+	public boolean join(final long timeout) {
+		try {
+			fDone.await(timeout, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
 		}
 
 		return isFinished();
 	}
 
 	/**
-	 * Get exit code of external process. In case of an exception -1 is returned.
-	 * 
+	 * Kill the external process.
+	 */
+	public void kill() {
+		if (fProcess != null)
+			fProcess.destroy();
+	}
+
+	/**
+	 * Check whether the process got killed due to its timeout.
+	 *
+	 * @return <code>true</code> when the timeout expired
+	 */
+	public boolean isTimedOut() {
+		return fTimedOut;
+	}
+
+	/**
+	 * Get the runtime of the process. For a running process the time elapsed since its start is returned.
+	 *
+	 * @return runtime in [ms]
+	 */
+	public long getDuration() {
+		return ((isFinished()) ? fEndTime : System.currentTimeMillis()) - fStartTime;
+	}
+
+	/**
+	 * Get exit code of external process. Waits for the process to finish. In case of an exception -1 is returned.
+	 *
 	 * @return exit code
 	 */
 	public int getExitCode() {
-		if (fProcess != null)
+		if ((fProcess != null) && (join()))
 			return fProcess.exitValue();
 
 		return -1;
 	}
 
 	/**
-	 * Get the output of the process as string. This method works only once as it consumes a stream.
-	 * 
+	 * Get the output of the process as string. Contains the output written so far, limited to the buffer size of the process. Use {@link #isTruncated()} to
+	 * detect dropped content.
+	 *
 	 * @return process output
 	 */
 	public String getOutput() {
-		if (fProcess != null) {
-			final Scanner scanner = new Scanner(fProcess.getInputStream()).useDelimiter("\\A");
-			return scanner.hasNext() ? scanner.next() : "";
-		}
-
-		return "";
+		return fOutput.toString();
 	}
 
 	/**
-	 * Get the error text of the process as string. This method works only once as it consumes a stream.
-	 * 
+	 * Get the error text of the process as string. Contains the error text written so far, limited to the buffer size of the process. Use
+	 * {@link #isTruncated()} to detect dropped content.
+	 *
 	 * @return process error text (or exception message)
 	 */
 	public String getError() {
-		if (fProcess != null) {
-			final Scanner scanner = new Scanner(fProcess.getErrorStream()).useDelimiter("\\A");
-			return scanner.hasNext() ? scanner.next() : "";
-		} else if (fException != null) {
+		if (fException != null)
 			return fException.toString();
-		}
 
-		return "";
+		return fError.toString();
+	}
+
+	/**
+	 * Check whether output or error text got truncated as it exceeded the buffer size of the process.
+	 *
+	 * @return <code>true</code> when content got dropped
+	 */
+	public boolean isTruncated() {
+		return (fOutput.isTruncated()) || (fError.isTruncated());
+	}
+
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		if (isFinished())
+			return false;
+
+		fCanceled = true;
+		kill();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return fCanceled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return isFinished();
+	}
+
+	@Override
+	public Integer get() throws InterruptedException, ExecutionException {
+		fDone.await();
+		return getResult();
+	}
+
+	@Override
+	public Integer get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!fDone.await(timeout, unit))
+			throw new TimeoutException();
+
+		return getResult();
+	}
+
+	private Integer getResult() throws ExecutionException {
+		if (fException != null)
+			throw new ExecutionException(fException);
+
+		if (fCanceled)
+			throw new CancellationException("Process execution canceled");
+
+		return fProcess.exitValue();
 	}
 }
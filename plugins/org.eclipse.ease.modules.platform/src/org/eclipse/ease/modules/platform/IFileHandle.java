@@ -12,6 +12,8 @@ package org.eclipse.ease.modules.platform;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 import org.eclipse.core.resources.IFile;
 
@@ -29,6 +31,12 @@ public interface IFileHandle {
 	/** Open file in append mode. */
 	int APPEND = 4;
 
+	/** Open file in memory mapped read mode. Only available for files located on the local file system. */
+	int MAPPED = 8;
+
+	/** Open file in buffered write mode. Data is collected and committed on {@link #flush()} or {@link #close()}. */
+	int BUFFERED = 16;
+
 	/**
 	 * Read characters from a file.
 	 *
@@ -40,6 +48,29 @@ public interface IFileHandle {
 	 */
 	String read(int characters) throws IOException;
 
+	/**
+	 * Read raw bytes from a file. Byte based reads must not be mixed with character based reads on the same handle.
+	 *
+	 * @param bytes
+	 *            amount of bytes to read (-1 for whole file)
+	 * @return data read from file or <code>null</code> if EOF is reached
+	 * @throws IOException
+	 *             on access errors
+	 */
+	byte[] readBytes(int bytes) throws IOException;
+
+	/**
+	 * Read raw bytes from a file into a buffer. Reads at most {@link ByteBuffer#remaining()} bytes. Byte based reads must not be mixed with character based
+	 * reads on the same handle.
+	 *
+	 * @param buffer
+	 *            buffer to fill
+	 * @return amount of bytes read or -1 if EOF is reached
+	 * @throws IOException
+	 *             on access errors
+	 */
+	int readInto(ByteBuffer buffer) throws IOException;
+
 	/**
 	 * Read a line of data from a file. Reads until a line feed is detected.
 	 *
@@ -50,7 +81,7 @@ public interface IFileHandle {
 	String readLine() throws IOException;
 
 	/**
-	 * Write data to a file. Uses platform default encoding to write strings to the file.
+	 * Write data to a file. Uses the charset of the handle to encode strings.
 	 *
 	 * @param data
 	 *            data to write
@@ -67,6 +98,20 @@ public interface IFileHandle {
 	 */
 	boolean write(byte[] data);
 
+	/**
+	 * Commit buffered data to the file.
+	 *
+	 * @return <code>true</code> on success
+	 */
+	boolean flush();
+
+	/**
+	 * Get the charset used to encode and decode text data.
+	 *
+	 * @return charset of this handle
+	 */
+	Charset getCharset();
+
 	/**
 	 * Check if a physical file exists.
 	 *
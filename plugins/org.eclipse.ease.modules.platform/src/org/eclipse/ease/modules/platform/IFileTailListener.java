@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+/**
+ * Listener for data appended to a file followed by a {@link FileTail}.
+ */
+public interface IFileTailListener {
+
+	/**
+	 * Called when new data was appended to the followed file. Gets called from a background thread.
+	 *
+	 * @param tail
+	 *            tail instance detecting the change
+	 * @param data
+	 *            appended raw data
+	 * @param lines
+	 *            lines completed by the appended data
+	 */
+	void dataAppended(FileTail tail, byte[] data, String[] lines);
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+/**
+ * Function applied to collection elements by {@link ScriptingModule#parallelMap(Object, IParallelFunction, int)}. Implementations are called from multiple
+ * threads concurrently.
+ */
+public interface IParallelFunction {
+
+	/**
+	 * Process a single element.
+	 *
+	 * @param element
+	 *            element to process
+	 * @return result for this element
+	 * @throws Exception
+	 *             on processing errors, collected by the caller
+	 */
+	Object apply(Object element) throws Exception;
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+/**
+ * Listener for output of an external process started by {@link PlatformModule#runProcess(String, String[], String, java.util.Map, String, long, int,
+ * IProcessListener)}.
+ */
+public interface IProcessListener {
+
+	/**
+	 * Called for each line written by the process. Gets called from a background thread. Lines of the output and the error stream are reported from different
+	 * threads.
+	 *
+	 * @param process
+	 *            process writing the line
+	 * @param line
+	 *            line content without line delimiter
+	 * @param error
+	 *            <code>true</code> when the line was written to the error stream
+	 */
+	void lineReceived(Future process, String line, boolean error);
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over the lines of a text source. Lines are read on demand from a single reader, so memory consumption does not depend on the size of the
+ * source. The underlying reader is closed automatically when the last line was consumed.
+ */
+public class LineIterator implements Iterator<String>, Closeable {
+
+	private final BufferedReader fReader;
+	private String fNextLine = null;
+	private boolean fClosed = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param reader
+	 *            reader to consume
+	 * @param bufferSize
+	 *            size of the read buffer in characters
+	 */
+	public LineIterator(final Reader reader, final int bufferSize) {
+		fReader = new BufferedReader(reader, Math.max(1, bufferSize));
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (fNextLine == null) {
+			if (fClosed)
+				return false;
+
+			try {
+				fNextLine = fReader.readLine();
+			} catch (final IOException e) {
+				close();
+				throw new RuntimeException("Could not read next line", e);
+			}
+
+			if (fNextLine == null)
+				// EOF reached
+				close();
+		}
+
+		return fNextLine != null;
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		final String line = fNextLine;
+		fNextLine = null;
+		return line;
+	}
+
+	/**
+	 * Get the next line. Convenience method for script languages not supporting java iterators natively.
+	 *
+	 * @return next line or <code>null</code> if EOF is reached
+	 */
+	public String nextLine() {
+		return (hasNext()) ? next() : null;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Lines cannot be removed");
+	}
+
+	@Override
+	public void close() {
+		fClosed = true;
+		fNextLine = null;
+
+		try {
+			fReader.close();
+		} catch (final IOException e) {
+		}
+	}
+}
@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.eclipse.core.resources.IFile;
+
+/**
+ * Read only file handle backed by a memory mapped {@link FileChannel}. File content is never copied onto the heap as a whole. Sequential reads decode
+ * characters directly from the mapped region, while {@link #getByteWindow(long, int)} provides zero-copy access to arbitrary file regions.
+ */
+public class MappedFileHandle implements IFileHandle {
+
+	/** Maximum size of a single mapped region. Larger files are mapped in consecutive windows. */
+	private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/** Remap when less bytes remain in the current window. Allows multi byte characters to be decoded across window boundaries. */
+	private static final int MIN_WINDOW_REMAINING = 16;
+
+	/** Amount of characters decoded in one step. */
+	private static final int DECODE_BUFFER_SIZE = 1024 * 8;
+
+	private final File fFile;
+	private final Object fBaseFile;
+	private final Charset fCharset;
+
+	private FileChannel fChannel = null;
+	private MappedByteBuffer fWindow = null;
+	private long fWindowStart = 0;
+
+	/** Byte position of the next byte to decode. */
+	private long fPosition = 0;
+
+	private CharsetDecoder fDecoder = null;
+
+	/** Characters already decoded but not consumed yet. */
+	private CharBuffer fPending = null;
+
+	/** Byte position of the first character in the pending buffer. */
+	private long fPendingStart = 0;
+
+	/**
+	 * Constructor for file system files.
+	 *
+	 * @param file
+	 *            file to map
+	 */
+	public MappedFileHandle(final File file) {
+		this(file, file, null);
+	}
+
+	/**
+	 * Constructor for workspace files located on the local file system.
+	 *
+	 * @param baseFile
+	 *            file object returned by {@link #getFile()}, typically an {@link IFile}
+	 * @param localFile
+	 *            local file to map
+	 * @param charset
+	 *            charset to decode characters or <code>null</code> for the platform default
+	 */
+	public MappedFileHandle(final Object baseFile, final File localFile, final Charset charset) {
+		fBaseFile = baseFile;
+		fFile = localFile;
+		fCharset = (charset != null) ? charset : Charset.defaultCharset();
+	}
+
+	@Override
+	public Charset getCharset() {
+		return fCharset;
+	}
+
+	private FileChannel getChannel() throws IOException {
+		if (fChannel == null)
+			fChannel = new RandomAccessFile(fFile, "r").getChannel();
+
+		return fChannel;
+	}
+
+	/**
+	 * Get the size of the underlying file.
+	 *
+	 * @return file size in bytes
+	 * @throws IOException
+	 *             on access errors
+	 */
+	public long getSize() throws IOException {
+		return getChannel().size();
+	}
+
+	/**
+	 * Get a read only view on a region of the file. The returned buffer is mapped directly to the file and does not copy any data onto the heap.
+	 *
+	 * @param position
+	 *            byte offset within the file
+	 * @param length
+	 *            amount of bytes to map
+	 * @return read only buffer containing the requested region
+	 * @throws IOException
+	 *             on access errors
+	 */
+	public ByteBuffer getByteWindow(final long position, final int length) throws IOException {
+		final long available = Math.max(0, getSize() - position);
+		return getChannel().map(MapMode.READ_ONLY, position, Math.min(length, available));
+	}
+
+	/**
+	 * Get characters from a region of the file. Only the requested region gets decoded.
+	 *
+	 * @param position
+	 *            byte offset within the file
+	 * @param length
+	 *            amount of bytes to decode
+	 * @return decoded characters
+	 * @throws IOException
+	 *             on access or decoding errors
+	 */
+	public CharBuffer getCharWindow(final long position, final int length) throws IOException {
+		return createDecoder().decode(getByteWindow(position, length));
+	}
+
+	private CharsetDecoder createDecoder() {
+		return fCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Map the window containing <i>position</i>. Reuses the current window if it contains enough data.
+	 *
+	 * @param position
+	 *            byte position to access
+	 * @return window positioned at <i>position</i> or <code>null</code> when EOF is reached
+	 * @throws IOException
+	 *             on access errors
+	 */
+	private MappedByteBuffer mapWindow(final long position) throws IOException {
+		final long size = getSize();
+		if (position >= size)
+			return null;
+
+		if (fWindow != null) {
+			final long windowEnd = fWindowStart + fWindow.capacity();
+			if ((position >= fWindowStart) && (((windowEnd - position) >= MIN_WINDOW_REMAINING) || (windowEnd == size))) {
+				fWindow.position((int) (position - fWindowStart));
+				return fWindow;
+			}
+		}
+
+		fWindowStart = position;
+		fWindow = getChannel().map(MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_SIZE, size - position));
+		return fWindow;
+	}
+
+	/**
+	 * Decode the next chunk of characters into the pending buffer.
+	 *
+	 * @return <code>false</code> when EOF is reached
+	 * @throws IOException
+	 *             on access errors
+	 */
+	private boolean fillPending() throws IOException {
+		if (fDecoder == null) {
+			fDecoder = createDecoder();
+			fPending = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+			fPending.flip();
+		}
+
+		if (fPending.hasRemaining())
+			return true;
+
+		final MappedByteBuffer window = mapWindow(fPosition);
+		if (window == null)
+			return false;
+
+		final boolean endOfInput = (fWindowStart + window.capacity()) == getSize();
+		final int start = window.position();
+		fPendingStart = fPosition;
+
+		fPending.clear();
+		final CoderResult result = fDecoder.decode(window, fPending, endOfInput);
+		if (endOfInput && !window.hasRemaining())
+			fDecoder.flush(fPending);
+
+		fPending.flip();
+		fPosition += window.position() - start;
+
+		if (result.isError())
+			result.throwException();
+
+		return fPending.hasRemaining() || (window.position() != start);
+	}
+
+	@Override
+	public String read(final int characters) throws IOException {
+		final StringBuilder result = new StringBuilder();
+
+		while ((characters < 0) || (result.length() < characters)) {
+			if (!fillPending())
+				break;
+
+			final int length = (characters < 0) ? fPending.remaining() : Math.min(fPending.remaining(), characters - result.length());
+			final int start = fPending.position();
+			result.append(fPending, 0, length);
+			fPending.position(start + length);
+		}
+
+		return result.toString();
+	}
+
+	@Override
+	public byte[] readBytes(final int bytes) throws IOException {
+		resetDecoder();
+
+		final long available = getSize() - fPosition;
+		if ((available <= 0) && (bytes != 0))
+			// EOF reached
+			return null;
+
+		final byte[] result = new byte[(int) ((bytes < 0) ? available : Math.min(bytes, available))];
+		readInto(ByteBuffer.wrap(result));
+
+		return result;
+	}
+
+	/**
+	 * Discard decoded characters and move the byte position behind the last consumed character. Needed when switching from character to byte access.
+	 *
+	 * @throws IOException
+	 *             on access errors
+	 */
+	private void resetDecoder() throws IOException {
+		if ((fDecoder != null) && (fPending.hasRemaining())) {
+			// decode consumed characters again to find their byte length
+			final ByteBuffer bytes = getByteWindow(fPendingStart, (int) (fPosition - fPendingStart));
+			createDecoder().decode(bytes, CharBuffer.allocate(fPending.position()), true);
+			fPosition = fPendingStart + bytes.position();
+		}
+
+		fDecoder = null;
+		fPending = null;
+	}
+
+	@Override
+	public int readInto(final ByteBuffer buffer) throws IOException {
+		// continue behind the last character read
+		resetDecoder();
+
+		int transferred = 0;
+		while (buffer.hasRemaining()) {
+			final MappedByteBuffer window = mapWindow(fPosition);
+			if (window == null)
+				break;
+
+			final int length = Math.min(window.remaining(), buffer.remaining());
+			final ByteBuffer slice = window.slice();
+			slice.limit(length);
+			buffer.put(slice);
+
+			fPosition += length;
+			transferred += length;
+		}
+
+		return ((transferred == 0) && (buffer.hasRemaining())) ? -1 : transferred;
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		StringBuilder line = null;
+
+		while (fillPending()) {
+			if (line == null)
+				line = new StringBuilder();
+
+			while (fPending.hasRemaining()) {
+				final char character = fPending.get();
+				if (character == '\n')
+					return line.toString();
+
+				if (character == '\r') {
+					// consume optional line feed
+					if (!fPending.hasRemaining())
+						fillPending();
+
+					if ((fPending.hasRemaining()) && (fPending.get(fPending.position()) == '\n'))
+						fPending.get();
+
+					return line.toString();
+				}
+
+				line.append(character);
+			}
+		}
+
+		return (line != null) ? line.toString() : null;
+	}
+
+	@Override
+	public boolean write(final String data) {
+		// mapped handles are read only
+		return false;
+	}
+
+	@Override
+	public boolean write(final byte[] data) {
+		// mapped handles are read only
+		return false;
+	}
+
+	@Override
+	public boolean flush() {
+		// nothing to flush on read only handles
+		return true;
+	}
+
+	@Override
+	public boolean exists() {
+		return fFile.exists();
+	}
+
+	@Override
+	public boolean createFile(final boolean createHierarchy) throws Exception {
+		if (createHierarchy) {
+			final File folder = fFile.getParentFile();
+			if (!folder.exists())
+				folder.mkdirs();
+		}
+
+		return fFile.createNewFile();
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (fChannel != null)
+				fChannel.close();
+		} catch (final IOException e) {
+		}
+
+		// mapped regions get released by the garbage collector
+		fChannel = null;
+		fWindow = null;
+	}
+
+	@Override
+	protected void finalize() throws Throwable {
+		close();
+
+		super.finalize();
+	}
+
+	@Override
+	public Object getFile() {
+		return fBaseFile;
+	}
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.Arrays;
+
+/**
+ * Ring buffer for character data. Keeps the last <i>capacity</i> characters written, older content is dropped. A buffer without capacity keeps all
+ * characters.
+ */
+class OutputBuffer {
+
+	/** Initial size of buffers without capacity limit. */
+	private static final int INITIAL_SIZE = 1024;
+
+	private final boolean fBounded;
+
+	private char[] fBuffer;
+
+	/** Index of the oldest character. */
+	private int fStart = 0;
+
+	/** Amount of stored characters. */
+	private int fSize = 0;
+
+	/** Set when content got dropped. */
+	private boolean fTruncated = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            maximum amount of characters to keep, use 0 to keep all characters
+	 */
+	public OutputBuffer(final int capacity) {
+		fBounded = capacity > 0;
+		fBuffer = new char[(fBounded) ? capacity : INITIAL_SIZE];
+	}
+
+	/**
+	 * Append characters to the buffer.
+	 *
+	 * @param data
+	 *            characters to append
+	 * @param offset
+	 *            offset of first character in <i>data</i>
+	 * @param length
+	 *            amount of characters to append
+	 */
+	public synchronized void append(final char[] data, int offset, int length) {
+		if (!fBounded) {
+			// unbounded buffers never wrap around
+			if ((fSize + length) > fBuffer.length)
+				fBuffer = Arrays.copyOf(fBuffer, Math.max(fBuffer.length * 2, fSize + length));
+
+			System.arraycopy(data, offset, fBuffer, fSize, length);
+			fSize += length;
+			return;
+		}
+
+		if (length > fBuffer.length) {
+			// only the tail of data fits into the buffer
+			offset += length - fBuffer.length;
+			length = fBuffer.length;
+			fTruncated = true;
+		}
+
+		final int overflow = (fSize + length) - fBuffer.length;
+		if (overflow > 0) {
+			fStart = (fStart + overflow) % fBuffer.length;
+			fSize -= overflow;
+			fTruncated = true;
+		}
+
+		final int end = (fStart + fSize) % fBuffer.length;
+		final int firstChunk = Math.min(length, fBuffer.length - end);
+		System.arraycopy(data, offset, fBuffer, end, firstChunk);
+		System.arraycopy(data, offset + firstChunk, fBuffer, 0, length - firstChunk);
+		fSize += length;
+	}
+
+	/**
+	 * Check whether content got dropped as the capacity was exceeded.
+	 *
+	 * @return <code>true</code> when the buffer does not contain all characters written
+	 */
+	public synchronized boolean isTruncated() {
+		return fTruncated;
+	}
+
+	@Override
+	public synchronized String toString() {
+		final int firstChunk = Math.min(fSize, fBuffer.length - fStart);
+		final StringBuilder result = new StringBuilder(fSize);
+		result.append(fBuffer, fStart, firstChunk);
+		result.append(fBuffer, 0, fSize - firstChunk);
+
+		return result.toString();
+	}
+}
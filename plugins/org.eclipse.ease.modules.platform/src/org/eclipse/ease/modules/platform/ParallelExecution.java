@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies a function to all elements of a list in parallel. Work is distributed over a shared {@link ForkJoinPool}. Exceptions of single elements are
+ * collected, so a failing element does not abort the whole batch. Results are kept in the order of the input elements.
+ */
+public class ParallelExecution {
+
+	/** Shared pool for all parallel executions. */
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private final List<?> fElements;
+	private final IParallelFunction fFunction;
+	private final Object[] fResults;
+	private final Map<Integer, Throwable> fExceptions = new TreeMap<Integer, Throwable>();
+
+	private final AtomicInteger fNextIndex = new AtomicInteger(0);
+	private volatile boolean fCanceled = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param elements
+	 *            elements to process
+	 * @param function
+	 *            function to apply to each element
+	 */
+	public ParallelExecution(final List<?> elements, final IParallelFunction function) {
+		fElements = new ArrayList<Object>(elements);
+		fFunction = function;
+		fResults = new Object[fElements.size()];
+	}
+
+	/**
+	 * Process all elements and wait for completion.
+	 *
+	 * @param parallelism
+	 *            maximum amount of elements processed concurrently, values &lt;= 0 use the parallelism of the shared pool
+	 * @return <code>true</code> when all elements got processed, <code>false</code> when the execution got canceled
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted, remaining elements are not processed
+	 */
+	public boolean run(final int parallelism) throws InterruptedException {
+		final int workers = Math.max(1, Math.min(fElements.size(), (parallelism > 0) ? parallelism : POOL.getParallelism()));
+		final CountDownLatch done = new CountDownLatch(workers);
+
+		for (int worker = 0; worker < workers; worker++) {
+			POOL.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						// each worker pulls elements until the list is exhausted
+						int index;
+						while ((!fCanceled) && ((index = fNextIndex.getAndIncrement()) < fElements.size())) {
+							try {
+								fResults[index] = fFunction.apply(fElements.get(index));
+							} catch (final Throwable e) {
+								synchronized (fExceptions) {
+									fExceptions.put(index, e);
+								}
+							}
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		try {
+			done.await();
+		} catch (final InterruptedException e) {
+			cancel();
+			throw e;
+		}
+
+		return !fCanceled;
+	}
+
+	/**
+	 * Stop processing. Elements currently processed are finished, remaining elements are skipped.
+	 */
+	public void cancel() {
+		fCanceled = true;
+	}
+
+	/**
+	 * Check whether the execution got canceled.
+	 *
+	 * @return <code>true</code> when canceled
+	 */
+	public boolean isCanceled() {
+		return fCanceled;
+	}
+
+	/**
+	 * Get the results in the order of the input elements. Failed or skipped elements have a <code>null</code> result.
+	 *
+	 * @return results
+	 */
+	public Object[] getResults() {
+		return fResults;
+	}
+
+	/**
+	 * Check whether any element failed.
+	 *
+	 * @return <code>true</code> when exceptions were collected
+	 */
+	public boolean hasExceptions() {
+		synchronized (fExceptions) {
+			return !fExceptions.isEmpty();
+		}
+	}
+
+	/**
+	 * Get the collected exceptions.
+	 *
+	 * @return exceptions by index of the failing element
+	 */
+	public Map<Integer, Throwable> getExceptions() {
+		synchronized (fExceptions) {
+			return new TreeMap<Integer, Throwable>(fExceptions);
+		}
+	}
+}
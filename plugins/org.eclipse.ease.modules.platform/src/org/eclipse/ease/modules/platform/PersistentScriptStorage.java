@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.ease.Logger;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Disk backed tier of the shared object store. Values survive restarts of the application and are stored as compressed java serialization streams in the
+ * plugin state location, one file per key. Recently used values are kept in an LRU memory cache. Values are written through to disk on storage and loaded
+ * lazily on first access. The index of stored keys is read once, lookups of keys not stored persistently never touch the disk.
+ */
+class PersistentScriptStorage {
+
+	/** Default amount of values kept in memory. */
+	private static final int DEFAULT_CACHE_SIZE = 128;
+
+	/** File extension for stored values. */
+	private static final String EXTENSION = ".ser";
+
+	/** Characters used verbatim in file names. Everything else, including upper case letters, gets escaped. */
+	private static final String PLAIN_CHARACTERS = "abcdefghijklmnopqrstuvwxyz0123456789._-";
+
+	private static PersistentScriptStorage fInstance = null;
+
+	/**
+	 * Get the singleton instance.
+	 *
+	 * @return singleton PersistentScriptStorage
+	 */
+	public static synchronized PersistentScriptStorage getInstance() {
+		if (fInstance == null)
+			fInstance = new PersistentScriptStorage(null);
+
+		return fInstance;
+	}
+
+	/** Storage folder, <code>null</code> when persistence is not available. */
+	private File fFolder;
+
+	/** Stored files by key. Populated on first access, afterwards readable without locking. */
+	private volatile Map<String, File> fFiles = null;
+
+	private int fCacheSize = DEFAULT_CACHE_SIZE;
+
+	/** LRU cache of loaded values. */
+	private final Map<String, Object> fCache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = -4237395925318203862L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Object> eldest) {
+			// values are already on disk, dropping them from memory is sufficient
+			return size() > fCacheSize;
+		}
+	};
+
+	/**
+	 * Constructor.
+	 *
+	 * @param folder
+	 *            storage folder, <code>null</code> to use the plugin state location
+	 */
+	PersistentScriptStorage(final File folder) {
+		fFolder = folder;
+	}
+
+	/**
+	 * Get the index of stored keys. Reads the available keys from disk on first access, values are not loaded.
+	 *
+	 * @return stored files by key
+	 */
+	private Map<String, File> getIndex() {
+		Map<String, File> files = fFiles;
+		if (files == null) {
+			synchronized (this) {
+				files = fFiles;
+				if (files == null) {
+					files = new ConcurrentHashMap<String, File>();
+
+					try {
+						if (fFolder == null)
+							fFolder = Platform.getStateLocation(Platform.getBundle(PluginConstants.PLUGIN_ID)).append("sharedObjects").toFile();
+
+						if (!fFolder.exists())
+							fFolder.mkdirs();
+
+						final File[] children = fFolder.listFiles();
+						if (children != null) {
+							for (final File file : children) {
+								if (file.getName().endsWith(EXTENSION))
+									files.put(decodeKey(file.getName().substring(0, file.getName().length() - EXTENSION.length())), file);
+							}
+						}
+
+					} catch (final Exception e) {
+						// no state location available, e.g. when running without a workspace
+						Logger.error(PluginConstants.PLUGIN_ID, "Persistent shared objects are not available", e);
+						fFolder = null;
+					}
+
+					fFiles = files;
+				}
+			}
+		}
+
+		return files;
+	}
+
+	/**
+	 * Set the amount of values kept in memory.
+	 *
+	 * @param size
+	 *            cache size
+	 */
+	public synchronized void setCacheSize(final int size) {
+		fCacheSize = Math.max(0, size);
+
+		while (fCache.size() > fCacheSize)
+			fCache.remove(fCache.keySet().iterator().next());
+	}
+
+	/**
+	 * Check whether a key is stored persistently.
+	 *
+	 * @param key
+	 *            key to look for
+	 * @return <code>true</code> when stored
+	 */
+	public boolean containsKey(final String key) {
+		return getIndex().containsKey(key);
+	}
+
+	/**
+	 * Get the persistently stored keys.
+	 *
+	 * @return stored keys
+	 */
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(new HashSet<String>(getIndex().keySet()));
+	}
+
+	/**
+	 * Retrieve a stored value. Loads the value from disk if it is not cached.
+	 *
+	 * @param key
+	 *            key to retrieve value for
+	 * @return stored value or <code>null</code>
+	 */
+	public Object get(final String key) {
+		// fast path for keys not stored persistently
+		if (!getIndex().containsKey(key))
+			return null;
+
+		synchronized (this) {
+			Object value = fCache.get(key);
+			if (value == null) {
+				final File file = fFiles.get(key);
+				if (file != null) {
+					try {
+						value = read(file);
+						fCache.put(key, value);
+					} catch (final Exception e) {
+						Logger.error(PluginConstants.PLUGIN_ID, "Could not load shared object \"" + key + "\"", e);
+					}
+				}
+			}
+
+			return value;
+		}
+	}
+
+	/**
+	 * Store a value persistently.
+	 *
+	 * @param key
+	 *            key to store the value
+	 * @param value
+	 *            value to store
+	 * @throws IOException
+	 *             when the value cannot be written
+	 */
+	public synchronized void put(final String key, final Serializable value) throws IOException {
+		final Map<String, File> files = getIndex();
+		if (fFolder == null)
+			throw new IOException("Persistent shared objects are not available");
+
+		final File file = new File(fFolder, encodeKey(key) + EXTENSION);
+		write(file, value);
+		files.put(key, file);
+		fCache.put(key, value);
+	}
+
+	/**
+	 * Remove a stored value.
+	 *
+	 * @param key
+	 *            key to remove
+	 */
+	public synchronized void remove(final String key) {
+		final File file = getIndex().remove(key);
+		if (file != null) {
+			fCache.remove(key);
+			file.delete();
+		}
+	}
+
+	/**
+	 * Encode a key to a file name. Upper case letters get escaped, so keys only differing in case do not collide on case insensitive file systems.
+	 *
+	 * @param key
+	 *            key to encode
+	 * @return file name without extension
+	 */
+	static String encodeKey(final String key) {
+		final StringBuilder result = new StringBuilder();
+		for (final byte character : key.getBytes(StandardCharsets.UTF_8)) {
+			if (PLAIN_CHARACTERS.indexOf(character) >= 0)
+				result.append((char) character);
+			else
+				result.append('%').append(String.format("%02x", character & 0xFF));
+		}
+
+		return result.toString();
+	}
+
+	static String decodeKey(final String name) {
+		try {
+			return URLDecoder.decode(name, "UTF-8");
+		} catch (final UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void write(final File file, final Serializable value) throws IOException {
+		// write to a temporary file first so a crash does not leave a corrupted value behind
+		final File tempFile = new File(file.getPath() + ".tmp");
+		final ObjectOutputStream output = new ObjectOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+
+			@Override
+			protected void annotateClass(final Class<?> type) throws IOException {
+				// remember the defining bundle to resolve the class on loading
+				final Bundle bundle = FrameworkUtil.getBundle(type);
+				writeUTF((bundle != null) ? bundle.getSymbolicName() : "");
+			}
+		};
+
+		try {
+			output.writeObject(value);
+		} finally {
+			output.close();
+		}
+
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static Object read(final File file) throws IOException, ClassNotFoundException {
+		final InputStream input = new InflaterInputStream(new BufferedInputStream(new FileInputStream(file)));
+		final ObjectInputStream objectInput = new ObjectInputStream(input) {
+
+			@Override
+			protected Class<?> resolveClass(final ObjectStreamClass description) throws IOException, ClassNotFoundException {
+				// values might be instances of classes not visible to this bundle, load them from their defining bundle
+				final String bundleName = readUTF();
+				if (!bundleName.isEmpty()) {
+					final Bundle bundle = Platform.getBundle(bundleName);
+					if (bundle != null) {
+						try {
+							return bundle.loadClass(description.getName());
+						} catch (final ClassNotFoundException e) {
+							// fall back to default resolution
+						}
+					}
+				}
+
+				return super.resolveClass(description);
+			}
+		};
+
+		try {
+			return objectInput.readObject();
+		} finally {
+			objectInput.close();
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package org.eclipse.ease.modules.platform;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.core.commands.Command;
 import org.eclipse.core.commands.ExecutionEvent;
@@ -110,16 +114,36 @@ public class PlatformModule {
 
 	/**
 	 * Run an external process. The process is started in the background and a {@link Future} object is returned. Query the result for finished state, output
-	 * and error streams of the executed process.
+	 * and error streams of the executed process. Output and error streams are read in the background while the process is running. By default all output is
+	 * kept, when a <i>bufferSize</i> is given only the last characters of each stream are kept. Alternatively provide a <i>listener</i> that gets informed
+	 * for each line.
 	 *
 	 * @param name
 	 *            program to run (with full path if necessary)
 	 * @param args
 	 *            program arguments
+	 * @param workingDirectory
+	 *            working directory of the process, <code>null</code> to use the working directory of the current application
+	 * @param environment
+	 *            environment variables to add to the environment of the current application, entries with <code>null</code> values are removed
+	 * @param input
+	 *            text to pipe to the standard input of the process, standard input is closed afterwards. When <code>null</code> standard input is left
+	 *            untouched
+	 * @param timeout
+	 *            maximum runtime of the process in [ms], the process gets killed when exceeded. Use 0 for no timeout
+	 * @param bufferSize
+	 *            amount of characters to keep for output and error stream each, use 0 to keep all output
+	 * @param listener
+	 *            listener to be informed on each output line
 	 * @return {@link Future} object tracking the program
 	 */
 	@WrapToScript
-	public static Future runProcess(final String name, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String[] args) {
+	public static Future runProcess(final String name, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String[] args,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String workingDirectory,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final Map<String, String> environment,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String input, @ScriptParameter(defaultValue = "0") final long timeout,
+			@ScriptParameter(defaultValue = "0") final int bufferSize,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final IProcessListener listener) {
 		final List<String> arguments = new ArrayList<String>();
 		arguments.add(name);
 		if (args != null) {
@@ -127,14 +151,96 @@ public class PlatformModule {
 				arguments.add(arg);
 		}
 
-		final ProcessBuilder builder = new ProcessBuilder(arguments);
 		try {
-			return new Future(builder.start());
+			return new Future(createProcessBuilder(arguments, workingDirectory, environment).start(), input, timeout, bufferSize, listener);
 		} catch (final IOException e) {
 			return new Future(e);
 		}
 	}
 
+	/**
+	 * Run an external process keeping all of its output. See {@link #runProcess(String, String[], String, Map, String, long, int, IProcessListener)} for
+	 * details.
+	 *
+	 * @param name
+	 *            program to run (with full path if necessary)
+	 * @param args
+	 *            program arguments
+	 * @return {@link Future} object tracking the program
+	 */
+	public static Future runProcess(final String name, final String[] args) {
+		return runProcess(name, args, null, null, null, 0, Future.DEFAULT_BUFFER_SIZE, null);
+	}
+
+	/**
+	 * Run a batch of external processes. At most <i>maxParallel</i> processes are running at the same time. This method blocks until all processes are
+	 * finished. The returned {@link ProcessBatch} provides exit codes, output and runtime of each process in the order of the given commands.
+	 *
+	 * @param commands
+	 *            commands to run. Each command is either an array containing the program followed by its arguments or a string that gets split at whitespace
+	 * @param maxParallel
+	 *            maximum amount of concurrently running processes, use 0 for the amount of available processors
+	 * @param failFast
+	 *            when <code>true</code> the first process exiting with a non-zero exit code kills all running processes and skips pending ones
+	 * @param workingDirectory
+	 *            working directory of the processes, <code>null</code> to use the working directory of the current application
+	 * @param environment
+	 *            environment variables to add to the environment of the current application, entries with <code>null</code> values are removed
+	 * @param timeout
+	 *            maximum runtime of a single process in [ms], the process gets killed when exceeded. Use 0 for no timeout
+	 * @return {@link ProcessBatch} containing the results
+	 * @throws InterruptedException
+	 *             when the script thread gets interrupted, running processes are killed
+	 */
+	@WrapToScript
+	public static ProcessBatch runProcesses(final Object[] commands, @ScriptParameter(defaultValue = "0") final int maxParallel,
+			@ScriptParameter(defaultValue = "false") final boolean failFast, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String workingDirectory,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final Map<String, String> environment, @ScriptParameter(defaultValue = "0") final long timeout)
+			throws InterruptedException {
+		final List<ProcessBuilder> builders = new ArrayList<ProcessBuilder>();
+		for (final Object command : commands)
+			builders.add(createProcessBuilder(toCommand(command), workingDirectory, environment));
+
+		final ProcessBatch batch = new ProcessBatch(builders, timeout, Future.DEFAULT_BUFFER_SIZE);
+		batch.run(maxParallel, failFast);
+
+		return batch;
+	}
+
+	private static List<String> toCommand(final Object command) {
+		final List<String> arguments = new ArrayList<String>();
+
+		if (command instanceof Object[]) {
+			for (final Object argument : (Object[]) command)
+				arguments.add(String.valueOf(argument));
+
+		} else if (command instanceof Collection<?>) {
+			for (final Object argument : (Collection<?>) command)
+				arguments.add(String.valueOf(argument));
+
+		} else if (command != null)
+			arguments.addAll(Arrays.asList(command.toString().trim().split("\\s+")));
+
+		return arguments;
+	}
+
+	private static ProcessBuilder createProcessBuilder(final List<String> arguments, final String workingDirectory, final Map<String, String> environment) {
+		final ProcessBuilder builder = new ProcessBuilder(arguments);
+		if (workingDirectory != null)
+			builder.directory(new File(workingDirectory));
+
+		if (environment != null) {
+			for (final Entry<String, String> entry : environment.entrySet()) {
+				if (entry.getValue() != null)
+					builder.environment().put(entry.getKey(), entry.getValue());
+				else
+					builder.environment().remove(entry.getKey());
+			}
+		}
+
+		return builder;
+	}
+
 	/**
 	 * Read a preferences value. The <i>defaultValue</i> is optional, but contains type information if used. Provide instances of Boolean, Integer, Double,
 	 * Float, Long, byte[], or String to get the appropriate return value of same type.
@@ -242,13 +348,8 @@ public class PlatformModule {
 			job.setSystem(true);
 			job.schedule(delay);
 
-		} else {
-			IEventBroker service = PlatformUI.getWorkbench().getService(IEventBroker.class);
-			if (service != null)
-				service.post(topic, data);
-			else
-				throw new RuntimeException("Broker service not available");
-		}
+		} else
+			getEventBroker().post(topic, data);
 	}
 
 	/**
@@ -264,19 +365,44 @@ public class PlatformModule {
 	 */
 	@WrapToScript
 	public static Event waitForEvent(final String topic, @ScriptParameter(defaultValue = "0") final long timeout) throws InterruptedException {
-		IEventBroker service = PlatformUI.getWorkbench().getService(IEventBroker.class);
-		if (service != null) {
-			WaitingEventHandler handler = new WaitingEventHandler();
+		final IEventBroker service = getEventBroker();
+		WaitingEventHandler handler = new WaitingEventHandler();
 
-			synchronized (handler) {
-				service.subscribe(topic, handler);
-				handler.wait(timeout);
-				service.unsubscribe(handler);
+		synchronized (handler) {
+			service.subscribe(topic, handler);
+			handler.wait(timeout);
+			service.unsubscribe(handler);
 
-				return handler.fEvent;
-			}
+			return handler.fEvent;
+		}
+	}
 
-		} else
+	/**
+	 * Subscribe to events on the event bus. Other than {@module #waitForEvent(String, long)} the subscription stays active until it gets canceled. Events
+	 * are queued until they are received by the script. When more than <i>capacity</i> events are queued, the oldest events are dropped.
+	 *
+	 * @param topic
+	 *            topic to subscribe for, may contain wildcards
+	 * @param capacity
+	 *            maximum amount of queued events
+	 * @param coalesce
+	 *            when <code>true</code> a queued event gets replaced by a newer event of the same topic
+	 * @return subscription providing queued events. Call unsubscribe() on it to stop receiving events
+	 *
+	 * @scriptExample subscription = subscribe("org/eclipse/ease/*"); events = subscription.drain(-1, 1000); subscription.unsubscribe(); to process all events
+	 *                arriving within a second
+	 */
+	@WrapToScript
+	public static EventSubscription subscribe(final String topic, @ScriptParameter(defaultValue = "1000") final int capacity,
+			@ScriptParameter(defaultValue = "false") final boolean coalesce) {
+		return new EventSubscription(getEventBroker(), topic, capacity, coalesce);
+	}
+
+	private static IEventBroker getEventBroker() {
+		final IEventBroker service = PlatformUI.getWorkbench().getService(IEventBroker.class);
+		if (service == null)
 			throw new RuntimeException("Broker service not available");
+
+		return service;
 	}
 }
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a batch of external processes with a limited amount of processes running concurrently. Results of all processes are collected in the order of the
+ * given commands.
+ */
+public class ProcessBatch {
+
+	private final List<ProcessBuilder> fBuilders;
+	private final long fTimeout;
+	private final int fBufferSize;
+	private final Future[] fProcesses;
+
+	private volatile boolean fFailed = false;
+	private long fDuration = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param builders
+	 *            builders for the processes to run
+	 * @param timeout
+	 *            maximum runtime of a single process in [ms], 0 for no timeout
+	 * @param bufferSize
+	 *            amount of characters to keep for output and error stream of each process
+	 */
+	public ProcessBatch(final List<ProcessBuilder> builders, final long timeout, final int bufferSize) {
+		fBuilders = new ArrayList<ProcessBuilder>(builders);
+		fTimeout = timeout;
+		fBufferSize = bufferSize;
+		fProcesses = new Future[fBuilders.size()];
+	}
+
+	/**
+	 * Run all processes and wait for completion.
+	 *
+	 * @param maxParallel
+	 *            maximum amount of processes running concurrently, values &lt;= 0 use the amount of available processors
+	 * @param failFast
+	 *            when <code>true</code> the first process exiting with a non-zero exit code kills all running processes and skips pending ones
+	 * @return <code>true</code> when all processes exited with exit code 0
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted, running processes are killed
+	 */
+	public boolean run(final int maxParallel, final boolean failFast) throws InterruptedException {
+		final long start = System.currentTimeMillis();
+
+		final int threads = Math.max(1, Math.min(fBuilders.size(), (maxParallel > 0) ? maxParallel : Runtime.getRuntime().availableProcessors()));
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "Process batch");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+
+		for (int index = 0; index < fBuilders.size(); index++) {
+			final int processIndex = index;
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					if (!fFailed)
+						runProcess(processIndex, failFast);
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			executor.shutdownNow();
+			killAll();
+			throw e;
+		} finally {
+			// mark processes that never got started
+			synchronized (fProcesses) {
+				for (int index = 0; index < fProcesses.length; index++) {
+					if (fProcesses[index] == null)
+						fProcesses[index] = new Future(new CancellationException("Process skipped"));
+				}
+			}
+
+			fDuration = System.currentTimeMillis() - start;
+		}
+
+		return getFailedCount() == 0;
+	}
+
+	private void runProcess(final int index, final boolean failFast) {
+		Future process;
+		try {
+			process = new Future(fBuilders.get(index).start(), null, fTimeout, fBufferSize, null);
+		} catch (final IOException e) {
+			process = new Future(e);
+		}
+
+		synchronized (fProcesses) {
+			fProcesses[index] = process;
+		}
+
+		// processes started while a failure got detected need to be killed too
+		if (fFailed)
+			process.kill();
+
+		if ((process.getExitCode() != 0) && (failFast)) {
+			fFailed = true;
+			killAll();
+		}
+	}
+
+	private void killAll() {
+		synchronized (fProcesses) {
+			for (final Future process : fProcesses) {
+				if (process != null)
+					process.kill();
+			}
+		}
+	}
+
+	/**
+	 * Get the processes in the order of the given commands. Processes skipped due to a failure contain a {@link CancellationException}.
+	 *
+	 * @return processes
+	 */
+	public Future[] getProcesses() {
+		return fProcesses;
+	}
+
+	/**
+	 * Get the exit codes of all processes. Processes that could not be started or got skipped report -1.
+	 *
+	 * @return exit codes
+	 */
+	public int[] getExitCodes() {
+		final int[] exitCodes = new int[fProcesses.length];
+		for (int index = 0; index < fProcesses.length; index++)
+			exitCodes[index] = fProcesses[index].getExitCode();
+
+		return exitCodes;
+	}
+
+	/**
+	 * Get the output of all processes.
+	 *
+	 * @return process outputs
+	 */
+	public String[] getOutputs() {
+		final String[] outputs = new String[fProcesses.length];
+		for (int index = 0; index < fProcesses.length; index++)
+			outputs[index] = fProcesses[index].getOutput();
+
+		return outputs;
+	}
+
+	/**
+	 * Get the error texts of all processes.
+	 *
+	 * @return process error texts (or exception messages)
+	 */
+	public String[] getErrors() {
+		final String[] errors = new String[fProcesses.length];
+		for (int index = 0; index < fProcesses.length; index++)
+			errors[index] = fProcesses[index].getError();
+
+		return errors;
+	}
+
+	/**
+	 * Get the runtime of all processes.
+	 *
+	 * @return runtimes in [ms]
+	 */
+	public long[] getDurations() {
+		final long[] durations = new long[fProcesses.length];
+		for (int index = 0; index < fProcesses.length; index++)
+			durations[index] = fProcesses[index].getDuration();
+
+		return durations;
+	}
+
+	/**
+	 * Get the runtime of the whole batch.
+	 *
+	 * @return runtime in [ms]
+	 */
+	public long getDuration() {
+		return fDuration;
+	}
+
+	/**
+	 * Get the amount of processes not exiting with exit code 0. Includes processes that could not be started or got skipped.
+	 *
+	 * @return failed processes
+	 */
+	public int getFailedCount() {
+		int failed = 0;
+		for (final int exitCode : getExitCodes()) {
+			if (exitCode != 0)
+				failed++;
+		}
+
+		return failed;
+	}
+
+	/**
+	 * Check whether all processes exited with exit code 0.
+	 *
+	 * @return <code>true</code> on success
+	 */
+	public boolean isSuccess() {
+		return getFailedCount() == 0;
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.MultiRule;
+
+/**
+ * Refreshes a batch of workspace resources in a single {@link WorkspaceJob}. The job acts as a handle to the pending refresh: callers may query the progress,
+ * wait for completion or register job change listeners to get notified when done.
+ */
+public class RefreshJob extends WorkspaceJob {
+
+	private final List<IResource> fResources;
+	private final int fDepth;
+
+	private final CountDownLatch fDone = new CountDownLatch(1);
+	private volatile int fRefreshed = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param resources
+	 *            resources to refresh
+	 * @param depth
+	 *            refresh depth, one of {@link IResource#DEPTH_ZERO}, {@link IResource#DEPTH_ONE}, {@link IResource#DEPTH_INFINITE}
+	 */
+	public RefreshJob(final Collection<? extends IResource> resources, final int depth) {
+		super("Refresh resources");
+
+		fResources = new ArrayList<IResource>(resources);
+		fDepth = depth;
+
+		// lock only the resources to refresh
+		final IResourceRuleFactory ruleFactory = ResourcesPlugin.getWorkspace().getRuleFactory();
+		final List<ISchedulingRule> rules = new ArrayList<ISchedulingRule>();
+		for (final IResource resource : fResources)
+			rules.add(ruleFactory.refreshRule(resource));
+
+		setRule(MultiRule.combine(rules.toArray(new ISchedulingRule[rules.size()])));
+
+		addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(final IJobChangeEvent event) {
+				fDone.countDown();
+			}
+		});
+	}
+
+	@Override
+	public IStatus runInWorkspace(final IProgressMonitor monitor) throws CoreException {
+		final SubMonitor progress = SubMonitor.convert(monitor, getName(), fResources.size());
+		final MultiStatus status = new MultiStatus(PluginConstants.PLUGIN_ID, IStatus.OK, "Refresh resources", null);
+
+		for (final IResource resource : fResources) {
+			if (progress.isCanceled())
+				return Status.CANCEL_STATUS;
+
+			progress.subTask(resource.getFullPath().toString());
+			try {
+				resource.refreshLocal(fDepth, progress.newChild(1));
+			} catch (final CoreException e) {
+				// continue with remaining resources
+				status.add(e.getStatus());
+			}
+
+			fRefreshed++;
+		}
+
+		return status;
+	}
+
+	/**
+	 * Get the amount of resources already refreshed.
+	 *
+	 * @return refreshed resources
+	 */
+	public int getRefreshed() {
+		return fRefreshed;
+	}
+
+	/**
+	 * Get the amount of resources to refresh.
+	 *
+	 * @return total resources
+	 */
+	public int getTotal() {
+		return fResources.size();
+	}
+
+	/**
+	 * Check whether the refresh is finished.
+	 *
+	 * @return <code>true</code> when the refresh is done or got canceled
+	 */
+	public boolean isDone() {
+		return fDone.getCount() == 0;
+	}
+
+	/**
+	 * Wait for the refresh to finish. The job needs to be scheduled before.
+	 *
+	 * @param timeout
+	 *            maximum time to wait in [ms], 0 to wait until done
+	 * @return <code>true</code> when the refresh is done
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public boolean waitForCompletion(final long timeout) throws InterruptedException {
+		if (timeout <= 0) {
+			fDone.await();
+			return true;
+		}
+
+		return fDone.await(timeout, TimeUnit.MILLISECONDS);
+	}
+}
@@ -10,47 +10,146 @@
  *******************************************************************************/
 package org.eclipse.ease.modules.platform;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.InputStreamReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.ease.Logger;
 
+/**
+ * File handle for workspace files. In {@link IFileHandle#BUFFERED} mode written data is collected and committed to the workspace in a single operation when
+ * the handle is flushed or closed. This results in a single resource delta instead of one per write call.
+ */
 public class ResourceHandle extends FilesystemHandle {
 
+	/** Default amount of bytes kept in memory for buffered handles. */
+	private static final int DEFAULT_BUFFER_THRESHOLD = 4 * 1024 * 1024;
+
 	private final IFile fFile;
 
+	private final ByteArrayOutputStream fBuffer = new ByteArrayOutputStream();
+	private int fBufferThreshold = DEFAULT_BUFFER_THRESHOLD;
+	private File fSpillFile = null;
+	private OutputStream fSpillOutput = null;
+	private boolean fBufferedData = false;
+
 	public ResourceHandle(final IFile file, final int mode) {
-		super(null, mode);
+		this(file, mode, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            workspace file to access
+	 * @param mode
+	 *            access mode
+	 * @param charset
+	 *            charset for text data or <code>null</code> to use the charset of the workspace file
+	 */
+	public ResourceHandle(final IFile file, final int mode, final Charset charset) {
+		super(null, mode, charset);
 
 		fFile = file;
 	}
 
 	@Override
-	protected BufferedReader createReader() throws Exception {
-		return new BufferedReader(new InputStreamReader(fFile.getContents()));
+	protected InputStream createInputStream() throws Exception {
+		return fFile.getContents();
+	}
+
+	@Override
+	protected Charset getDefaultCharset() {
+		try {
+			return Charset.forName(fFile.getCharset());
+		} catch (final Exception e) {
+			// charset not available, fall back to platform default
+			return super.getDefaultCharset();
+		}
 	}
 
 	@Override
 	public boolean write(final String data) {
-		return write(data.getBytes());
+		return write(data.getBytes(getCharset()));
 	}
 
 	@Override
 	public boolean write(final byte[] data) {
+		if (isBuffered())
+			return buffer(data);
+
+		return commit(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Set the amount of bytes kept in memory for buffered handles. Exceeding data gets stored in a temporary file until the handle is flushed.
+	 *
+	 * @param threshold
+	 *            memory threshold in bytes
+	 */
+	public void setBufferThreshold(final int threshold) {
+		fBufferThreshold = threshold;
+	}
+
+	private boolean buffer(final byte[] data) {
+		try {
+			// a failed flush closed the spill file, continue to append to it
+			if ((fSpillFile != null) && (fSpillOutput == null))
+				fSpillOutput = new BufferedOutputStream(new FileOutputStream(fSpillFile, true));
+
+			if (fSpillOutput != null)
+				fSpillOutput.write(data);
+
+			else {
+				fBuffer.write(data);
+
+				if (fBuffer.size() > fBufferThreshold) {
+					// move buffered data to a temporary file
+					fSpillFile = File.createTempFile("ease_buffer_", null);
+					fSpillOutput = new BufferedOutputStream(new FileOutputStream(fSpillFile));
+					fBuffer.writeTo(fSpillOutput);
+					fBuffer.reset();
+				}
+			}
+
+			fBufferedData = true;
+			return true;
+
+		} catch (final IOException e) {
+		}
+
+		return false;
+	}
+
+	/**
+	 * Write data to the workspace file. Replaces the file content on the first commit in write mode and appends data afterwards.
+	 *
+	 * @param data
+	 *            data to commit
+	 * @return <code>true</code> on success
+	 */
+	private boolean commit(final InputStream data) {
 		try {
 			// replace file content or append content
 			if ((getMode() & APPEND) == APPEND) {
 				// append data
-				fFile.appendContents(new ByteArrayInputStream(data), false, false, null);
+				fFile.appendContents(data, false, false, null);
 
 			} else {
 				// replace content
-				fFile.setContents(new ByteArrayInputStream(data), false, false, null);
+				fFile.setContents(data, false, false, null);
 				setMode(getMode() | APPEND);
 			}
 
@@ -62,6 +161,89 @@ public class ResourceHandle extends FilesystemHandle {
 		return false;
 	}
 
+	/**
+	 * Commit buffered data to the workspace file. Buffered data is kept when the commit fails, so a later flush may retry.
+	 *
+	 * @return <code>true</code> when all buffered data got committed
+	 */
+	@Override
+	public boolean flush() {
+		if (!fBufferedData)
+			return true;
+
+		try {
+			final InputStream data;
+			if (fSpillFile != null) {
+				if (fSpillOutput != null) {
+					fSpillOutput.close();
+					fSpillOutput = null;
+				}
+
+				data = new FileInputStream(fSpillFile);
+			} else
+				data = new ByteArrayInputStream(fBuffer.toByteArray());
+
+			final boolean committed;
+			try {
+				committed = commit(data);
+			} finally {
+				data.close();
+			}
+
+			if (committed)
+				discardBuffer();
+
+			return committed;
+
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Drop buffered data without committing it.
+	 */
+	private void discardBuffer() {
+		fBuffer.reset();
+		fBufferedData = false;
+
+		if (fSpillOutput != null) {
+			try {
+				fSpillOutput.close();
+			} catch (final IOException e) {
+				// ignore, file gets deleted anyway
+			}
+			fSpillOutput = null;
+		}
+
+		if (fSpillFile != null) {
+			fSpillFile.delete();
+			fSpillFile = null;
+		}
+	}
+
+	/**
+	 * Commit buffered data and close the handle. When the commit fails, buffered data is discarded and the failure is logged.
+	 */
+	@Override
+	public void close() {
+		if (!flush())
+			Logger.error(PluginConstants.PLUGIN_ID, "Could not commit buffered data to \"" + fFile.getFullPath() + "\", data got discarded");
+
+		// remove temporary files right away instead of waiting for the finalizer
+		discardBuffer();
+
+		super.close();
+	}
+
+	@Override
+	protected void finalize() throws Throwable {
+		// never commit from the finalizer thread as committing needs workspace locks. Unflushed data of handles that were not closed is lost
+		discardBuffer();
+
+		super.finalize();
+	}
+
 	@Override
 	public boolean exists() {
 		return fFile.exists();
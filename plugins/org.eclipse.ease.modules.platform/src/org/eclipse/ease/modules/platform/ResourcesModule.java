@@ -11,15 +11,21 @@
 package org.eclipse.ease.modules.platform;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -29,13 +35,21 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.ease.IScriptEngine;
 import org.eclipse.ease.Logger;
 import org.eclipse.ease.modules.AbstractScriptModule;
 import org.eclipse.ease.modules.ScriptParameter;
@@ -76,25 +90,28 @@ public class ResourcesModule extends AbstractScriptModule {
 	@WrapToScript
 	public static final int APPEND = IFileHandle.APPEND;
 
+	/** Access modifier for memory mapped read mode (8). Combine with {@module #READ} to read large local files without copying them to the heap. */
+	@WrapToScript
+	public static final int MAPPED = IFileHandle.MAPPED;
+
 	/**
-	 * Monitor to wake up listeners when done.
+	 * Access modifier for buffered write mode (16). Combine with {@module #WRITE} or {@module #APPEND} to collect written data and commit it on
+	 * {@module #flushFile(IFileHandle)} or {@module #closeFile(IFileHandle)}. Workspace files then get updated in a single operation.
 	 */
-	private class ProgressMonitor extends NullProgressMonitor {
-		private boolean fDone = false;
+	@WrapToScript
+	public static final int BUFFERED = IFileHandle.BUFFERED;
 
-		@Override
-		public void done() {
-			fDone = true;
+	/** Refresh depth for the resource only (0). */
+	@WrapToScript
+	public static final int DEPTH_ZERO = IResource.DEPTH_ZERO;
 
-			synchronized (this) {
-				notifyAll();
-			}
-		}
+	/** Refresh depth for the resource and its direct members (1). */
+	@WrapToScript
+	public static final int DEPTH_ONE = IResource.DEPTH_ONE;
 
-		public boolean isDone() {
-			return fDone;
-		}
-	}
+	/** Refresh depth for the resource and all its members (2). */
+	@WrapToScript
+	public static final int DEPTH_INFINITE = IResource.DEPTH_INFINITE;
 
 	private static final String LINE_DELIMITER = System.getProperty(Platform.PREF_LINE_SEPARATOR);
 
@@ -202,19 +219,23 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Opens a file from the workspace or the file system. If the file does not exist and we open it for writing, the file is created automatically.
+	 * Opens a file from the workspace or the file system. If the file does not exist and we open it for writing, the file is created automatically. Add
+	 * {@module #MAPPED} to the read mode to access large local files through a memory mapped, read only handle.
 	 *
 	 * @param location
 	 *            file location
 	 * @param mode
-	 *            one of {@module #READ}, {@module #WRITE}, {@module #APPEND}
+	 *            one of {@module #READ}, {@module #WRITE}, {@module #APPEND}, optionally combined with {@module #MAPPED} or {@module #BUFFERED}
+	 * @param charset
+	 *            charset for text data. <code>null</code> uses the workspace file charset or the platform default for file system files
 	 * @return file handle instance to be used for file modification commands
 	 * @throws Exception
 	 *             problems on file access
 	 */
 	@WrapToScript
-	public IFileHandle openFile(final Object location, @ScriptParameter(defaultValue = "1") final int mode) throws Exception {
-		return getFileHandle(location, mode);
+	public IFileHandle openFile(final Object location, @ScriptParameter(defaultValue = "1") final int mode,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String charset) throws Exception {
+		return getFileHandle(location, mode, (charset != null) ? Charset.forName(charset) : null);
 	}
 
 	/**
@@ -230,7 +251,20 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Close a file. Releases system resources bound by an open file.
+	 * Commit data written to a file handle. Only needed for handles opened in {@module #BUFFERED} mode.
+	 *
+	 * @param handle
+	 *            handle to be flushed
+	 * @return <code>true</code> on success
+	 */
+	@WrapToScript
+	public static boolean flushFile(final IFileHandle handle) {
+		return handle.flush();
+	}
+
+	/**
+	 * Close a file. Releases system resources bound by an open file. Data buffered in {@module #BUFFERED} mode gets committed before the file is closed. If
+	 * the commit fails, buffered data is discarded and the failure is logged. Use {@module #flushFile(IFileHandle)} before closing to detect such failures.
 	 *
 	 * @param handle
 	 *            handle to be closed
@@ -241,8 +275,8 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Read data from a file. To repeatedly read from a file retrieve a {@link IFileHandle} first using {@module #openFile(String, int)} and use the handle for
-	 * <i>location</i>.
+	 * Read data from a file. To repeatedly read from a file retrieve a {@link IFileHandle} first using {@module #openFile(Object, int, String)} and use the
+	 * handle for <i>location</i>.
 	 *
 	 * @param location
 	 *            file location, file handle or file instance
@@ -268,9 +302,10 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Copies a file from location to targetLocation.
+	 * Copies a file from location to targetLocation. Content is streamed, so binary files and files larger than the available memory are supported. An
+	 * existing target file gets overwritten.
 	 *
-	 * @param location
+	 * @param sourceLocation
 	 *            file location, file handle or file instance
 	 * @param targetLocation
 	 *            file location, file handle or file instance
@@ -279,10 +314,53 @@ public class ResourcesModule extends AbstractScriptModule {
 	 */
 	@WrapToScript
 	public void copyFile(final Object sourceLocation, final Object targetLocation) throws Exception {
+		final Object source = resolveCopyLocation(sourceLocation, true);
+		if (source == null)
+			throw new IOException("File \"" + sourceLocation + "\" not found");
 
-		final IFileHandle handle = writeFile(targetLocation, readFile(sourceLocation, -1), IFileHandle.WRITE);
-		if (handle != null)
-			handle.close();
+		final Object target = resolveCopyLocation(targetLocation, false);
+		if (target == null)
+			throw new IOException("Invalid target location \"" + targetLocation + "\"");
+
+		FileCopier.copy(source, target);
+	}
+
+	/**
+	 * Copies a folder with all its content from location to targetLocation. Files are copied in parallel. When the target is located in the workspace it gets
+	 * refreshed once after all files are copied.
+	 *
+	 * @param sourceLocation
+	 *            folder location or folder instance
+	 * @param targetLocation
+	 *            folder location or folder instance
+	 * @param parallelism
+	 *            amount of files to copy in parallel
+	 * @return amount of copied files
+	 * @throws Exception
+	 *             problems on file access
+	 */
+	@WrapToScript
+	public int copyFolder(final Object sourceLocation, final Object targetLocation, @ScriptParameter(defaultValue = "4") final int parallelism)
+			throws Exception {
+		final Object source = ResourceTools.resolveFolder(sourceLocation, getScriptEngine().getExecutedFile(), true);
+		if (source == null)
+			throw new IOException("Folder \"" + sourceLocation + "\" not found");
+
+		final Object target = ResourceTools.resolveFolder(targetLocation, getScriptEngine().getExecutedFile(), false);
+		if (target == null)
+			throw new IOException("Invalid target location \"" + targetLocation + "\"");
+
+		return FileCopier.copyFolder(source, target, parallelism);
+	}
+
+	private Object resolveCopyLocation(final Object location, final boolean exists) {
+		if (location instanceof IFileHandle) {
+			// make sure pending data is visible to the copy operation
+			((IFileHandle) location).flush();
+			return ((IFileHandle) location).getFile();
+		}
+
+		return ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), exists);
 	}
 
 	/**
@@ -343,8 +421,8 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Read a single line from a file. To repeatedly read from a file retrieve a {@link IFileHandle} first using {@module #openFile(String, int)} and use the
-	 * handle for <i>location</i>.
+	 * Read a single line from a file. To repeatedly read from a file retrieve a {@link IFileHandle} first using {@module #openFile(Object, int, String)} and
+	 * use the handle for <i>location</i>. To process all lines of a file use {@module #iterateLines(Object, String, int)} instead.
 	 *
 	 * @param location
 	 *            file location, file handle or file instance
@@ -367,6 +445,70 @@ public class ResourcesModule extends AbstractScriptModule {
 		throw new IOException("File \"" + location + "\" not found");
 	}
 
+	/**
+	 * Get a lazy iterator over all lines of a file. Lines are read on demand from a single reader, so huge files can be processed with constant memory. The
+	 * file is closed automatically when the last line was read. Call <i>close()</i> on the iterator to release the file early.
+	 *
+	 * @scriptExample iterateLines("workspace://my project/log.txt") to get an iterator over all lines of log.txt
+	 *
+	 * @param location
+	 *            file location or file instance
+	 * @param charset
+	 *            charset to decode the file with. <code>null</code> uses the workspace file charset or the platform default for file system files
+	 * @param bufferSize
+	 *            size of the read buffer in characters
+	 * @return line iterator
+	 * @throws Exception
+	 *             problems on file access
+	 */
+	@WrapToScript
+	public LineIterator iterateLines(final Object location, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String charset,
+			@ScriptParameter(defaultValue = "8192") final int bufferSize) throws Exception {
+		final Object file = ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), true);
+
+		if (file instanceof IFile) {
+			final String encoding = (charset != null) ? charset : ((IFile) file).getCharset();
+			return new LineIterator(new InputStreamReader(((IFile) file).getContents(), encoding), bufferSize);
+
+		} else if (file instanceof File) {
+			final InputStream input = new FileInputStream((File) file);
+			final Reader reader = (charset != null) ? new InputStreamReader(input, charset) : new InputStreamReader(input);
+			return new LineIterator(reader, bufferSize);
+		}
+
+		throw new IOException("File \"" + location + "\" not found");
+	}
+
+	/**
+	 * Follow a growing file like <i>tail -f</i> does. Only data appended after the last read is delivered. Data can be pulled using <i>readLines()</i> or
+	 * <i>readBytes()</i> on the returned handle or pushed to a listener. Local files are watched by the file system, workspace files by resource change
+	 * events. Call <i>close()</i> on the returned handle to stop following the file.
+	 *
+	 * @scriptExample tail = tailFile("/var/log/build.log"); while (tail.waitForData(0)) print(tail.readLines()); to print lines as soon as they get appended
+	 *
+	 * @param location
+	 *            file location or file instance
+	 * @param listener
+	 *            listener notified from a background thread whenever data was appended
+	 * @param charset
+	 *            charset to decode lines with. <code>null</code> uses the workspace file charset or the platform default for file system files
+	 * @param fromEnd
+	 *            <code>true</code> to skip existing content, <code>false</code> to deliver the whole file first
+	 * @return file tail handle
+	 * @throws Exception
+	 *             problems on file access
+	 */
+	@WrapToScript
+	public FileTail tailFile(final Object location, @ScriptParameter(defaultValue = ScriptParameter.NULL) final IFileTailListener listener,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String charset, @ScriptParameter(defaultValue = "true") final boolean fromEnd)
+			throws Exception {
+		final Object file = ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), true);
+		if (file == null)
+			throw new IOException("File \"" + location + "\" not found");
+
+		return new FileTail(file, listener, (charset != null) ? Charset.forName(charset) : null, fromEnd);
+	}
+
 	/**
 	 * Write data to a file. When not using an {@link IFileHandle}, previous file content will be overridden. Files that do not exist yet will be automatically
 	 * created. After the write operation the file remains open. It needs to be closed explicitly using the {@module #closeFile(IFileHandle)} command
@@ -424,18 +566,29 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	private IFileHandle getFileHandle(final Object location, final int mode) throws Exception {
+		return getFileHandle(location, mode, null);
+	}
+
+	private IFileHandle getFileHandle(final Object location, final int mode, final Charset charset) throws Exception {
 		IFileHandle handle = null;
 		if (location instanceof IFileHandle)
 			handle = (IFileHandle) location;
 
-		else if (location instanceof File)
-			handle = new FilesystemHandle((File) location, mode);
+		else if (location instanceof File) {
+			if ((mode & IFileHandle.MAPPED) == IFileHandle.MAPPED)
+				handle = new MappedFileHandle(location, (File) location, charset);
+			else
+				handle = new FilesystemHandle((File) location, mode, charset);
 
-		else if (location instanceof IFile)
-			handle = new ResourceHandle((IFile) location, mode);
+		} else if (location instanceof IFile) {
+			final IPath localPath = ((IFile) location).getLocation();
+			if (((mode & IFileHandle.MAPPED) == IFileHandle.MAPPED) && (localPath != null))
+				handle = new MappedFileHandle(location, localPath.toFile(), (charset != null) ? charset : Charset.forName(((IFile) location).getCharset()));
+			else
+				handle = new ResourceHandle((IFile) location, mode, charset);
 
-		else if (location != null)
-			handle = getFileHandle(ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), mode == IFileHandle.READ), mode);
+		} else if (location != null)
+			handle = getFileHandle(ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), isReadMode(mode)), mode, charset);
 
 		if ((handle != null) && (!handle.exists())) {
 			// create file if it does not exist yet
@@ -445,6 +598,17 @@ public class ResourcesModule extends AbstractScriptModule {
 		return handle;
 	}
 
+	/**
+	 * Check whether a file access mode is read only.
+	 *
+	 * @param mode
+	 *            file access mode
+	 * @return <code>true</code> when no write access is requested
+	 */
+	private static boolean isReadMode(final int mode) {
+		return (mode & (IFileHandle.WRITE | IFileHandle.APPEND)) == 0;
+	}
+
 	/**
 	 * Opens a file dialog. Depending on the <i>rootFolder</i> a workspace dialog or a file system dialog will be used. If the folder cannot be located, the
 	 * workspace root folder is used by default. When type is set to {@module #WRITE} or {@module #APPEND} a save dialog will be shown instead of the default
@@ -614,7 +778,9 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Return files matching a certain pattern.
+	 * Return files matching a certain pattern. Folders are searched in parallel.
+	 *
+	 * @scriptExample findFiles("*.java", getProject("my project"), true, ["&#42;&#42;/bin/&#42;&#42;"]) to find all java files, skipping the bin folder
 	 *
 	 * @param pattern
 	 *            search pattern: use * and ? as wildcards. If the pattern starts with '^' then a regular expression can be used.
@@ -622,72 +788,83 @@ public class ResourcesModule extends AbstractScriptModule {
 	 *            root folder to start your search from. <code>null</code> for workspace root
 	 * @param recursive
 	 *            searches subfolders when set to <code>true</code>
+	 * @param excludes
+	 *            globs of root folder relative paths to skip, eg. <i>&#42;&#42;/target/&#42;&#42;</i>. Matching folders are not traversed at all
 	 * @return An array of all matching files
 	 */
 	@WrapToScript
 	public Object[] findFiles(final String pattern, @ScriptParameter(defaultValue = ScriptParameter.NULL) final Object rootFolder,
-			@ScriptParameter(defaultValue = "true") final boolean recursive) {
+			@ScriptParameter(defaultValue = "true") final boolean recursive, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String[] excludes) {
 
-		// evaluate expression to look for
-		Pattern regExp;
-		if (!pattern.startsWith("^"))
-			regExp = Pattern.compile(pattern.replace("*", ".*").replace('?', '.'));
-		else
-			regExp = Pattern.compile(pattern);
+		return findFilesAsync(pattern, rootFolder, recursive, excludes).toArray();
+	}
 
-		final List<Object> result = new ArrayList<Object>();
+	/**
+	 * Start a search for files matching a certain pattern. The search runs in the background, matches can be consumed from the returned iterator while the
+	 * search is still in progress.
+	 *
+	 * @param pattern
+	 *            search pattern: use * and ? as wildcards. If the pattern starts with '^' then a regular expression can be used.
+	 * @param rootFolder
+	 *            root folder to start your search from. <code>null</code> for workspace root
+	 * @param recursive
+	 *            searches subfolders when set to <code>true</code>
+	 * @param excludes
+	 *            globs of root folder relative paths to skip, eg. <i>&#42;&#42;/target/&#42;&#42;</i>. Matching folders are not traversed at all
+	 * @return iterator providing matching files as they are found
+	 */
+	@WrapToScript
+	public FileSearch findFilesAsync(final String pattern, @ScriptParameter(defaultValue = ScriptParameter.NULL) final Object rootFolder,
+			@ScriptParameter(defaultValue = "true") final boolean recursive, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String[] excludes) {
 
 		// locate root folder to start with
 		Object root = ResourceTools.resolveFolder(rootFolder, getScriptEngine().getExecutedFile(), true);
 		if (root == null)
 			root = getWorkspace();
 
-		if (root instanceof IContainer) {
-			// search in workspace
-			final Collection<IContainer> toVisit = new HashSet<IContainer>();
-			toVisit.add((IContainer) root);
-
-			do {
-				final IContainer container = toVisit.iterator().next();
-				toVisit.remove(container);
-
-				try {
-					for (final IResource child : container.members()) {
-						if (child instanceof IFile) {
-							if (regExp.matcher(child.getName()).matches())
-								result.add(child);
-
-						} else if ((recursive) && (child instanceof IContainer))
-							toVisit.add((IContainer) child);
-					}
-				} catch (final CoreException e) {
-					// cannot parse container, skip and continue with next one
-				}
-
-			} while (!toVisit.isEmpty());
-
-		} else if (root instanceof File) {
-			// search in file system
-			final Collection<File> toVisit = new HashSet<File>();
-			toVisit.add((File) root);
-
-			do {
-				final File container = toVisit.iterator().next();
-				toVisit.remove(container);
+		if ((recursive) && (getWorkspace().equals(root)) && (WorkspaceFileIndex.isActive()))
+			// answer from file index
+			return new FileSearch(WorkspaceFileIndex.getInstance().find(FileSearch.compileNamePattern(pattern), FileSearch.compileGlobs(excludes)));
 
-				for (final File child : container.listFiles()) {
-					if (child.isFile()) {
-						if (regExp.matcher(child.getName()).matches())
-							result.add(child);
+		return new FileSearch(root, FileSearch.compileNamePattern(pattern), FileSearch.compileGlobs(excludes), recursive);
+	}
 
-					} else if ((recursive) && (child.isDirectory()))
-						toVisit.add(child);
-				}
+	/**
+	 * Enable or disable the workspace file index. When enabled, all workspace file names are kept in memory and updated on resource changes.
+	 * {@module #findFiles(String, Object, boolean, String[])} searches on the whole workspace are then answered from the index without traversing the
+	 * workspace.
+	 *
+	 * @param enable
+	 *            <code>true</code> to build and activate the index, <code>false</code> to dispose it
+	 */
+	@WrapToScript
+	public static void enableFileIndex(@ScriptParameter(defaultValue = "true") final boolean enable) {
+		if (enable)
+			WorkspaceFileIndex.getInstance();
+		else
+			WorkspaceFileIndex.dispose();
+	}
 
-			} while (!toVisit.isEmpty());
-		}
+	/**
+	 * Rebuild the workspace file index from scratch. Activates the index if it is not active yet.
+	 */
+	@WrapToScript
+	public static void rebuildFileIndex() {
+		if (WorkspaceFileIndex.isActive())
+			WorkspaceFileIndex.getInstance().rebuild();
+		else
+			WorkspaceFileIndex.getInstance();
+	}
 
-		return result.toArray(new Object[result.size()]);
+	/**
+	 * Get statistics of the workspace file index. Provides the amount of indexed <i>files</i> and distinct file <i>names</i>, the <i>buildTime</i> in [ms],
+	 * the timestamp of the <i>lastBuild</i> and the amount of processed resource <i>updates</i>.
+	 *
+	 * @return index statistics or <code>null</code> when the index is not active
+	 */
+	@WrapToScript
+	public static Map<String, Object> getFileIndexStatistics() {
+		return (WorkspaceFileIndex.isActive()) ? WorkspaceFileIndex.getInstance().getStatistics() : null;
 	}
 
 	/**
@@ -726,11 +903,14 @@ public class ResourcesModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Refresh a given resource and all its child elements.
+	 * Refresh a given resource and its child elements. The call blocks until the refresh is done. Use {@module #refreshResourcesAsync(Object, int, String)}
+	 * to continue script execution while the refresh is running.
 	 *
-	 * @scriptExample updateResource(getProject("my project")) to update the project and all its subfolders
+	 * @scriptExample refreshResource(getProject("my project")) to update the project and all its subfolders
 	 * @param resource
 	 *            {@link IFile}, {@link IFolder}, {@link IProject} or workspace root to update
+	 * @param depth
+	 *            refresh depth, one of {@module #DEPTH_ZERO}, {@module #DEPTH_ONE}, {@module #DEPTH_INFINITE}
 	 * @throws CoreException
 	 *             if this method fails. Reasons include:
 	 *             <ul>
@@ -739,22 +919,70 @@ public class ResourcesModule extends AbstractScriptModule {
 	 *             </ul>
 	 */
 	@WrapToScript
-	public void refreshResource(final IResource resource) throws CoreException {
+	public void refreshResource(final IResource resource, @ScriptParameter(defaultValue = "2") final int depth) throws CoreException {
+		resource.refreshLocal(depth, new NullProgressMonitor());
+	}
 
-		final ProgressMonitor monitor = new ProgressMonitor();
-		resource.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+	/**
+	 * Refresh multiple resources in the background. All resources are refreshed within a single workspace job. The returned job allows to query the progress
+	 * or to wait for completion using <i>waitForCompletion(timeout)</i>.
+	 *
+	 * @scriptExample job = refreshResourcesAsync([getProject("a"), getProject("b")], DEPTH_INFINITE, "print('refresh done')") to refresh two projects and get
+	 *                notified when done
+	 * @param resources
+	 *            single resource, resource location or an array/collection of them
+	 * @param depth
+	 *            refresh depth, one of {@module #DEPTH_ZERO}, {@module #DEPTH_ONE}, {@module #DEPTH_INFINITE}
+	 * @param callback
+	 *            script code to be executed by the current script engine once the refresh is done
+	 * @return scheduled refresh job
+	 * @throws IllegalArgumentException
+	 *             when a resource cannot be resolved in the workspace
+	 */
+	@WrapToScript
+	public RefreshJob refreshResourcesAsync(final Object resources, @ScriptParameter(defaultValue = "2") final int depth,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String callback) {
+		final RefreshJob job = new RefreshJob(resolveResources(resources), depth);
 
-		while (!monitor.isDone()) {
-			synchronized (monitor) {
-				try {
-					// check every second for completion
-					System.out.println("waiting");
-					monitor.wait(1000);
-					System.out.println("wakeup");
-				} catch (final InterruptedException e) {
+		if (callback != null) {
+			final IScriptEngine engine = getScriptEngine();
+			job.addJobChangeListener(new JobChangeAdapter() {
+				@Override
+				public void done(final IJobChangeEvent event) {
+					engine.executeAsync(callback);
 				}
-			}
+			});
 		}
+
+		job.schedule();
+		return job;
+	}
+
+	private Collection<IResource> resolveResources(final Object resources) {
+		final Collection<Object> locations = new ArrayList<Object>();
+		if (resources instanceof Object[])
+			locations.addAll(Arrays.asList((Object[]) resources));
+		else if (resources instanceof Collection<?>)
+			locations.addAll((Collection<?>) resources);
+		else
+			locations.add(resources);
+
+		final Collection<IResource> result = new ArrayList<IResource>();
+		for (final Object location : locations) {
+			Object resource = location;
+			if (!(resource instanceof IResource))
+				resource = ResourceTools.resolveFolder(location, getScriptEngine().getExecutedFile(), true);
+
+			if (!(resource instanceof IResource))
+				resource = ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), true);
+
+			if (!(resource instanceof IResource))
+				throw new IllegalArgumentException("\"" + location + "\" is not a workspace resource");
+
+			result.add((IResource) resource);
+		}
+
+		return result;
 	}
 
 	/**
@@ -796,22 +1024,138 @@ public class ResourcesModule extends AbstractScriptModule {
 			@ScriptParameter(defaultValue = "true") final boolean permanent) throws CoreException {
 		Object file = ResourceTools.resolveFile(location, getScriptEngine().getExecutedFile(), true);
 
-		if (file instanceof IFile) {
+		if (file instanceof IFile)
+			MarkerUtilities.createMarker((IFile) file, createMarkerAttributes(severity, lineNumber, message, permanent), type);
+	}
+
+	/**
+	 * Create multiple problem markers within a single workspace operation. Listeners and decorators get notified only once for the whole batch. Each marker
+	 * is described either by a map containing the keys <i>severity</i>, <i>location</i>, <i>lineNumber</i> and <i>message</i> or by an array or list
+	 * holding these values in exactly that order. <i>lineNumber</i> and <i>message</i> may be <code>null</code>, a missing severity creates an info marker.
+	 * Invalid descriptions are reported on the error stream and skipped, the remaining markers are still created.
+	 *
+	 * @scriptExample createProblemMarkers([["error", "workspace://project/file.txt", 3, "invalid value"], ["warning", "workspace://project/file.txt", 7,
+	 *                "deprecated call"]]) to create two markers at once
+	 * @param markers
+	 *            array or collection of marker descriptions
+	 * @param type
+	 *            marker type to create, needs to match an existing type
+	 * @param permanent
+	 *            <code>true</code> for permanent markers, <code>false</code> for temporary markers
+	 * @param replace
+	 *            <code>true</code> to delete existing markers of <i>type</i> on all affected files before adding the new ones
+	 * @return amount of created markers
+	 * @throws CoreException
+	 *             when markers cannot be created
+	 */
+	@WrapToScript
+	public int createProblemMarkers(final Object markers, @ScriptParameter(defaultValue = "org.eclipse.core.resources.problemmarker") final String type,
+			@ScriptParameter(defaultValue = "true") final boolean permanent, @ScriptParameter(defaultValue = "false") final boolean replace)
+			throws CoreException {
+
+		final Collection<Object> specifications = new ArrayList<Object>();
+		if (markers instanceof Object[])
+			specifications.addAll(Arrays.asList((Object[]) markers));
+		else if (markers instanceof Collection<?>)
+			specifications.addAll((Collection<?>) markers);
+		else
+			throw new IllegalArgumentException("Markers need to be provided as array or collection");
+
+		// resolve all files before touching the workspace, invalid descriptions are reported and skipped
+		final Map<IFile, List<Map<String, Object>>> markersByFile = new LinkedHashMap<IFile, List<Map<String, Object>>>();
+		int index = 0;
+		for (final Object specification : specifications) {
+			try {
+				final Object[] values;
+				if (specification instanceof Map<?, ?>)
+					values = new Object[] { ((Map<?, ?>) specification).get("severity"), ((Map<?, ?>) specification).get("location"),
+							((Map<?, ?>) specification).get("lineNumber"), ((Map<?, ?>) specification).get("message") };
+				else if ((specification instanceof Object[]) && (((Object[]) specification).length >= 4))
+					values = (Object[]) specification;
+				else if ((specification instanceof List<?>) && (((List<?>) specification).size() >= 4))
+					// script arrays, e.g. NativeArray for Rhino or PyList for Jython
+					values = ((List<?>) specification).toArray();
+				else
+					throw new IllegalArgumentException("expected map, array or list of 4 values");
+
+				final Object file = ResourceTools.resolveFile(values[1], getScriptEngine().getExecutedFile(), true);
+				if (!(file instanceof IFile))
+					throw new IllegalArgumentException("\"" + values[1] + "\" is not a workspace file");
+
+				// null values result in markers without line number or message
+				Integer lineNumber = null;
+				if (values[2] instanceof Number)
+					lineNumber = ((Number) values[2]).intValue();
+				else if (values[2] != null)
+					lineNumber = Integer.parseInt(values[2].toString().trim());
+
+				final Map<String, Object> attributes = createMarkerAttributes((values[0] != null) ? values[0].toString() : null, lineNumber,
+						(values[3] != null) ? values[3].toString() : null, permanent);
+
+				List<Map<String, Object>> fileMarkers = markersByFile.get(file);
+				if (fileMarkers == null) {
+					fileMarkers = new ArrayList<Map<String, Object>>();
+					markersByFile.put((IFile) file, fileMarkers);
+				}
+
+				fileMarkers.add(attributes);
+
+			} catch (final IllegalArgumentException e) {
+				// also covers NumberFormatException
+				getScriptEngine().getErrorStream().println("Invalid marker description at index " + index + " (" + specification + "): " + e.getMessage());
+			}
+
+			index++;
+		}
+
+		if (markersByFile.isEmpty())
+			return 0;
+
+		// lock affected files only
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		final List<ISchedulingRule> rules = new ArrayList<ISchedulingRule>();
+		for (final IFile file : markersByFile.keySet())
+			rules.add(workspace.getRuleFactory().markerRule(file));
+
+		final int[] created = new int[] { 0 };
+		workspace.run(new IWorkspaceRunnable() {
 
-			int intSeverity = IMarker.SEVERITY_INFO;
-			if ("error".equals(severity))
-				intSeverity = IMarker.SEVERITY_ERROR;
+			@Override
+			public void run(final IProgressMonitor monitor) throws CoreException {
+				for (final Entry<IFile, List<Map<String, Object>>> entry : markersByFile.entrySet()) {
+					if (replace)
+						entry.getKey().deleteMarkers(type, true, IResource.DEPTH_ZERO);
 
-			if ("warning".equals(severity))
-				intSeverity = IMarker.SEVERITY_WARNING;
+					for (final Map<String, Object> attributes : entry.getValue()) {
+						entry.getKey().createMarker(type).setAttributes(attributes);
+						created[0]++;
+					}
+				}
+			}
+		}, MultiRule.combine(rules.toArray(new ISchedulingRule[rules.size()])), IWorkspace.AVOID_UPDATE, new NullProgressMonitor());
+
+		return created[0];
+	}
 
-			final HashMap<String, Object> attributes = new HashMap<String, Object>();
+	private static Map<String, Object> createMarkerAttributes(final String severity, final Integer lineNumber, final String message,
+			final boolean permanent) {
+		int intSeverity = IMarker.SEVERITY_INFO;
+		if ("error".equals(severity))
+			intSeverity = IMarker.SEVERITY_ERROR;
+
+		if ("warning".equals(severity))
+			intSeverity = IMarker.SEVERITY_WARNING;
+
+		final HashMap<String, Object> attributes = new HashMap<String, Object>();
+		if (lineNumber != null)
 			attributes.put(IMarker.LINE_NUMBER, lineNumber);
-			attributes.put(IMarker.SEVERITY, intSeverity);
+
+		attributes.put(IMarker.SEVERITY, intSeverity);
+		if (message != null)
 			attributes.put(IMarker.MESSAGE, message);
-			attributes.put(IMarker.TRANSIENT, !permanent);
 
-			MarkerUtilities.createMarker((IFile) file, attributes, type);
-		}
+		attributes.put(IMarker.TRANSIENT, !permanent);
+
+		return attributes;
 	}
 }
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named, bounded queue to pass objects between script engines. Senders block when the channel is full, receivers block when it is empty. Producers and
+ * consumers use separate locks, so sending and receiving do not contend with each other.
+ */
+public class ScriptChannel {
+
+	/** Registered channels by name. */
+	private static final Map<String, ScriptChannel> fChannels = new ConcurrentHashMap<String, ScriptChannel>();
+
+	/**
+	 * Get a channel by name. Creates the channel if it does not exist yet.
+	 *
+	 * @param name
+	 *            channel name
+	 * @param capacity
+	 *            capacity for a newly created channel
+	 * @return channel instance
+	 */
+	public static synchronized ScriptChannel getChannel(final String name, final int capacity) {
+		ScriptChannel channel = fChannels.get(name);
+		if (channel == null) {
+			channel = new ScriptChannel(name, capacity);
+			fChannels.put(name, channel);
+		}
+
+		return channel;
+	}
+
+	/**
+	 * Get an existing channel by name.
+	 *
+	 * @param name
+	 *            channel name
+	 * @return channel instance or <code>null</code>
+	 */
+	public static ScriptChannel findChannel(final String name) {
+		return fChannels.get(name);
+	}
+
+	/**
+	 * Remove a channel from the registry. Pending items are discarded.
+	 *
+	 * @param name
+	 *            channel name
+	 */
+	public static void removeChannel(final String name) {
+		final ScriptChannel channel = fChannels.remove(name);
+		if (channel != null)
+			channel.fQueue.clear();
+	}
+
+	private final String fName;
+	private final int fCapacity;
+	private final BlockingQueue<Object> fQueue;
+
+	private ScriptChannel(final String name, final int capacity) {
+		fName = name;
+		fCapacity = Math.max(1, capacity);
+		fQueue = new LinkedBlockingQueue<Object>(fCapacity);
+	}
+
+	/**
+	 * Get the channel name.
+	 *
+	 * @return channel name
+	 */
+	public String getName() {
+		return fName;
+	}
+
+	/**
+	 * Get the maximum amount of pending items.
+	 *
+	 * @return channel capacity
+	 */
+	public int getCapacity() {
+		return fCapacity;
+	}
+
+	/**
+	 * Get the amount of pending items.
+	 *
+	 * @return pending items
+	 */
+	public int size() {
+		return fQueue.size();
+	}
+
+	/**
+	 * Send an item. Blocks while the channel is full.
+	 *
+	 * @param item
+	 *            item to send, must not be <code>null</code>
+	 * @param timeout
+	 *            time to wait for free space [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return <code>true</code> when the item got queued
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public boolean send(final Object item, final long timeout) throws InterruptedException {
+		if (item == null)
+			throw new IllegalArgumentException("Cannot send null over channel \"" + fName + "\"");
+
+		if (timeout == 0) {
+			fQueue.put(item);
+			return true;
+		}
+
+		return fQueue.offer(item, Math.max(0, timeout), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Receive a single item. Blocks while the channel is empty.
+	 *
+	 * @param timeout
+	 *            time to wait for an item [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return received item or <code>null</code> when the timeout expired
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public Object receive(final long timeout) throws InterruptedException {
+		if (timeout == 0)
+			return fQueue.take();
+
+		return fQueue.poll(Math.max(0, timeout), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Receive multiple items at once. Waits for the first item only, then takes all items available up to <i>maxItems</i>.
+	 *
+	 * @param maxItems
+	 *            maximum amount of items to receive, negative values for no limit
+	 * @param timeout
+	 *            time to wait for the first item [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return received items, empty when the timeout expired
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public Object[] drain(final int maxItems, final long timeout) throws InterruptedException {
+		final List<Object> items = new ArrayList<Object>();
+		if (maxItems == 0)
+			return new Object[0];
+
+		final Object first = receive(timeout);
+		if (first != null) {
+			items.add(first);
+			fQueue.drainTo(items, (maxItems < 0) ? Integer.MAX_VALUE : maxItems - 1);
+		}
+
+		return items.toArray();
+	}
+}
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.ease.IExecutionListener;
+import org.eclipse.ease.IScriptEngine;
+import org.eclipse.ease.Script;
+import org.eclipse.ease.ScriptResult;
+import org.eclipse.ease.service.EngineDescription;
+
+/**
+ * Pool of running script engines for a single engine type. Pooled engines do not terminate when idle, so engine creation and startup costs are paid once
+ * per engine instead of once per script. An engine is leased for a single script and returns to the pool as soon as that script is done. Temporary shared
+ * objects of a lease are removed when the engine returns to the pool, further engine state gets reset before each lease.
+ */
+public class ScriptEnginePool implements IExecutionListener {
+
+	/** Default amount of idle engines kept per pool. */
+	public static final int DEFAULT_SIZE = 4;
+
+	/** Pools by engine ID. */
+	private static final Map<String, ScriptEnginePool> fPools = new ConcurrentHashMap<String, ScriptEnginePool>();
+
+	/**
+	 * Get the pool for a dedicated engine type. Pools are created on first access.
+	 *
+	 * @param engineID
+	 *            engine ID
+	 * @return engine pool
+	 */
+	public static synchronized ScriptEnginePool getPool(final String engineID) {
+		ScriptEnginePool pool = fPools.get(engineID);
+		if (pool == null) {
+			pool = new ScriptEnginePool(engineID);
+			fPools.put(engineID, pool);
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Terminate idle engines of all pools. Pools are recreated on their next access.
+	 */
+	public static synchronized void disposeAll() {
+		for (final ScriptEnginePool pool : fPools.values())
+			pool.dispose();
+
+		fPools.clear();
+	}
+
+	/**
+	 * Find the lease executing a script.
+	 *
+	 * @param result
+	 *            result of the leased script
+	 * @return lease or <code>null</code> when the script is done
+	 */
+	private static Lease findLease(final ScriptResult result) {
+		for (final ScriptEnginePool pool : fPools.values()) {
+			for (final Lease lease : pool.fLeases.values()) {
+				if (lease.fResult == result)
+					return lease;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Wait for a script executed on a pooled engine to finish. Other scripts executed on the same engine later on are not considered.
+	 *
+	 * @param result
+	 *            result returned by {@link #execute(IScriptEngine, Object)}
+	 * @param timeout
+	 *            time to wait [ms], 0 to wait endlessly
+	 * @return <code>true</code> when the script is done
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	public static boolean join(final ScriptResult result, final long timeout) throws InterruptedException {
+		final Lease lease = findLease(result);
+		if (lease == null)
+			return true;
+
+		if (timeout <= 0) {
+			lease.fDone.await();
+			return true;
+		}
+
+		return lease.fDone.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Check whether a script executed on a pooled engine is still running.
+	 *
+	 * @param result
+	 *            result returned by {@link #execute(IScriptEngine, Object)}
+	 * @return <code>true</code> while the engine is leased for this script
+	 */
+	public static boolean isRunning(final ScriptResult result) {
+		return findLease(result) != null;
+	}
+
+	/**
+	 * Register a listener to be called once a script executed on a pooled engine is done. Listeners are called immediately when the script is already done.
+	 *
+	 * @param result
+	 *            result returned by {@link #execute(IScriptEngine, Object)}
+	 * @param listener
+	 *            listener to call
+	 */
+	public static void addCompletionListener(final ScriptResult result, final Runnable listener) {
+		final Lease lease = findLease(result);
+		if (lease != null)
+			lease.addListener(listener);
+		else
+			listener.run();
+	}
+
+	/**
+	 * A single script execution on a pooled engine.
+	 */
+	private static class Lease {
+		private final CountDownLatch fDone = new CountDownLatch(1);
+		private final List<Runnable> fListeners = new ArrayList<Runnable>();
+		private volatile ScriptResult fResult = null;
+
+		private synchronized void addListener(final Runnable listener) {
+			if (fDone.getCount() == 0)
+				listener.run();
+			else
+				fListeners.add(listener);
+		}
+
+		private synchronized void complete() {
+			fDone.countDown();
+
+			for (final Runnable listener : fListeners)
+				listener.run();
+
+			fListeners.clear();
+		}
+	}
+
+	private final String fEngineID;
+	private volatile int fMaxSize = DEFAULT_SIZE;
+	private volatile boolean fDisposed = false;
+
+	private final BlockingDeque<IScriptEngine> fIdleEngines = new LinkedBlockingDeque<IScriptEngine>();
+	private final Map<IScriptEngine, Lease> fLeases = new ConcurrentHashMap<IScriptEngine, Lease>();
+
+	private final AtomicLong fHits = new AtomicLong();
+	private final AtomicLong fMisses = new AtomicLong();
+	private final AtomicLong fCreated = new AtomicLong();
+	private final AtomicLong fCreationTime = new AtomicLong();
+
+	private ScriptEnginePool(final String engineID) {
+		fEngineID = engineID;
+	}
+
+	/**
+	 * Set the maximum amount of idle engines kept in this pool. Engines returned to a full pool get terminated.
+	 *
+	 * @param size
+	 *            maximum amount of idle engines
+	 */
+	public void setMaxSize(final int size) {
+		fMaxSize = Math.max(0, size);
+
+		while (fIdleEngines.size() > fMaxSize) {
+			final IScriptEngine engine = fIdleEngines.pollLast();
+			if (engine != null)
+				engine.terminate();
+		}
+	}
+
+	/**
+	 * Start idle engines until <i>count</i> engines are available or the pool is full.
+	 *
+	 * @param count
+	 *            amount of idle engines to provide
+	 */
+	public void prewarm(final int count) {
+		while (fIdleEngines.size() < Math.min(count, fMaxSize))
+			fIdleEngines.add(createEngine());
+	}
+
+	private IScriptEngine createEngine() {
+		final long start = System.nanoTime();
+
+		final EngineDescription description = ScriptingModule.getScriptService().getEngineByID(fEngineID);
+		if (description == null)
+			throw new RuntimeException("No script engine found for ID = \"" + fEngineID + "\"");
+
+		final IScriptEngine engine = description.createEngine();
+		engine.setTerminateOnIdle(false);
+		engine.setCloseStreamsOnTerminate(false);
+		engine.addExecutionListener(this);
+		engine.schedule();
+
+		fCreated.incrementAndGet();
+		fCreationTime.addAndGet(System.nanoTime() - start);
+
+		return engine;
+	}
+
+	/**
+	 * Lease an engine from the pool. Creates a new engine if no idle engine is available. The engine is leased until a script executed via
+	 * {@link #execute(IScriptEngine, Object)} is done.
+	 *
+	 * @return running script engine
+	 */
+	public IScriptEngine acquire() {
+		IScriptEngine engine;
+		while ((engine = fIdleEngines.pollFirst()) != null) {
+			if (!engine.isFinished()) {
+				fHits.incrementAndGet();
+
+				// drop state of the previous lease
+				engine.reset();
+				fLeases.put(engine, new Lease());
+				return engine;
+			}
+		}
+
+		fMisses.incrementAndGet();
+		engine = createEngine();
+		fLeases.put(engine, new Lease());
+		return engine;
+	}
+
+	/**
+	 * Execute a script on a leased engine. The engine returns to the pool once the script is done.
+	 *
+	 * @param engine
+	 *            engine leased by {@link #acquire()}
+	 * @param script
+	 *            script content to execute
+	 * @return script result
+	 */
+	public ScriptResult execute(final IScriptEngine engine, final Object script) {
+		final Lease lease = fLeases.get(engine);
+		if (lease == null)
+			throw new IllegalStateException("Engine is not leased from this pool");
+
+		synchronized (lease) {
+			lease.fResult = engine.executeAsync(script);
+			return lease.fResult;
+		}
+	}
+
+	/**
+	 * Return an engine to the pool.
+	 *
+	 * @param engine
+	 *            engine to release
+	 */
+	private void release(final IScriptEngine engine) {
+		final Lease lease = fLeases.remove(engine);
+
+		// temporary shared objects of the lease would otherwise survive until the engine terminates
+		ScriptStorage.getInstance().releaseOwner(engine);
+
+		if ((!fDisposed) && (!engine.isFinished()) && (fIdleEngines.size() < fMaxSize))
+			fIdleEngines.addLast(engine);
+		else
+			engine.terminate();
+
+		if (lease != null)
+			lease.complete();
+	}
+
+	@Override
+	public void notify(final IScriptEngine engine, final Script script, final int status) {
+		if (status == IExecutionListener.ENGINE_END) {
+			// engine died, e.g. by calling exit()
+			fIdleEngines.remove(engine);
+			final Lease lease = fLeases.remove(engine);
+			if (lease != null)
+				lease.complete();
+
+			engine.removeExecutionListener(this);
+
+		} else if (status == IExecutionListener.SCRIPT_END) {
+			final Lease lease = fLeases.get(engine);
+			if (lease != null) {
+				synchronized (lease) {
+					// only the leased script releases the engine, not scripts included by it
+					if ((lease.fResult != null) && (lease.fResult == script.getResult()))
+						release(engine);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Terminate all idle engines of this pool. Leased engines get terminated once their script is done.
+	 */
+	public void dispose() {
+		fDisposed = true;
+
+		IScriptEngine engine;
+		while ((engine = fIdleEngines.pollFirst()) != null)
+			engine.terminate();
+	}
+
+	/**
+	 * Get pool statistics.
+	 *
+	 * @return map containing pool hits and misses, the amount of created engines, the total and average engine creation time in [ms], the amount of idle and
+	 *         leased engines and the maximum pool size
+	 */
+	public Map<String, Object> getStatistics() {
+		final Map<String, Object> statistics = new HashMap<String, Object>();
+		statistics.put("engineID", fEngineID);
+		statistics.put("hits", fHits.get());
+		statistics.put("misses", fMisses.get());
+		statistics.put("created", fCreated.get());
+		statistics.put("creationTime", TimeUnit.NANOSECONDS.toMillis(fCreationTime.get()));
+		statistics.put("averageCreationTime", (fCreated.get() > 0) ? TimeUnit.NANOSECONDS.toMillis(fCreationTime.get() / fCreated.get()) : 0L);
+		statistics.put("idle", fIdleEngines.size());
+		statistics.put("leased", fLeases.size());
+		statistics.put("maxSize", fMaxSize);
+
+		return statistics;
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.ease.IScriptEngine;
+import org.eclipse.ease.ScriptResult;
+
+/**
+ * Handle to a script submitted by {@link ScriptingModule#submit(Object, String, String, boolean)}. Provides the final result of the script once it is done.
+ * Further scripts may be chained using {@link #then(Object, String, String)}.
+ */
+public class ScriptFuture implements Future<Object> {
+
+	private final ScriptingModule fModule;
+	private final boolean fPooled;
+	private final CountDownLatch fDone = new CountDownLatch(1);
+	private final List<Runnable> fContinuations = new ArrayList<Runnable>();
+
+	private volatile IScriptEngine fEngine = null;
+	private volatile ScriptResult fScriptResult = null;
+	private volatile boolean fCanceled = false;
+
+	private Object fResult = null;
+	private Throwable fException = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param module
+	 *            module used to submit chained scripts
+	 * @param pooled
+	 *            <code>true</code> when scripts run on pooled engines, inherited by chained scripts
+	 */
+	ScriptFuture(final ScriptingModule module, final boolean pooled) {
+		fModule = module;
+		fPooled = pooled;
+	}
+
+	/**
+	 * Called when the script got started.
+	 *
+	 * @param engine
+	 *            engine executing the script
+	 * @param result
+	 *            result of the started script
+	 */
+	void started(final IScriptEngine engine, final ScriptResult result) {
+		fScriptResult = result;
+		fEngine = engine;
+
+		if (fCanceled)
+			terminateScript();
+	}
+
+	/**
+	 * Terminate the running script. Pooled engines are only touched while they still execute this script, as they might run a script of another caller
+	 * afterwards.
+	 */
+	private void terminateScript() {
+		final IScriptEngine engine = fEngine;
+		if ((engine != null) && ((!fPooled) || (ScriptEnginePool.isRunning(fScriptResult))))
+			engine.terminateCurrent();
+	}
+
+	/**
+	 * Called when the script is done. Subsequent calls are ignored.
+	 *
+	 * @param result
+	 *            script result
+	 * @param exception
+	 *            exception thrown by the script or <code>null</code>
+	 */
+	void done(final Object result, final Throwable exception) {
+		final List<Runnable> continuations;
+		synchronized (this) {
+			if (isDone())
+				return;
+
+			fResult = result;
+			fException = exception;
+			fDone.countDown();
+
+			continuations = new ArrayList<Runnable>(fContinuations);
+			fContinuations.clear();
+		}
+
+		for (final Runnable continuation : continuations)
+			continuation.run();
+	}
+
+	/**
+	 * Register code to run once this future is done. Runs immediately when the future is already done.
+	 *
+	 * @param continuation
+	 *            code to run
+	 */
+	void onDone(final Runnable continuation) {
+		synchronized (this) {
+			if (!isDone()) {
+				fContinuations.add(continuation);
+				return;
+			}
+		}
+
+		continuation.run();
+	}
+
+	/**
+	 * Get the engine executing the script.
+	 *
+	 * @return script engine or <code>null</code> when the script is still queued
+	 */
+	public IScriptEngine getEngine() {
+		return fEngine;
+	}
+
+	/**
+	 * Submit a script to be executed once this script is done. The result of this script is available to the chained script in the variable <i>input</i>. If
+	 * this script fails, the chained script is not executed and fails with the same exception. Chained scripts run on pooled engines when this script does.
+	 *
+	 * @param resource
+	 *            resource to execute (path, URI or file instance)
+	 * @param arguments
+	 *            optional script arguments delimited by commas ','
+	 * @param engineID
+	 *            engine ID to be used, <code>null</code> to detect by resource type
+	 * @return future of the chained script
+	 */
+	public ScriptFuture then(final Object resource, final String arguments, final String engineID) {
+		final ScriptFuture next = new ScriptFuture(fModule, fPooled);
+
+		onDone(new Runnable() {
+
+			@Override
+			public void run() {
+				if (fCanceled)
+					next.cancel(false);
+
+				else if (fException != null)
+					next.done(null, fException);
+
+				else
+					fModule.submit(resource, arguments, engineID, fPooled, fResult, next);
+			}
+		});
+
+		return next;
+	}
+
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		if (isDone())
+			return false;
+
+		fCanceled = true;
+		terminateScript();
+
+		done(null, new CancellationException("Script execution canceled"));
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return fCanceled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return fDone.getCount() == 0;
+	}
+
+	@Override
+	public Object get() throws InterruptedException, ExecutionException {
+		fDone.await();
+		return getResult();
+	}
+
+	@Override
+	public Object get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!fDone.await(timeout, unit))
+			throw new TimeoutException();
+
+		return getResult();
+	}
+
+	private synchronized Object getResult() throws ExecutionException {
+		if (fCanceled)
+			throw new CancellationException("Script execution canceled");
+
+		if (fException != null)
+			throw new ExecutionException(fException);
+
+		return fResult;
+	}
+
+	/**
+	 * Get the exception thrown by the script.
+	 *
+	 * @return script exception or <code>null</code>
+	 */
+	public synchronized Throwable getException() {
+		return fException;
+	}
+}
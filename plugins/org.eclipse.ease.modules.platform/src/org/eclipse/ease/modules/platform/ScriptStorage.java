@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.ease.IExecutionListener;
+import org.eclipse.ease.IScriptEngine;
+import org.eclipse.ease.Script;
+
+/**
+ * Storage singleton to share objects between script engines. Reads are lock free. Modifications of a key are serialized by striped locks, so writers of
+ * different keys do not block each other. Temporary objects are indexed by their owner, so cleanup on engine termination only touches owned keys.
+ */
+class ScriptStorage implements IExecutionListener {
+
+	/** Amount of lock stripes. Needs to be a power of 2. */
+	private static final int LOCK_STRIPES = 32;
+
+	private static final ScriptStorage fInstance = new ScriptStorage();
+
+	/**
+	 * Get the singleton instance.
+	 *
+	 * @return singleton ScriptStorage
+	 */
+	public static ScriptStorage getInstance() {
+		return fInstance;
+	}
+
+	/**
+	 * Storage element for {@link ScriptStorage}.
+	 */
+	private static class StorageElement {
+		private final Object fElement;
+		private final Object fOwner;
+		private final boolean fPermanent;
+		private final boolean fWritable;
+
+		public StorageElement(final Object element, final Object owner, final boolean permanent, final boolean writable) {
+			fElement = element;
+			fOwner = owner;
+			fPermanent = permanent;
+			fWritable = writable;
+		}
+	}
+
+	/**
+	 * Callback to create a value for {@link ScriptStorage#computeIfAbsent(String, IScriptEngine, boolean, boolean, IValueProvider)}.
+	 */
+	public interface IValueProvider {
+
+		/**
+		 * Create the value to store.
+		 *
+		 * @return value to store
+		 */
+		Object createValue();
+	}
+
+	/** Stored elements. */
+	private final Map<String, StorageElement> fElements = new ConcurrentHashMap<String, StorageElement>();
+
+	/** Keys of temporary elements by owner. */
+	private final Map<Object, Set<String>> fOwnedKeys = new ConcurrentHashMap<Object, Set<String>>();
+
+	private final Object[] fLocks = new Object[LOCK_STRIPES];
+
+	private ScriptStorage() {
+		for (int index = 0; index < fLocks.length; index++)
+			fLocks[index] = new Object();
+	}
+
+	private Object getLock(final String key) {
+		final int hash = key.hashCode();
+		return fLocks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+	}
+
+	/**
+	 * Retrieve a shared object.
+	 *
+	 * @param key
+	 *            key to retrieve object for
+	 * @return shared object or <code>null</code>
+	 */
+	public Object get(final String key) {
+		final StorageElement storedElement = fElements.get(key);
+		return (storedElement != null) ? storedElement.fElement : null;
+	}
+
+	/**
+	 * Store a shared object.
+	 *
+	 * @param key
+	 *            key to store the object
+	 * @param object
+	 *            instance to store
+	 * @param scriptEngine
+	 *            script engine asking for storage
+	 * @param permanent
+	 *            flag indicating permanent storage
+	 * @param writable
+	 *            flag indicating that any engine may write this value
+	 * @throws IllegalAccessException
+	 *             when scriptEngine is not the owner of the shared object
+	 */
+	public void put(final String key, final Object object, final IScriptEngine scriptEngine, final boolean permanent, final boolean writable)
+			throws IllegalAccessException {
+		synchronized (getLock(key)) {
+			checkAccess(key, scriptEngine);
+			store(key, new StorageElement(object, getOwner(scriptEngine), permanent, writable), scriptEngine);
+		}
+	}
+
+	/**
+	 * Remove a shared object.
+	 *
+	 * @param key
+	 *            key to remove
+	 * @param scriptEngine
+	 *            script engine asking for removal
+	 * @throws IllegalAccessException
+	 *             when scriptEngine is not the owner of the shared object
+	 */
+	public void remove(final String key, final IScriptEngine scriptEngine) throws IllegalAccessException {
+		synchronized (getLock(key)) {
+			checkAccess(key, scriptEngine);
+
+			final StorageElement element = fElements.remove(key);
+			if (element != null)
+				unindex(key, element);
+		}
+	}
+
+	/**
+	 * Atomically retrieve a shared object or store a new one when the key is not set. The value provider is called at most once per missing key.
+	 *
+	 * @param key
+	 *            key to retrieve object for
+	 * @param scriptEngine
+	 *            script engine asking for storage
+	 * @param permanent
+	 *            flag indicating permanent storage of a created value
+	 * @param writable
+	 *            flag indicating that any engine may write a created value
+	 * @param provider
+	 *            provider for the value to store
+	 * @return stored object
+	 */
+	public Object computeIfAbsent(final String key, final IScriptEngine scriptEngine, final boolean permanent, final boolean writable,
+			final IValueProvider provider) {
+		// fast path without locking
+		final StorageElement existing = fElements.get(key);
+		if (existing != null)
+			return existing.fElement;
+
+		synchronized (getLock(key)) {
+			final StorageElement element = fElements.get(key);
+			if (element != null)
+				return element.fElement;
+
+			final Object value = provider.createValue();
+			store(key, new StorageElement(value, getOwner(scriptEngine), permanent, writable), scriptEngine);
+			return value;
+		}
+	}
+
+	/**
+	 * Atomically replace a shared object when it matches the expected value. A key that is not set matches an expected value of <code>null</code>.
+	 *
+	 * @param key
+	 *            key to store the object
+	 * @param expected
+	 *            expected current value
+	 * @param object
+	 *            instance to store
+	 * @param scriptEngine
+	 *            script engine asking for storage
+	 * @param permanent
+	 *            flag indicating permanent storage
+	 * @param writable
+	 *            flag indicating that any engine may write this value
+	 * @return <code>true</code> when the value got replaced
+	 * @throws IllegalAccessException
+	 *             when scriptEngine is not the owner of the shared object
+	 */
+	public boolean compareAndSet(final String key, final Object expected, final Object object, final IScriptEngine scriptEngine, final boolean permanent,
+			final boolean writable) throws IllegalAccessException {
+		synchronized (getLock(key)) {
+			final Object current = get(key);
+			if ((current == null) ? (expected != null) : (!current.equals(expected)))
+				return false;
+
+			checkAccess(key, scriptEngine);
+			store(key, new StorageElement(object, getOwner(scriptEngine), permanent, writable), scriptEngine);
+			return true;
+		}
+	}
+
+	/**
+	 * Verify that a script engine may modify a key. Needs to be called with the key lock held.
+	 */
+	private void checkAccess(final String key, final IScriptEngine scriptEngine) throws IllegalAccessException {
+		final StorageElement element = fElements.get(key);
+		if ((element != null) && (!element.fWritable) && (!element.fOwner.equals(getOwner(scriptEngine))))
+			throw new IllegalAccessException("Engine is not the owner of shared object \"" + key + "\"");
+	}
+
+	/**
+	 * Store an element and update the owner index. Needs to be called with the key lock held.
+	 */
+	private void store(final String key, final StorageElement element, final IScriptEngine scriptEngine) {
+		final StorageElement previous = fElements.put(key, element);
+		if (previous != null)
+			unindex(key, previous);
+
+		if (!element.fPermanent) {
+			Set<String> keys = fOwnedKeys.get(element.fOwner);
+			if (keys == null) {
+				synchronized (fOwnedKeys) {
+					keys = fOwnedKeys.get(element.fOwner);
+					if (keys == null) {
+						keys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+						fOwnedKeys.put(element.fOwner, keys);
+
+						// first temporary object of this engine, track its termination
+						scriptEngine.addExecutionListener(this);
+					}
+				}
+			}
+
+			keys.add(key);
+		}
+	}
+
+	private void unindex(final String key, final StorageElement element) {
+		if (!element.fPermanent) {
+			final Set<String> keys = fOwnedKeys.get(element.fOwner);
+			if (keys != null)
+				keys.remove(key);
+		}
+	}
+
+	/**
+	 * Get unique token for object owner.
+	 *
+	 * @param engine
+	 *            script engine owner
+	 * @return owner token
+	 */
+	private static Object getOwner(final IScriptEngine engine) {
+		// we do not want to keep the whole script engine around as owner for permanent objects as script engines are big objects.
+		return engine.hashCode();
+	}
+
+	/**
+	 * Remove all temporary objects owned by a script engine. Called on engine termination and whenever a pooled engine returns to its pool.
+	 *
+	 * @param engine
+	 *            owning script engine
+	 */
+	public void releaseOwner(final IScriptEngine engine) {
+		final Object owner = getOwner(engine);
+
+		final Set<String> keys;
+		synchronized (fOwnedKeys) {
+			keys = fOwnedKeys.remove(owner);
+		}
+
+		// clean up owned elements
+		if (keys != null) {
+			for (final String key : keys) {
+				synchronized (getLock(key)) {
+					final StorageElement element = fElements.get(key);
+					if ((element != null) && (element.fOwner.equals(owner)) && (!element.fPermanent))
+						fElements.remove(key);
+				}
+			}
+
+			// ownership tracking gets registered again for the next temporary object
+			engine.removeExecutionListener(this);
+		}
+	}
+
+	@Override
+	public void notify(final IScriptEngine engine, final Script script, final int status) {
+		if (status == IExecutionListener.ENGINE_END) {
+			releaseOwner(engine);
+
+			engine.removeExecutionListener(this);
+		}
+	}
+}
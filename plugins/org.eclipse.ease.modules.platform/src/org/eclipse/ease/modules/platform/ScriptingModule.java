@@ -1,27 +1,32 @@
 package org.eclipse.ease.modules.platform;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ease.AbstractScriptEngine;
-import org.eclipse.ease.IExecutionListener;
 import org.eclipse.ease.IScriptEngine;
 import org.eclipse.ease.IScriptable;
-import org.eclipse.ease.Logger;
-import org.eclipse.ease.Script;
+import org.eclipse.ease.ScriptResult;
 import org.eclipse.ease.modules.AbstractScriptModule;
 import org.eclipse.ease.modules.ScriptParameter;
 import org.eclipse.ease.modules.WrapToScript;
 import org.eclipse.ease.service.EngineDescription;
 import org.eclipse.ease.service.IScriptService;
+import org.eclipse.ease.service.ScriptService;
 import org.eclipse.ease.service.ScriptType;
 import org.eclipse.ease.tools.ResourceTools;
 import org.eclipse.ui.PlatformUI;
@@ -34,6 +39,24 @@ public class ScriptingModule extends AbstractScriptModule {
 	/** Module identifier. */
 	public static final String MODULE_ID = "/System/Scripting";
 
+	/** Executor for submitted scripts. Created on first use. */
+	private ThreadPoolExecutor fSubmitExecutor = null;
+
+	/** Latest script forked on a pooled engine by engine. Pooled engines never terminate, so joins wait for these scripts instead. */
+	private final Map<IScriptEngine, ScriptResult> fPooledScripts = Collections.synchronizedMap(new WeakHashMap<IScriptEngine, ScriptResult>());
+
+	/**
+	 * Get the script service. Falls back to the service singleton when the workbench is not available, e.g. for headless test runs.
+	 *
+	 * @return script service
+	 */
+	static IScriptService getScriptService() {
+		if (PlatformUI.isWorkbenchRunning())
+			return (IScriptService) PlatformUI.getWorkbench().getService(IScriptService.class);
+
+		return ScriptService.getService();
+	}
+
 	/**
 	 * Create a new script engine instance.
 	 *
@@ -43,7 +66,7 @@ public class ScriptingModule extends AbstractScriptModule {
 	 */
 	@WrapToScript
 	public static IScriptEngine createScriptEngine(final String identifier) {
-		final IScriptService scriptService = (IScriptService) PlatformUI.getWorkbench().getService(IScriptService.class);
+		final IScriptService scriptService = getScriptService();
 
 		// by ID
 		EngineDescription engine = scriptService.getEngineByID(identifier);
@@ -75,7 +98,7 @@ public class ScriptingModule extends AbstractScriptModule {
 	public static String[] listScriptEngines() {
 		final List<String> result = new ArrayList<String>();
 
-		final IScriptService scriptService = (IScriptService) PlatformUI.getWorkbench().getService(IScriptService.class);
+		final IScriptService scriptService = getScriptService();
 		for (final EngineDescription description : scriptService.getEngines())
 			result.add(description.getID());
 
@@ -83,7 +106,8 @@ public class ScriptingModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Fork a new script engine and execute provided resource.
+	 * Fork a new script engine and execute provided resource. Pooled engines are taken from an engine pool and return to it once the script is done. Their
+	 * state gets reset before each use, so scripts must not rely on engine termination for cleanup.
 	 *
 	 * @param resource
 	 *            resource to execute (path, URI or file instance)
@@ -91,13 +115,154 @@ public class ScriptingModule extends AbstractScriptModule {
 	 *            optional script arguments delimited by commas ','
 	 * @param engineID
 	 *            engine ID to be used
+	 * @param pooled
+	 *            <code>true</code> to run the script on a pooled engine
 	 * @return script engine instance or <code>null</code> in case of error
 	 */
 	@WrapToScript
 	public IScriptEngine fork(final Object resource, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String arguments,
-			@ScriptParameter(defaultValue = ScriptParameter.NULL) String engineID) {
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String engineID, @ScriptParameter(defaultValue = "false") final boolean pooled) {
+
+		final ScriptFuture future = new ScriptFuture(this, pooled);
+		if (launch(resource, arguments, engineID, pooled, null, future) != null)
+			return future.getEngine();
+
+		return null;
+	}
+
+	/**
+	 * Submit a script for execution in a new script engine. Submitted scripts are queued and executed with limited parallelism (see
+	 * {@module #setMaxParallelScripts(int)}). The returned future provides the final result of the script and allows to chain further scripts using
+	 * <i>then(resource, arguments, engineID)</i>. Chained scripts get the result of their predecessor in the variable <i>input</i>.
+	 *
+	 * @scriptExample submit("workspace://project/count.js", "src").then("workspace://project/report.js", null, null).get() to run two scripts in sequence and
+	 *                retrieve the final result
+	 * @param resource
+	 *            resource to execute (path, URI or file instance)
+	 * @param arguments
+	 *            optional script arguments delimited by commas ','
+	 * @param engineID
+	 *            engine ID to be used
+	 * @param pooled
+	 *            <code>true</code> to run the script on a pooled engine
+	 * @return future providing the script result
+	 */
+	@WrapToScript
+	public ScriptFuture submit(final Object resource, @ScriptParameter(defaultValue = ScriptParameter.NULL) final String arguments,
+			@ScriptParameter(defaultValue = ScriptParameter.NULL) final String engineID, @ScriptParameter(defaultValue = "false") final boolean pooled) {
+		final ScriptFuture future = new ScriptFuture(this, pooled);
+		submit(resource, arguments, engineID, pooled, null, future);
+		return future;
+	}
+
+	/**
+	 * Queue a script for execution and report its result to a future.
+	 *
+	 * @param resource
+	 *            resource to execute
+	 * @param arguments
+	 *            optional script arguments delimited by commas ','
+	 * @param engineID
+	 *            engine ID to be used
+	 * @param pooled
+	 *            <code>true</code> to run the script on a pooled engine
+	 * @param input
+	 *            value for the <i>input</i> variable, may be <code>null</code>
+	 * @param future
+	 *            future to report to
+	 */
+	void submit(final Object resource, final String arguments, final String engineID, final boolean pooled, final Object input, final ScriptFuture future) {
+		getSubmitExecutor().execute(new Runnable() {
+
+			@Override
+			public void run() {
+				if (future.isDone())
+					// canceled while queued
+					return;
+
+				try {
+					final ScriptResult result = launch(resource, arguments, engineID, pooled, input, future);
+					if (result == null)
+						throw new IllegalArgumentException("Cannot resolve script \"" + resource + "\"");
+
+					// keep the executor slot until the script is done, pooled engines do not terminate
+					if (pooled)
+						ScriptEnginePool.join(result, 0);
+					else
+						join(future.getEngine(), 0);
+
+					future.done(result.getResult(), result.getException());
+
+				} catch (final Throwable e) {
+					future.done(null, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Set the maximum amount of scripts executed in parallel by {@module #submit(Object, String, String, boolean)}. Further scripts are queued until a running
+	 * script is done.
+	 *
+	 * @param parallelism
+	 *            maximum amount of parallel scripts
+	 */
+	@WrapToScript
+	public void setMaxParallelScripts(final int parallelism) {
+		final ThreadPoolExecutor executor = getSubmitExecutor();
+		final int size = Math.max(1, parallelism);
+
+		// keep core size <= maximum size at all times
+		if (size > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(size);
+			executor.setCorePoolSize(size);
+		} else {
+			executor.setCorePoolSize(size);
+			executor.setMaximumPoolSize(size);
+		}
+	}
+
+	private synchronized ThreadPoolExecutor getSubmitExecutor() {
+		if (fSubmitExecutor == null) {
+			final int size = Runtime.getRuntime().availableProcessors();
+			fSubmitExecutor = new ThreadPoolExecutor(size, size, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "EASE script submitter");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+			// do not keep idle threads alive
+			fSubmitExecutor.allowCoreThreadTimeOut(true);
+		}
+
+		return fSubmitExecutor;
+	}
+
+	/**
+	 * Start a script in a new or pooled script engine.
+	 *
+	 * @param resource
+	 *            resource to execute (path, URI or file instance)
+	 * @param arguments
+	 *            optional script arguments delimited by commas ','
+	 * @param engineID
+	 *            engine ID to be used, <code>null</code> to detect by resource type
+	 * @param pooled
+	 *            <code>true</code> to run the script on a pooled engine
+	 * @param input
+	 *            value for the <i>input</i> variable, may be <code>null</code>
+	 * @param future
+	 *            future to be informed about the started engine
+	 * @return script result or <code>null</code> when the resource cannot be resolved
+	 */
+	private ScriptResult launch(final Object resource, final String arguments, String engineID, final boolean pooled, final Object input,
+			final ScriptFuture future) {
 
-		final IScriptService scriptService = (IScriptService) PlatformUI.getWorkbench().getService(IScriptService.class);
+		final IScriptService scriptService = getScriptService();
 
 		if (engineID == null) {
 			// try to find engine for script type
@@ -116,17 +281,6 @@ public class ScriptingModule extends AbstractScriptModule {
 			if (description == null)
 				throw new RuntimeException("No script engine found for ID = \"" + engineID + "\"");
 
-			final IScriptEngine engine = scriptService.getEngineByID(engineID).createEngine();
-
-			// connect streams
-			engine.setOutputStream(getScriptEngine().getOutputStream());
-			engine.setErrorStream(getScriptEngine().getErrorStream());
-			engine.setInputStream(getScriptEngine().getInputStream());
-			engine.setCloseStreamsOnTerminate(false);
-
-			// set input parameters
-			engine.setVariable("argv", AbstractScriptEngine.extractArguments(arguments));
-
 			Object scriptObject = ResourceTools.resolveFile(resource, getScriptEngine().getExecutedFile(), true);
 			if (scriptObject == null) {
 				try {
@@ -138,16 +292,73 @@ public class ScriptingModule extends AbstractScriptModule {
 				}
 			}
 
-			engine.executeAsync(scriptObject);
-			engine.schedule();
-			return engine;
+			final IScriptEngine engine = (pooled) ? ScriptEnginePool.getPool(engineID).acquire() : description.createEngine();
+
+			// connect streams
+			engine.setOutputStream(getScriptEngine().getOutputStream());
+			engine.setErrorStream(getScriptEngine().getErrorStream());
+			engine.setInputStream(getScriptEngine().getInputStream());
+			engine.setCloseStreamsOnTerminate(false);
+
+			// set input parameters
+			engine.setVariable("argv", AbstractScriptEngine.extractArguments(arguments));
+			if (input != null)
+				engine.setVariable("input", input);
+
+			final ScriptResult result;
+			if (pooled) {
+				// pooled engines are already running
+				result = ScriptEnginePool.getPool(engineID).execute(engine, scriptObject);
+				fPooledScripts.put(engine, result);
+
+			} else {
+				result = engine.executeAsync(scriptObject);
+				engine.schedule();
+			}
+
+			future.started(engine, result);
+			return result;
 		}
 
 		throw new RuntimeException("No script engine found for source \"" + resource + "\"");
 	}
 
 	/**
-	 * Wait for a script engine to shut down. If <i>timeout</i> is set to 0 this method will wait endlessly.
+	 * Configure the engine pool used by {@module #fork(Object, String, String, boolean)} for a dedicated engine type. Idle engines may be started in advance
+	 * to avoid startup costs on the first forks.
+	 *
+	 * @scriptExample configureEnginePool("org.eclipse.ease.javascript.rhino", 8, 4) to keep up to 8 idle Rhino engines and start 4 of them immediately
+	 * @param engineID
+	 *            engine ID to configure the pool for
+	 * @param size
+	 *            maximum amount of idle engines kept in the pool
+	 * @param prewarm
+	 *            amount of idle engines to start immediately
+	 */
+	@WrapToScript
+	public static void configureEnginePool(final String engineID, @ScriptParameter(defaultValue = "4") final int size,
+			@ScriptParameter(defaultValue = "0") final int prewarm) {
+		final ScriptEnginePool pool = ScriptEnginePool.getPool(engineID);
+		pool.setMaxSize(size);
+		pool.prewarm(prewarm);
+	}
+
+	/**
+	 * Get usage statistics of an engine pool.
+	 *
+	 * @param engineID
+	 *            engine ID of the pool
+	 * @return map containing pool hits and misses, the amount of created engines, the total and average engine creation time in [ms], the amount of idle and
+	 *         leased engines and the maximum pool size
+	 */
+	@WrapToScript
+	public static Map<String, Object> getEnginePoolStatistics(final String engineID) {
+		return ScriptEnginePool.getPool(engineID).getStatistics();
+	}
+
+	/**
+	 * Wait for a script engine to shut down. For pooled engines this method waits for the script forked on it by this module, later scripts executed on the
+	 * same engine are not considered. If <i>timeout</i> is set to 0 this method will wait endlessly.
 	 *
 	 * @param engine
 	 *            script engine to wait for
@@ -156,33 +367,66 @@ public class ScriptingModule extends AbstractScriptModule {
 	 * @return <code>true</code> when engine is shut down
 	 */
 	@WrapToScript
-	public static boolean join(final IScriptEngine engine, @ScriptParameter(defaultValue = "0") final long timeout) {
-		if (engine instanceof Job) {
-			final long stopWaitingTime = System.currentTimeMillis() + timeout;
-			try {
-				while (((Job) engine).getState() != Job.NONE) {
-					final long now = System.currentTimeMillis();
-					if (timeout == 0)
-						Thread.sleep(1000);
-
-					else if (stopWaitingTime > now)
-						Thread.sleep(Math.min(stopWaitingTime - now, 1000));
+	public boolean join(final IScriptEngine engine, @ScriptParameter(defaultValue = "0") final long timeout) {
+		return joinAll(new IScriptEngine[] { engine }, timeout);
+	}
 
-					else
-						// timeout depleted
-						return false;
-				}
-			} catch (final InterruptedException e) {
-				// we got interrupted - ev the current engine is shutting down?
-				return false;
+	/**
+	 * Wait for multiple script engines to shut down. Pooled engines are handled like in {@module #join(IScriptEngine, long)}. If <i>timeout</i> is set to 0
+	 * this method will wait endlessly.
+	 *
+	 * @param engines
+	 *            script engines to wait for
+	 * @param timeout
+	 *            time to wait for shutdown of all engines [ms], shared by all engines
+	 * @return <code>true</code> when all engines are shut down
+	 */
+	@WrapToScript
+	public boolean joinAll(final IScriptEngine[] engines, @ScriptParameter(defaultValue = "0") final long timeout) {
+		final long end = System.currentTimeMillis() + timeout;
+
+		final EngineCompletion completion = new EngineCompletion(engines, fPooledScripts);
+		try {
+			for (int index = 0; index < engines.length; index++) {
+				final long remaining = end - System.currentTimeMillis();
+				if (completion.next((timeout == 0) ? 0 : ((remaining > 0) ? remaining : -1)) == null)
+					return false;
 			}
 
-			// job terminated
 			return true;
+
+		} catch (final InterruptedException e) {
+			// we got interrupted - ev the current engine is shutting down?
+			return false;
+
+		} finally {
+			completion.dispose();
 		}
+	}
 
-		// cannot evaluate engine state
-		throw new RuntimeException("Cannot evaluate engine state");
+	/**
+	 * Wait for any of the given script engines to shut down. Pooled engines are handled like in {@module #join(IScriptEngine, long)}. If <i>timeout</i> is set
+	 * to 0 this method will wait endlessly. Each call waits for the full <i>timeout</i>, so repeated calls do not share a time budget.
+	 *
+	 * @param engines
+	 *            script engines to wait for
+	 * @param timeout
+	 *            time to wait for shutdown [ms]
+	 * @return first engine that is shut down or <code>null</code> when the timeout expired
+	 */
+	@WrapToScript
+	public IScriptEngine joinAny(final IScriptEngine[] engines, @ScriptParameter(defaultValue = "0") final long timeout) {
+		final EngineCompletion completion = new EngineCompletion(engines, fPooledScripts);
+		try {
+			return completion.next(timeout);
+
+		} catch (final InterruptedException e) {
+			// we got interrupted - ev the current engine is shutting down?
+			return null;
+
+		} finally {
+			completion.dispose();
+		}
 	}
 
 	/**
@@ -269,7 +513,8 @@ public class ScriptingModule extends AbstractScriptModule {
 	}
 
 	/**
-	 * Get an object from the shared object store.
+	 * Get an object from the shared object store. Objects not available in memory are looked up in the persistent store (see
+	 * {@module #setPersistentSharedObject(String, Object)}).
 	 *
 	 * @param key
 	 *            key to retrieve object for
@@ -277,138 +522,259 @@ public class ScriptingModule extends AbstractScriptModule {
 	 */
 	@WrapToScript
 	public Object getSharedObject(final String key) {
-		return ScriptStorage.getInstance().get(key);
+		final Object object = ScriptStorage.getInstance().get(key);
+		return (object != null) ? object : PersistentScriptStorage.getInstance().get(key);
 	}
 
 	/**
-	 * Storage element for {@link ScriptStorage}.
+	 * Add an object to the persistent shared object store. Persistent objects survive restarts of the application. They are written to disk immediately and
+	 * loaded lazily on their first retrieval by {@module #getSharedObject(String)}. Frequently used objects are kept in memory. Persistent objects are not
+	 * owned by any engine, so any engine may overwrite them. Setting <code>null</code> removes the persistent object.
+	 *
+	 * @scriptExample setPersistentSharedObject("index", index) to keep an expensive index for the next application start
+	 * @param key
+	 *            key to store the object
+	 * @param object
+	 *            instance to store, needs to be serializable
+	 * @throws IllegalAccessException
+	 *             when a non persistent shared object with the same key is owned by another engine
+	 * @throws IOException
+	 *             when the object cannot be stored
 	 */
-	private static class StorageElement {
-		public Object fElement;
-		public Object fOwner;
-		public boolean fPermanent;
-		private final boolean fWritable;
-
-		public StorageElement(final Object element, final Object owner, final boolean permanent, final boolean writable) {
-			fElement = element;
-			fOwner = owner;
-			fPermanent = permanent;
-			fWritable = writable;
-		}
+	@WrapToScript
+	public void setPersistentSharedObject(final String key, final Object object) throws IllegalAccessException, IOException {
+		// drop the in memory value as it would hide the persistent one
+		ScriptStorage.getInstance().remove(key, getScriptEngine());
+
+		if (object == null)
+			PersistentScriptStorage.getInstance().remove(key);
+
+		else if (object instanceof Serializable)
+			PersistentScriptStorage.getInstance().put(key, (Serializable) object);
+
+		else
+			throw new IOException("Shared object \"" + key + "\" is not serializable");
 	}
 
 	/**
-	 * Storage singleton to share objects. This class is synchronized.
+	 * Set the amount of persistent shared objects kept in memory. Objects dropped from memory are reloaded from disk on their next access.
+	 *
+	 * @param size
+	 *            amount of objects to keep in memory
 	 */
-	private static class ScriptStorage implements IExecutionListener {
-		private static ScriptStorage fInstance = null;
-
-		/**
-		 * Get the singleton instance.
-		 *
-		 * @return singleton ScriptStorage
-		 */
-		public synchronized static ScriptStorage getInstance() {
-			if (fInstance == null)
-				fInstance = new ScriptStorage();
-
-			return fInstance;
-		}
-
-		/** Stored elements. */
-		private final Map<String, StorageElement> fElements = new HashMap<String, StorageElement>();
-
-		/**
-		 * Retrieve a shared object.
-		 *
-		 * @param key
-		 *            key to retrieve object for
-		 * @return shared object or <code>null</code>
-		 */
-		public synchronized Object get(final String key) {
-			StorageElement storedElement = fElements.get(key);
-			return (storedElement != null) ? storedElement.fElement : null;
-		}
+	@WrapToScript
+	public static void setPersistentCacheSize(final int size) {
+		PersistentScriptStorage.getInstance().setCacheSize(size);
+	}
 
-		/**
-		 * @param key
-		 *            key to store the object
-		 * @param object
-		 *            instance to store
-		 * @param scriptEngine
-		 *            script engine asking for storage
-		 * @param permanent
-		 *            flag indicating permanent storage
-		 * @param writable
-		 *            flag indicating that any engine may write this value
-		 * @throws IllegalAccessException
-		 *             when scriptEngine is not the owner of the shared object
-		 */
-		public synchronized void put(final String key, final Object object, final IScriptEngine scriptEngine, final boolean permanent, final boolean writable)
-				throws IllegalAccessException {
-			if (fElements.containsKey(key))
-				remove(key, scriptEngine);
-
-			fElements.put(key, new StorageElement(object, getOwner(scriptEngine), permanent, writable));
-
-			if (!permanent)
-				scriptEngine.addExecutionListener(this);
-		}
+	/**
+	 * Get an object from the shared object store or create it when not available yet. Creation is atomic: when multiple engines ask for the same key
+	 * concurrently, <i>code</i> is executed only once and all engines get the same instance. Keep <i>code</i> short, as other writers of the store might be
+	 * blocked while it is running.
+	 *
+	 * @scriptExample cache = computeSharedObject("cache", "new java.util.concurrent.ConcurrentHashMap()") to create a cache shared by all engines
+	 * @param key
+	 *            key to retrieve object for
+	 * @param code
+	 *            code to execute in the current engine to create the object
+	 * @param permanent
+	 *            flag indicating permanent storage of a created object
+	 * @param writable
+	 *            flag indicating that any engine may write a created object
+	 * @return shared object
+	 */
+	@WrapToScript
+	public Object computeSharedObject(final String key, final Object code, @ScriptParameter(defaultValue = "false") final boolean permanent,
+			@ScriptParameter(defaultValue = "false") final boolean writable) {
+		return ScriptStorage.getInstance().computeIfAbsent(key, getScriptEngine(), permanent, writable, new ScriptStorage.IValueProvider() {
 
-		/**
-		 * @param key
-		 * @param scriptEngine
-		 * @throws IllegalAccessException
-		 *             when scriptEngine is not the owner of the shared object
-		 */
-		public synchronized void remove(final String key, final IScriptEngine scriptEngine) throws IllegalAccessException {
-			if (fElements.containsKey(key)) {
-				// verify that current scriptEngine is the owner of this value or the object is writable
-				StorageElement element = fElements.get(key);
-				if ((element.fWritable) || (element.fOwner.equals(getOwner(scriptEngine)))) {
-
-					// remove element
-					fElements.remove(key);
-				} else
-					throw new IllegalAccessException("Engine is not the owner of shared object \"" + key + "\"");
+			@Override
+			public Object createValue() {
+				return getScriptEngine().inject(code);
 			}
-		}
+		});
+	}
 
-		/**
-		 * Get unique token for object owner.
-		 *
-		 * @param engine
-		 *            script engine owner
-		 * @return owner token
-		 */
-		private static Object getOwner(final IScriptEngine engine) {
-			// we do not want to keep the whole script engine around as owner for permanent objects as script engines are big objects.
-			return engine.hashCode();
-		}
+	/**
+	 * Atomically replace an object in the shared object store when it matches an expected value. Values are compared using equals(). A key that is not set
+	 * matches an expected value of <code>null</code>. Allows to use the store as a coordination point between engines.
+	 *
+	 * @param key
+	 *            key to store the object
+	 * @param expected
+	 *            expected current value
+	 * @param object
+	 *            instance to store
+	 * @param permanent
+	 *            flag indicating permanent storage
+	 * @param writable
+	 *            flag indicating that any engine may write this value
+	 * @return <code>true</code> when the object got replaced
+	 * @throws IllegalAccessException
+	 *             when scriptEngine is not the owner of the shared object
+	 */
+	@WrapToScript
+	public boolean compareAndSetSharedObject(final String key, final Object expected, final Object object,
+			@ScriptParameter(defaultValue = "false") final boolean permanent, @ScriptParameter(defaultValue = "false") final boolean writable)
+			throws IllegalAccessException {
+		return ScriptStorage.getInstance().compareAndSet(key, expected, object, getScriptEngine(), permanent, writable);
+	}
 
-		@Override
-		public synchronized void notify(final IScriptEngine engine, final Script script, final int status) {
-			if (status == IExecutionListener.ENGINE_END) {
-
-				// clean up owned elements
-				for (String key : new HashSet<String>(fElements.keySet())) {
-					StorageElement element = fElements.get(key);
-					if ((element.fOwner.equals(getOwner(engine)) && (!element.fPermanent))) {
-						try {
-							remove(key, engine);
-						} catch (IllegalAccessException e) {
-							// we already checked that we are the owner, so this should not happen
-							Logger.error(PluginConstants.PLUGIN_ID, "Error while cleaning up shared objects", e);
-						}
-					}
-				}
+	/**
+	 * Apply a function to all elements of a collection in parallel. Elements are processed on a shared thread pool. Exceptions thrown for single elements are
+	 * collected and do not abort the remaining elements. Processing stops when the current script engine gets terminated, as termination interrupts the
+	 * engine thread waiting for the results. The function is called from multiple threads concurrently, so it must not rely on thread confined state of the
+	 * script engine.
+	 *
+	 * @scriptExample parallelMap(files, new IParallelFunction({ apply: function(file) { return file.length(); } }), 4).getResults() to get file sizes using 4
+	 *                threads
+	 * @param elements
+	 *            array or collection of elements to process
+	 * @param function
+	 *            function to apply to each element
+	 * @param parallelism
+	 *            maximum amount of elements processed concurrently, 0 to use all available processors
+	 * @return execution result providing results in input order and collected exceptions
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted, e.g. by terminating the script engine. Remaining elements are not processed
+	 */
+	@WrapToScript
+	public ParallelExecution parallelMap(final Object elements, final IParallelFunction function, @ScriptParameter(defaultValue = "0") final int parallelism)
+			throws InterruptedException {
+		// the engine thread is blocked until all elements are processed, engine termination interrupts it and cancels remaining elements
+		final ParallelExecution execution = new ParallelExecution(toList(elements), function);
+		execution.run(parallelism);
 
-				if (fElements.isEmpty())
-					// we are empty, clean up singleton
-					fInstance = null;
+		return execution;
+	}
 
-				engine.removeExecutionListener(this);
-			}
+	/**
+	 * Apply a function to all elements of a collection in parallel, ignoring the function results. See
+	 * {@module #parallelMap(Object, IParallelFunction, int)} for details.
+	 *
+	 * @param elements
+	 *            array or collection of elements to process
+	 * @param function
+	 *            function to apply to each element
+	 * @param parallelism
+	 *            maximum amount of elements processed concurrently, 0 to use all available processors
+	 * @return exceptions by index of the failing element, empty when all elements succeeded
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	@WrapToScript
+	public Map<Integer, Throwable> parallelForEach(final Object elements, final IParallelFunction function,
+			@ScriptParameter(defaultValue = "0") final int parallelism) throws InterruptedException {
+		return parallelMap(elements, function, parallelism).getExceptions();
+	}
+
+	private static List<?> toList(final Object elements) {
+		if (elements instanceof List<?>)
+			return (List<?>) elements;
+
+		if (elements instanceof Object[])
+			return Arrays.asList((Object[]) elements);
+
+		if (elements instanceof Iterable<?>) {
+			final List<Object> result = new ArrayList<Object>();
+			for (final Object element : (Iterable<?>) elements)
+				result.add(element);
+
+			return result;
 		}
+
+		throw new IllegalArgumentException("Cannot iterate over " + elements);
+	}
+
+	/**
+	 * Create a named channel to pass objects between script engines. Channels are bounded: senders block when the channel is full, which slows down
+	 * producers to the pace of their consumers. If the channel already exists, the existing instance is returned.
+	 *
+	 * @scriptExample createChannel("work", 100) to create a channel holding up to 100 pending items
+	 * @param name
+	 *            channel name
+	 * @param capacity
+	 *            maximum amount of pending items
+	 * @return channel instance
+	 */
+	@WrapToScript
+	public static ScriptChannel createChannel(final String name, @ScriptParameter(defaultValue = "1000") final int capacity) {
+		return ScriptChannel.getChannel(name, capacity);
+	}
+
+	/**
+	 * Delete a channel. Pending items are discarded.
+	 *
+	 * @param channel
+	 *            channel name or channel instance
+	 */
+	@WrapToScript
+	public static void deleteChannel(final Object channel) {
+		ScriptChannel.removeChannel((channel instanceof ScriptChannel) ? ((ScriptChannel) channel).getName() : String.valueOf(channel));
+	}
+
+	/**
+	 * Send an item over a channel. Blocks while the channel is full.
+	 *
+	 * @param channel
+	 *            channel name or channel instance
+	 * @param item
+	 *            item to send, must not be <code>null</code>
+	 * @param timeout
+	 *            time to wait for free space [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return <code>true</code> when the item got queued
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	@WrapToScript
+	public static boolean send(final Object channel, final Object item, @ScriptParameter(defaultValue = "0") final long timeout) throws InterruptedException {
+		return resolveChannel(channel).send(item, timeout);
+	}
+
+	/**
+	 * Receive a single item from a channel. Blocks while the channel is empty.
+	 *
+	 * @param channel
+	 *            channel name or channel instance
+	 * @param timeout
+	 *            time to wait for an item [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return received item or <code>null</code> when the timeout expired
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	@WrapToScript
+	public static Object receive(final Object channel, @ScriptParameter(defaultValue = "0") final long timeout) throws InterruptedException {
+		return resolveChannel(channel).receive(timeout);
+	}
+
+	/**
+	 * Receive multiple items from a channel at once. Waits for the first item only, then takes all pending items up to <i>maxItems</i>.
+	 *
+	 * @scriptExample for each (item in drain("work", 50, 1000)) process(item); to process work items in batches
+	 * @param channel
+	 *            channel name or channel instance
+	 * @param maxItems
+	 *            maximum amount of items to receive, negative values for no limit
+	 * @param timeout
+	 *            time to wait for the first item [ms], 0 to wait endlessly, negative values to not wait at all
+	 * @return received items, empty when the timeout expired
+	 * @throws InterruptedException
+	 *             when the calling thread gets interrupted
+	 */
+	@WrapToScript
+	public static Object[] drain(final Object channel, @ScriptParameter(defaultValue = "-1") final int maxItems,
+			@ScriptParameter(defaultValue = "-1") final long timeout) throws InterruptedException {
+		return resolveChannel(channel).drain(maxItems, timeout);
+	}
+
+	private static ScriptChannel resolveChannel(final Object channel) {
+		if (channel instanceof ScriptChannel)
+			return (ScriptChannel) channel;
+
+		final ScriptChannel instance = ScriptChannel.findChannel(String.valueOf(channel));
+		if (instance == null)
+			throw new IllegalArgumentException("Channel \"" + channel + "\" does not exist");
+
+		return instance;
 	}
 }
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.platform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.ease.Logger;
+
+/**
+ * In memory index of all workspace files by name. The index is built once and kept up to date by listening to {@link IResourceChangeEvent#POST_CHANGE}
+ * events. Queries are lock free.
+ */
+public final class WorkspaceFileIndex implements IResourceChangeListener {
+
+	private static WorkspaceFileIndex fInstance = null;
+
+	/**
+	 * Get the index singleton. The index gets built on first access.
+	 *
+	 * @return index instance
+	 */
+	public static synchronized WorkspaceFileIndex getInstance() {
+		if (fInstance == null) {
+			fInstance = new WorkspaceFileIndex();
+			fInstance.rebuild();
+		}
+
+		return fInstance;
+	}
+
+	/**
+	 * Check whether the index is currently active.
+	 *
+	 * @return <code>true</code> when the index is active
+	 */
+	public static synchronized boolean isActive() {
+		return fInstance != null;
+	}
+
+	/**
+	 * Dispose the index singleton and release all memory bound by the index. Called automatically when the bundle gets stopped.
+	 */
+	public static synchronized void dispose() {
+		if (fInstance != null) {
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(fInstance);
+
+			synchronized (fInstance) {
+				fInstance.fFiles = new ConcurrentHashMap<String, Set<IFile>>();
+			}
+
+			fInstance = null;
+		}
+	}
+
+	/** Indexed files by file name. Replaced as a whole on rebuilds, so queries never see a partially built index. */
+	private volatile Map<String, Set<IFile>> fFiles = new ConcurrentHashMap<String, Set<IFile>>();
+
+	private long fBuildTime = 0;
+	private long fLastBuild = 0;
+	private long fUpdates = 0;
+
+	private WorkspaceFileIndex() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Drop the current index and rebuild it from the workspace. Queries use the previous index until the new one is complete.
+	 */
+	public synchronized void rebuild() {
+		final long start = System.currentTimeMillis();
+
+		final Map<String, Set<IFile>> files = new ConcurrentHashMap<String, Set<IFile>>();
+		for (final IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects())
+			addContainer(files, project);
+
+		fFiles = files;
+
+		fLastBuild = System.currentTimeMillis();
+		fBuildTime = fLastBuild - start;
+	}
+
+	private static void addContainer(final Map<String, Set<IFile>> index, final IResource container) {
+		if (!container.isAccessible())
+			return;
+
+		try {
+			container.accept(new IResourceProxyVisitor() {
+
+				@Override
+				public boolean visit(final IResourceProxy proxy) throws CoreException {
+					if (proxy.getType() == IResource.FILE) {
+						add(index, (IFile) proxy.requestResource());
+						return false;
+					}
+
+					return true;
+				}
+			}, IResource.NONE);
+
+		} catch (final CoreException e) {
+			Logger.error(PluginConstants.PLUGIN_ID, "Could not index container " + container.getFullPath(), e);
+		}
+	}
+
+	private static void add(final Map<String, Set<IFile>> index, final IFile file) {
+		Set<IFile> files = index.get(file.getName());
+		if (files == null) {
+			files = Collections.newSetFromMap(new ConcurrentHashMap<IFile, Boolean>());
+			index.put(file.getName(), files);
+		}
+
+		files.add(file);
+	}
+
+	private void remove(final IFile file) {
+		final Set<IFile> files = fFiles.get(file.getName());
+		if (files != null) {
+			files.remove(file);
+			if (files.isEmpty())
+				fFiles.remove(file.getName());
+		}
+	}
+
+	private void removeProject(final IProject project) {
+		for (final Set<IFile> files : fFiles.values()) {
+			for (final IFile file : files) {
+				if (project.equals(file.getProject()))
+					remove(file);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void resourceChanged(final IResourceChangeEvent event) {
+		if (event.getDelta() == null)
+			return;
+
+		try {
+			event.getDelta().accept(new IResourceDeltaVisitor() {
+
+				@Override
+				public boolean visit(final IResourceDelta delta) throws CoreException {
+					final IResource resource = delta.getResource();
+
+					if (resource instanceof IFile) {
+						if (delta.getKind() == IResourceDelta.ADDED)
+							add(fFiles, (IFile) resource);
+
+						else if (delta.getKind() == IResourceDelta.REMOVED)
+							remove((IFile) resource);
+
+						return false;
+					}
+
+					if ((resource instanceof IProject) && ((delta.getFlags() & IResourceDelta.OPEN) != 0)) {
+						// project got opened or closed, no child deltas available
+						removeProject((IProject) resource);
+						addContainer(fFiles, resource);
+						return false;
+					}
+
+					return true;
+				}
+			});
+
+			fUpdates++;
+
+		} catch (final CoreException e) {
+			Logger.error(PluginConstants.PLUGIN_ID, "Could not update workspace file index", e);
+		}
+	}
+
+	/**
+	 * Find all indexed files matching a given name pattern.
+	 *
+	 * @param namePattern
+	 *            pattern for file names
+	 * @param excludes
+	 *            pattern for workspace relative paths to exclude. May be <code>null</code>
+	 * @return matching files
+	 */
+	public List<IFile> find(final Pattern namePattern, final Pattern excludes) {
+		final List<IFile> result = new ArrayList<IFile>();
+
+		final Map<String, Set<IFile>> index = fFiles;
+		for (final Entry<String, Set<IFile>> entry : index.entrySet()) {
+			if (namePattern.matcher(entry.getKey()).matches()) {
+				for (final IFile file : entry.getValue()) {
+					if ((excludes == null) || (!excludes.matcher(file.getFullPath().makeRelative().toString()).matches()))
+						result.add(file);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get index statistics.
+	 *
+	 * @return map containing amount of indexed files and names, the time needed to build the index in [ms], the time of the last build and the amount of
+	 *         processed resource deltas
+	 */
+	public synchronized Map<String, Object> getStatistics() {
+		int files = 0;
+		for (final Set<IFile> entry : fFiles.values())
+			files += entry.size();
+
+		final Map<String, Object> statistics = new HashMap<String, Object>();
+		statistics.put("files", files);
+		statistics.put("names", fFiles.size());
+		statistics.put("buildTime", fBuildTime);
+		statistics.put("lastBuild", fLastBuild);
+		statistics.put("updates", fUpdates);
+
+		return statistics;
+	}
+}
@@ -29,12 +29,12 @@ public class ResourcesCompletionProvider extends AbstractFileLocationCompletionP
 			if (context.getLoadedModules().contains(getModule(ResourcesModule.MODULE_ID))) {
 
 				// simple methods
-				if (context.getCaller().endsWith("copyFile") || context.getCaller().endsWith("createFile") || context.getCaller().endsWith("createFolder")
-						|| context.getCaller().endsWith("deleteFile") || context.getCaller().endsWith("deleteFolder")
+				if (context.getCaller().endsWith("copyFile") || context.getCaller().endsWith("copyFolder") || context.getCaller().endsWith("createFile")
+						|| context.getCaller().endsWith("createFolder") || context.getCaller().endsWith("deleteFile") || context.getCaller().endsWith("deleteFolder")
 						|| context.getCaller().endsWith("fileExists"))
 					return true;
 
-				if ((context.getCaller().endsWith("findFiles")) && (context.getParameterOffset() == 1))
+				if (((context.getCaller().endsWith("findFiles")) || (context.getCaller().endsWith("findFilesAsync"))) && (context.getParameterOffset() == 1))
 					return true;
 				if ((context.getCaller().endsWith("getFile")) && (context.getParameterOffset() == 0))
 					return true;
@@ -44,6 +44,8 @@ public class ResourcesCompletionProvider extends AbstractFileLocationCompletionP
 					return true;
 				if ((context.getCaller().endsWith("writeFile")) && (context.getParameterOffset() == 0))
 					return true;
+				if ((context.getCaller().endsWith("tailFile")) && (context.getParameterOffset() == 0))
+					return true;
 				if ((context.getCaller().endsWith("createProblemMarker")) && (context.getParameterOffset() == 1))
 					return true;
 			}
@@ -71,7 +73,8 @@ public class ResourcesCompletionProvider extends AbstractFileLocationCompletionP
 		if ((caller.endsWith("showEditor")) || (caller.endsWith("openEditor")))
 			return !isFileSystemResource(candidate);
 
-		if ((caller.endsWith("createFile")) || (caller.endsWith("createFolder")) || (caller.endsWith("deleteFolder")) || (caller.endsWith("findFiles")))
+		if ((caller.endsWith("createFile")) || (caller.endsWith("createFolder")) || (caller.endsWith("deleteFolder")) || (caller.endsWith("findFiles"))
+				|| (caller.endsWith("findFilesAsync")))
 			return !isFile(candidate);
 
 		return super.showCandidate(candidate);
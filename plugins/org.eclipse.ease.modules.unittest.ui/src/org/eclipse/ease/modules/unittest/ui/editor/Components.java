@@ -58,10 +58,13 @@ public class Components extends AbstractEditorPage {
 	// UI elements
 	private ContainerCheckedTreeViewer fTestTree;
 	private Spinner spinner;
+	private Spinner spnShards;
 	private Combo combo;
 	private Button btnPromoteErrorsToFailures;
 	private Button btnStopSuiteOnFailure;
 	private Button fbutton;
+	private Button btnLongestFirst;
+	private Button btnReuseEngines;
 
 	/**
 	 * Create the form page.
@@ -106,7 +109,7 @@ public class Components extends AbstractEditorPage {
 
 		final Section sctnIncludedTests = managedForm.getToolkit().createSection(managedForm.getForm().getBody(), ExpandableComposite.TITLE_BAR);
 		sctnIncludedTests.setDescription("");
-		sctnIncludedTests.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 1, 7));
+		sctnIncludedTests.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 1, 10));
 		managedForm.getToolkit().paintBordersFor(sctnIncludedTests);
 		sctnIncludedTests.setText("Included Tests");
 
@@ -215,6 +218,30 @@ public class Components extends AbstractEditorPage {
 		managedForm.getToolkit().createLabel(managedForm.getForm().getBody(), "instances in parallel", SWT.NONE);
 		new Label(managedForm.getForm().getBody(), SWT.NONE);
 
+		managedForm.getToolkit().createLabel(managedForm.getForm().getBody(), "Split into", SWT.NONE);
+
+		spnShards = new Spinner(managedForm.getForm().getBody(), SWT.BORDER);
+		spnShards.setToolTipText("Executes test files in separate processes, balanced by the runtimes of previous runs. Use 1 to run all tests in this process.");
+		spnShards.setLayoutData(new GridData(SWT.FILL, SWT.TOP, false, false, 1, 1));
+		spnShards.setMinimum(1);
+		spnShards.setSelection(1);
+		managedForm.getToolkit().adapt(spnShards);
+		managedForm.getToolkit().paintBordersFor(spnShards);
+		spnShards.addModifyListener(new ModifyListener() {
+			@Override
+			public void modifyText(final ModifyEvent e) {
+
+				final int shards = getModel().getFlag(TestSuiteModel.FLAG_SHARDS, 1);
+				if (spnShards.getSelection() != shards) {
+					getModel().setFlag(TestSuiteModel.FLAG_SHARDS, spnShards.getSelection());
+					setDirty();
+				}
+			}
+		});
+
+		managedForm.getToolkit().createLabel(managedForm.getForm().getBody(), "processes (shards)", SWT.NONE);
+		new Label(managedForm.getForm().getBody(), SWT.NONE);
+
 		final Label lblTestVisualization = new Label(managedForm.getForm().getBody(), SWT.NONE);
 		lblTestVisualization.setLayoutData(new GridData(SWT.LEFT, SWT.CENTER, false, false, 3, 1));
 		managedForm.getToolkit().adapt(lblTestVisualization, true, true);
@@ -273,6 +300,30 @@ public class Components extends AbstractEditorPage {
 			}
 		});
 		fbutton.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 3, 1));
+		new Label(managedForm.getForm().getBody(), SWT.NONE);
+
+		btnLongestFirst = managedForm.getToolkit().createButton(managedForm.getForm().getBody(), "Run longest tests first", SWT.CHECK);
+		btnLongestFirst.setToolTipText("Starts test files with the longest runtime of previous runs first. Reduces the overall runtime of parallel execution.");
+		btnLongestFirst.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				getModel().setFlag(TestSuiteModel.FLAG_LONGEST_FIRST, btnLongestFirst.getSelection());
+				setDirty();
+			}
+		});
+		btnLongestFirst.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 3, 1));
+		new Label(managedForm.getForm().getBody(), SWT.NONE);
+
+		btnReuseEngines = managedForm.getToolkit().createButton(managedForm.getForm().getBody(), "Reuse script engines", SWT.CHECK);
+		btnReuseEngines.setToolTipText("Keeps script engines alive and resets them between test files. Speeds up suites with many short test files.");
+		btnReuseEngines.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(final SelectionEvent e) {
+				getModel().setFlag(TestSuiteModel.FLAG_REUSE_ENGINES, btnReuseEngines.getSelection());
+				setDirty();
+			}
+		});
+		btnReuseEngines.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 3, 1));
 
 		fTestTree.setInput(getModel().getFile().getProject());
 
@@ -313,9 +364,12 @@ public class Components extends AbstractEditorPage {
 
 		final int maxThreads = model.getFlag(TestSuiteModel.FLAG_MAX_THREADS, 1);
 		spinner.setSelection(maxThreads);
+		spnShards.setSelection(model.getFlag(TestSuiteModel.FLAG_SHARDS, 1));
 
 		btnPromoteErrorsToFailures.setSelection(model.getFlag(TestSuiteModel.FLAG_PROMOTE_ERRORS_TO_FAILURES, false));
 		btnStopSuiteOnFailure.setSelection(model.getFlag(TestSuiteModel.FLAG_STOP_SUITE_ON_FAILURE, false));
+		btnLongestFirst.setSelection(model.getFlag(TestSuiteModel.FLAG_LONGEST_FIRST, false));
+		btnReuseEngines.setSelection(model.getFlag(TestSuiteModel.FLAG_REUSE_ENGINES, false));
 	}
 
 	@Override
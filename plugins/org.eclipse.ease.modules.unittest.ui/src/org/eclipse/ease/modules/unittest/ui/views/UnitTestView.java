@@ -28,6 +28,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.ease.debugging.IScriptDebugFrame;
 import org.eclipse.ease.modules.platform.UIModule;
 import org.eclipse.ease.modules.unittest.ITestListener;
+import org.eclipse.ease.modules.unittest.components.SuiteRuntimeInformation;
 import org.eclipse.ease.modules.unittest.components.Test;
 import org.eclipse.ease.modules.unittest.components.TestComposite;
 import org.eclipse.ease.modules.unittest.components.TestFile;
@@ -757,7 +758,7 @@ public class UnitTestView extends ViewPart implements ITestListener, IConsoleLis
 			}
 
 			fFileTreeViewer.setInput(new Object[] { suite });
-			fRuntimeInformation = new SuiteRuntimeInformation(suite);
+			fRuntimeInformation = suite.getRuntimeInformation();
 
 			// update source provider
 			final TestSuiteSource instance = TestSuiteSource.getActiveInstance();
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ease.modules.unittest.components.TestFile;
+import org.eclipse.ease.modules.unittest.components.TestStatus;
+import org.eclipse.ease.modules.unittest.components.TestSuite;
+import org.eclipse.ease.modules.unittest.reporters.JUnitReportGenerator;
+import org.eclipse.ease.modules.unittest.reporters.JsonLinesReporter;
+import org.eclipse.ease.tools.ResourceTools;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless application to run a test suite without a workbench. Results are streamed while the suite is running. Usage:
+ *
+ * <pre>
+ * eclipse -application org.eclipse.ease.modules.unittest.testrunner -data &lt;workspace&gt; -suite &lt;suite file&gt; [-threads &lt;count&gt;]
+ *         [-shards &lt;count&gt;] [-files &lt;file&gt;] [-json &lt;file&gt;] [-junit &lt;folder&gt;]
+ * </pre>
+ *
+ * <dl>
+ * <dt>-suite</dt>
+ * <dd>suite file as workspace location or file system path. When located in a project not yet known to the workspace, the project gets imported.</dd>
+ * <dt>-threads</dt>
+ * <dd>amount of test files executed in parallel, overrides the setting of the suite</dd>
+ * <dt>-shards</dt>
+ * <dd>amount of child processes to split test files to, overrides the setting of the suite</dd>
+ * <dt>-files</dt>
+ * <dd>text file containing test file locations to execute, one per line. Other test files of the suite are skipped. Used to execute a single shard.</dd>
+ * <dt>-json</dt>
+ * <dd>file to stream JSON lines to, see {@link JsonLinesReporter}. Use "-" for stdout (default).</dd>
+ * <dt>-junit</dt>
+ * <dd>folder to write a JUnit XML report to for each finished test file</dd>
+ * </dl>
+ * The application exits with {@link #EXIT_PASS} when all tests passed, {@link #EXIT_FAILED} when tests failed and {@link #EXIT_ERROR} when the suite could
+ * not be executed.
+ */
+public class TestSuiteApplication implements IApplication {
+
+	public static final String APPLICATION_ID = Bundle.PLUGIN_ID + ".testrunner";
+
+	public static final String ARGUMENT_SUITE = "-suite";
+	public static final String ARGUMENT_THREADS = "-threads";
+	public static final String ARGUMENT_SHARDS = "-shards";
+	public static final String ARGUMENT_FILES = "-files";
+	public static final String ARGUMENT_JSON = "-json";
+	public static final String ARGUMENT_JUNIT = "-junit";
+
+	public static final Integer EXIT_PASS = 0;
+	public static final Integer EXIT_FAILED = 1;
+	public static final Integer EXIT_ERROR = 2;
+
+	private static final String STDOUT = "-";
+
+	private static final String USAGE = "Usage: -suite <suite file> [-threads <count>] [-shards <count>] [-files <file>] [-json <file>] [-junit <folder>]";
+
+	private TestSuite fTestSuite = null;
+
+	@Override
+	public Object start(final IApplicationContext context) throws Exception {
+		final String[] arguments = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+
+		String suiteLocation = null;
+		int threads = 0;
+		int shards = 0;
+		String filesLocation = null;
+		String jsonLocation = STDOUT;
+		String junitLocation = null;
+
+		for (int index = 0; index < arguments.length - 1; index++) {
+			if (ARGUMENT_SUITE.equals(arguments[index]))
+				suiteLocation = arguments[++index];
+
+			else if (ARGUMENT_THREADS.equals(arguments[index])) {
+				threads = parseCount(arguments[++index]);
+				if (threads <= 0)
+					return usageError("Invalid parameter: " + ARGUMENT_THREADS + " " + arguments[index]);
+
+			} else if (ARGUMENT_SHARDS.equals(arguments[index])) {
+				shards = parseCount(arguments[++index]);
+				if (shards <= 0)
+					return usageError("Invalid parameter: " + ARGUMENT_SHARDS + " " + arguments[index]);
+
+			} else if (ARGUMENT_FILES.equals(arguments[index]))
+				filesLocation = arguments[++index];
+
+			else if (ARGUMENT_JSON.equals(arguments[index]))
+				jsonLocation = arguments[++index];
+
+			else if (ARGUMENT_JUNIT.equals(arguments[index]))
+				junitLocation = arguments[++index];
+		}
+
+		if (suiteLocation == null)
+			return usageError("Missing parameter: " + ARGUMENT_SUITE + " <suite file>");
+
+		final IFile suiteFile = resolveSuite(suiteLocation);
+		if (suiteFile == null) {
+			System.err.println("Test suite not found: " + suiteLocation);
+			return EXIT_ERROR;
+		}
+
+		final TestSuite testSuite = new TestSuite(suiteFile);
+		// overrides survive the model reload when the suite gets executed
+		if (threads > 0)
+			testSuite.setMaxThreads(threads);
+
+		ITestSetFilter filter = ITestSetFilter.ALL;
+		if (filesLocation != null) {
+			// execute a single shard, never split it any further
+			final Set<String> locations = readLocations(filesLocation);
+			filter = new ITestSetFilter() {
+
+				@Override
+				public boolean matches(final TestFile testFile) {
+					return locations.contains(testFile.getLocation());
+				}
+			};
+
+			testSuite.setShards(1);
+
+		} else if (shards > 0)
+			testSuite.setShards(shards);
+
+		// stream JSON results
+		final Writer jsonOutput;
+		if (STDOUT.equals(jsonLocation)) {
+			jsonOutput = new OutputStreamWriter(System.out, "UTF-8");
+
+			// keep script output away from the result stream
+			testSuite.setOutputStream(System.err);
+
+		} else
+			jsonOutput = new OutputStreamWriter(new FileOutputStream(jsonLocation), "UTF-8");
+
+		testSuite.addTestListener(new JsonLinesReporter(jsonOutput));
+
+		// write JUnit reports
+		if (junitLocation != null) {
+			final File junitFolder = new File(junitLocation);
+			junitFolder.mkdirs();
+			testSuite.addTestListener(new ITestListener() {
+
+				@Override
+				public void notify(final Object testObject, final TestStatus status) {
+					if ((testObject instanceof TestFile) && (status != TestStatus.RUNNING) && (status != TestStatus.NOT_RUN))
+						writeJUnitReport((TestFile) testObject, junitFolder);
+				}
+			});
+		}
+
+		// wait for the suite to finish
+		final CountDownLatch done = new CountDownLatch(1);
+		testSuite.addTestListener(new ITestListener() {
+
+			@Override
+			public void notify(final Object testObject, final TestStatus status) {
+				if ((testObject == testSuite) && (status != TestStatus.RUNNING) && (status != TestStatus.NOT_RUN))
+					done.countDown();
+			}
+		});
+
+		fTestSuite = testSuite;
+		testSuite.run(filter);
+
+		// the suite job might fail without reporting the suite as finished
+		Job.getJobManager().join(testSuite, null);
+
+		jsonOutput.flush();
+		if (!STDOUT.equals(jsonLocation))
+			jsonOutput.close();
+
+		testSuite.getModel().close();
+
+		if (done.getCount() > 0) {
+			System.err.println("Test suite execution failed, see the error log for details");
+			return EXIT_ERROR;
+		}
+
+		return (testSuite.getStatus() == TestStatus.PASS) ? EXIT_PASS : EXIT_FAILED;
+	}
+
+	@Override
+	public void stop() {
+		final TestSuite testSuite = fTestSuite;
+		if (testSuite != null)
+			testSuite.terminate();
+	}
+
+	private static Integer usageError(final String message) {
+		System.err.println(message);
+		System.err.println(USAGE);
+
+		return EXIT_ERROR;
+	}
+
+	/**
+	 * Parse a count argument.
+	 *
+	 * @param value
+	 *            argument value
+	 * @return parsed count or -1 for invalid values
+	 */
+	private static int parseCount(final String value) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static Set<String> readLocations(final String fileName) throws IOException {
+		final Set<String> locations = new HashSet<String>();
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.trim().isEmpty())
+					locations.add(line.trim());
+			}
+		} finally {
+			reader.close();
+		}
+
+		return locations;
+	}
+
+	/**
+	 * Get the file name of a JUnit report. Characters not allowed in file names are escaped, including the escape character itself, so distinct locations
+	 * never share a report.
+	 *
+	 * @param location
+	 *            test file location
+	 * @return report file name
+	 */
+	static String getReportName(final String location) {
+		final StringBuilder name = new StringBuilder();
+		for (final char character : location.toCharArray()) {
+			if (((character >= 'a') && (character <= 'z')) || ((character >= 'A') && (character <= 'Z')) || ((character >= '0') && (character <= '9'))
+					|| (character == '.') || (character == '-'))
+				name.append(character);
+			else
+				name.append(String.format("_%04x", (int) character));
+		}
+
+		return name.append(".xml").toString();
+	}
+
+	private static void writeJUnitReport(final TestFile testFile, final File folder) {
+		try {
+			final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(folder, getReportName(testFile.getLocation()))), "UTF-8");
+			try {
+				writer.write(new JUnitReportGenerator().createReport(testFile));
+			} finally {
+				writer.close();
+			}
+		} catch (final IOException e) {
+			System.err.println("Could not write JUnit report for " + testFile.getLocation() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Resolve a suite file. File system locations outside of the workspace are imported by adding the enclosing project to the workspace.
+	 *
+	 * @param location
+	 *            suite location
+	 * @return suite file or <code>null</code>
+	 * @throws CoreException
+	 *             when the enclosing project cannot be imported
+	 */
+	private static IFile resolveSuite(final String location) throws CoreException {
+		final Object file = ResourceTools.resolveFile(location, null, true);
+		if (file instanceof IFile)
+			return (IFile) file;
+
+		if (file instanceof File) {
+			final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+			IFile[] files = workspace.getRoot().findFilesForLocationURI(((File) file).toURI());
+			if (files.length > 0)
+				return files[0];
+
+			// look for the enclosing project
+			File folder = ((File) file).getAbsoluteFile().getParentFile();
+			while ((folder != null) && (!new File(folder, IProjectDescription.DESCRIPTION_FILE_NAME).exists()))
+				folder = folder.getParentFile();
+
+			if (folder != null) {
+				final IProjectDescription description = workspace.loadProjectDescription(new Path(new File(folder,
+						IProjectDescription.DESCRIPTION_FILE_NAME).getAbsolutePath()));
+
+				// projects located in the workspace folder use the default location
+				final IPath projectLocation = new Path(folder.getAbsolutePath());
+				description.setLocation(workspace.getRoot().getLocation().equals(projectLocation.removeLastSegments(1)) ? null : projectLocation);
+
+				final IProject project = workspace.getRoot().getProject(description.getName());
+				if (!project.exists())
+					project.create(description, null);
+
+				project.open(null);
+
+				files = workspace.getRoot().findFilesForLocationURI(((File) file).toURI());
+				if (files.length > 0)
+					return files[0];
+			}
+		}
+
+		return null;
+	}
+}
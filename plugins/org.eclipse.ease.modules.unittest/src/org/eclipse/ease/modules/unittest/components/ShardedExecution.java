@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest.components;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.ease.debugging.IScriptDebugFrame;
+import org.eclipse.ease.modules.platform.Future;
+import org.eclipse.ease.modules.platform.IProcessListener;
+import org.eclipse.ease.modules.unittest.Bundle;
+import org.eclipse.ease.modules.unittest.TestSuiteApplication;
+import org.eclipse.ease.modules.unittest.reporters.JsonLinesParser;
+import org.eclipse.ease.modules.unittest.reporters.JsonLinesReporter;
+
+/**
+ * Executes test files of a suite in child processes. Test files are split into shards balanced by their recorded runtimes. Each shard runs the
+ * {@link TestSuiteApplication} in its own JVM using a private workspace. Results are streamed back as JSON lines and merged into the test files of the
+ * local suite as soon as they arrive.
+ */
+public class ShardedExecution {
+
+	/** Amount of characters kept of the error stream of a shard. */
+	private static final int ERROR_BUFFER_SIZE = 4096;
+
+	/** Interval to check for suite termination [ms]. */
+	private static final long POLL_INTERVAL = 200;
+
+	private class Shard implements IProcessListener {
+
+		private final int fIndex;
+		private final List<TestFile> fTestFiles;
+		private Future fProcess = null;
+		private List<Test> fSuiteTests = null;
+
+		public Shard(final int index, final List<TestFile> testFiles) {
+			fIndex = index;
+			fTestFiles = testFiles;
+		}
+
+		@Override
+		public void lineReceived(final Future process, final String line, final boolean error) {
+			if (error) {
+				forward(fTestSuite.getErrorStream(), line);
+				return;
+			}
+
+			if (line.startsWith("{")) {
+				try {
+					final Map<?, ?> entry = (Map<?, ?>) JsonLinesParser.parse(line);
+
+					if (JsonLinesReporter.TYPE_TESTFILE.equals(entry.get("type"))) {
+						applyTestFileEntry(entry);
+						return;
+
+					} else if (JsonLinesReporter.TYPE_TESTSUITE.equals(entry.get("type"))) {
+						final List<Test> tests = createTests(fTestSuite, entry, getName() + ": ");
+						synchronized (this) {
+							fSuiteTests = tests;
+						}
+						return;
+					}
+
+				} catch (final RuntimeException e) {
+					// no valid result entry, forward as plain output. Never let this escape, it would stop reading the output of the shard
+				}
+			}
+
+			// script output of the shard
+			forward(fTestSuite.getOutputStream(), line);
+		}
+
+		private synchronized List<Test> getSuiteTests() {
+			return fSuiteTests;
+		}
+
+		private String getName() {
+			return "Shard " + (fIndex + 1);
+		}
+	}
+
+	private final TestSuite fTestSuite;
+	private final Map<String, TestFile> fTestFiles = new HashMap<String, TestFile>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param testSuite
+	 *            suite to report results to
+	 */
+	public ShardedExecution(final TestSuite testSuite) {
+		fTestSuite = testSuite;
+	}
+
+	/**
+	 * Split test files into shards with similar total runtime. Uses a longest processing time first distribution: files are sorted by runtime and each file is
+	 * assigned to the shard with the lowest total runtime so far.
+	 *
+	 * @param testFiles
+	 *            test files to distribute
+	 * @param runtimes
+	 *            expected runtime for each test file
+	 * @param shardCount
+	 *            maximum amount of shards
+	 * @return shards, empty shards are omitted
+	 */
+	public static List<List<TestFile>> createShards(final List<TestFile> testFiles, final Map<TestFile, Long> runtimes, final int shardCount) {
+		final List<TestFile> sortedFiles = new ArrayList<TestFile>(testFiles);
+		Collections.sort(sortedFiles, new Comparator<TestFile>() {
+
+			@Override
+			public int compare(final TestFile first, final TestFile second) {
+				return runtimes.get(second).compareTo(runtimes.get(first));
+			}
+		});
+
+		final List<List<TestFile>> shards = new ArrayList<List<TestFile>>();
+		final long[] loads = new long[Math.max(1, Math.min(shardCount, sortedFiles.size()))];
+		for (int index = 0; index < loads.length; index++)
+			shards.add(new ArrayList<TestFile>());
+
+		for (final TestFile testFile : sortedFiles) {
+			int target = 0;
+			for (int index = 1; index < loads.length; index++) {
+				if (loads[index] < loads[target])
+					target = index;
+			}
+
+			shards.get(target).add(testFile);
+			loads[target] += runtimes.get(testFile);
+		}
+
+		for (int index = shards.size() - 1; index >= 0; index--) {
+			if (shards.get(index).isEmpty())
+				shards.remove(index);
+		}
+
+		return shards;
+	}
+
+	/**
+	 * Execute test files in child processes and wait for their termination. Suite setup and teardown code is executed in each shard.
+	 *
+	 * @param testFiles
+	 *            test files to execute
+	 * @param shardCount
+	 *            maximum amount of child processes
+	 * @param monitor
+	 *            progress monitor to check for cancellation
+	 * @throws IOException
+	 *             when child processes cannot be started
+	 */
+	public void run(final List<TestFile> testFiles, final int shardCount, final IProgressMonitor monitor) throws IOException {
+		final IPath suiteLocation = fTestSuite.getModel().getFile().getLocation();
+		if (suiteLocation == null)
+			throw new IOException("Test suite is not located in the local file system");
+
+		final SuiteRuntimeInformation runtimeInformation = fTestSuite.getRuntimeInformation();
+		final Map<TestFile, Long> runtimes = new HashMap<TestFile, Long>();
+		for (final TestFile testFile : testFiles) {
+			fTestFiles.put(testFile.getLocation(), testFile);
+			runtimes.put(testFile, runtimeInformation.getEstimatedRuntime(testFile));
+		}
+
+		final List<Shard> shards = new ArrayList<Shard>();
+		for (final List<TestFile> shardFiles : createShards(testFiles, runtimes, shardCount))
+			shards.add(new Shard(shards.size(), shardFiles));
+
+		final File folder = File.createTempFile("ease_shards", "");
+		if ((!folder.delete()) || (!folder.mkdirs()))
+			throw new IOException("Cannot create folder " + folder);
+
+		try {
+			// launch shards
+			final List<String> launchCommand = createLaunchCommand();
+			for (final Shard shard : shards) {
+				final File filesList = new File(folder, "shard" + shard.fIndex + ".txt");
+				final Writer writer = new OutputStreamWriter(new FileOutputStream(filesList), "UTF-8");
+				try {
+					for (final TestFile testFile : shard.fTestFiles)
+						writer.write(testFile.getLocation() + "\n");
+				} finally {
+					writer.close();
+				}
+
+				final List<String> command = new ArrayList<String>(launchCommand);
+				command.add("-data");
+				command.add(new File(folder, "workspace" + shard.fIndex).getAbsolutePath());
+				command.add(TestSuiteApplication.ARGUMENT_SUITE);
+				command.add(suiteLocation.toOSString());
+				command.add(TestSuiteApplication.ARGUMENT_FILES);
+				command.add(filesList.getAbsolutePath());
+				command.add(TestSuiteApplication.ARGUMENT_JSON);
+				command.add("-");
+
+				try {
+					shard.fProcess = new Future(new ProcessBuilder(command).start(), null, 0, ERROR_BUFFER_SIZE, shard);
+				} catch (final IOException e) {
+					shard.fProcess = new Future(e);
+				}
+			}
+
+			// wait for shards to terminate
+			for (final Shard shard : shards) {
+				while (!shard.fProcess.join(POLL_INTERVAL)) {
+					if ((fTestSuite.isTerminated()) || (monitor.isCanceled())) {
+						for (final Shard runningShard : shards) {
+							if (runningShard.fProcess != null)
+								runningShard.fProcess.kill();
+						}
+					}
+				}
+			}
+
+			// merge suite results, killed shards are no failures when the user stopped the suite
+			final boolean terminated = (fTestSuite.isTerminated()) || (monitor.isCanceled());
+			for (final Shard shard : shards)
+				applySuiteResults(shard, terminated);
+
+		} finally {
+			delete(folder);
+		}
+	}
+
+	private static void forward(final OutputStream output, final String line) {
+		synchronized (output) {
+			try {
+				output.write((line + Bundle.LINE_DELIMITER).getBytes());
+				output.flush();
+			} catch (final IOException e) {
+				// output not available, ignore
+			}
+		}
+	}
+
+	/**
+	 * Apply a test file entry to its local test file. The entry is fully parsed before the test file gets modified.
+	 *
+	 * @param entry
+	 *            parsed test file entry
+	 * @throws RuntimeException
+	 *             when the entry is malformed
+	 */
+	private void applyTestFileEntry(final Map<?, ?> entry) {
+		final TestFile testFile = fTestFiles.get(entry.get("location"));
+		if (testFile != null) {
+			final List<Test> tests = createTests(testFile, entry, "");
+			final TestStatus status = getStatus(entry);
+
+			testFile.setExecutionResult(status, getLong(entry, "start"), getLong(entry, "time"), tests);
+		}
+	}
+
+	private void applySuiteResults(final Shard shard, final boolean terminated) {
+		final List<Test> suiteTests = shard.getSuiteTests();
+		if (suiteTests != null) {
+			// suite setup & teardown results of the shard
+			for (final Test test : suiteTests)
+				fTestSuite.addExecutedTest(test);
+		}
+
+		if (terminated)
+			// test files not reported by the shard stay NOT_RUN, like skipped files of a local execution
+			return;
+
+		final int exitCode = shard.fProcess.getExitCode();
+		if ((suiteTests == null) || ((exitCode != TestSuiteApplication.EXIT_PASS) && (exitCode != TestSuiteApplication.EXIT_FAILED))) {
+			final String message = shard.getName() + " terminated with exit code " + exitCode + ": " + shard.fProcess.getError().trim();
+
+			fTestSuite.addTest(new Test(fTestSuite, "[" + shard.getName() + "]", true));
+			fTestSuite.addTestResult(TestStatus.FAILURE, message);
+			fTestSuite.endTest();
+
+			// report test files that did not get executed
+			for (final TestFile testFile : shard.fTestFiles) {
+				if (testFile.getStatus() == TestStatus.NOT_RUN) {
+					final Test test = new Test(testFile, "[" + shard.getName() + "]", true);
+					test.addMessage(new TestResult(TestStatus.FAILURE, "Test file not executed. " + message, Collections.<IScriptDebugFrame> emptyList()));
+					test.setStatus(TestStatus.FAILURE);
+
+					testFile.setExecutionResult(TestStatus.FAILURE, 0, 0, Collections.singletonList(test));
+				}
+			}
+		}
+	}
+
+	private static List<Test> createTests(final TestComposite parent, final Map<?, ?> entry, final String titlePrefix) {
+		final List<Test> tests = new ArrayList<Test>();
+		for (final Object testEntry : getList(entry, "tests"))
+			tests.add(createTest(parent, (Map<?, ?>) testEntry, titlePrefix));
+
+		return tests;
+	}
+
+	private static Test createTest(final TestComposite parent, final Map<?, ?> entry, final String titlePrefix) {
+		final Test test = new Test(parent, titlePrefix + entry.get("title"), Boolean.TRUE.equals(entry.get("transient")));
+
+		for (final Object messageEntry : getList(entry, "messages")) {
+			final Map<?, ?> message = (Map<?, ?>) messageEntry;
+			test.addMessage(new TestResult(getStatus(message), (String) message.get("message"), Collections.<IScriptDebugFrame> emptyList()));
+		}
+
+		final long startTime = getLong(entry, "start");
+		test.setExecutionTime(startTime, startTime + getLong(entry, "time"));
+		test.setStatus(getStatus(entry));
+
+		return test;
+	}
+
+	private static TestStatus getStatus(final Map<?, ?> entry) {
+		final Object status = entry.get("status");
+		if (!(status instanceof String))
+			throw new IllegalArgumentException("Missing status");
+
+		return TestStatus.valueOf((String) status);
+	}
+
+	private static List<?> getList(final Map<?, ?> entry, final String key) {
+		final Object value = entry.get(key);
+		if (!(value instanceof List<?>))
+			throw new IllegalArgumentException("Missing list \"" + key + "\"");
+
+		return (List<?>) value;
+	}
+
+	private static long getLong(final Map<?, ?> entry, final String key) {
+		final Object value = entry.get(key);
+		return (value instanceof Number) ? ((Number) value).longValue() : 0;
+	}
+
+	/**
+	 * Create the command to launch a child instance of the running application. Prefers the native launcher which reads its VM arguments from the ini file.
+	 * Otherwise the JVM gets started with the VM arguments of the running instance.
+	 *
+	 * @return command to launch the test runner application
+	 * @throws IOException
+	 *             when the launch command cannot be detected
+	 */
+	private static List<String> createLaunchCommand() throws IOException {
+		final List<String> command = new ArrayList<String>();
+
+		final String launcher = System.getProperty("eclipse.launcher");
+		if ((launcher != null) && (new File(launcher).canExecute())) {
+			command.add(launcher);
+			command.add("--launcher.suppressErrors");
+
+		} else {
+			final String vmArguments = System.getProperty("eclipse.vmargs");
+			if ((vmArguments == null) || (!vmArguments.contains("-jar")))
+				throw new IOException("Cannot detect how to launch shard processes: neither eclipse.launcher nor eclipse.vmargs are available");
+
+			command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getAbsolutePath());
+			for (final String argument : vmArguments.split("\n")) {
+				if (!argument.trim().isEmpty())
+					command.add(argument.trim());
+			}
+		}
+
+		command.add("-nosplash");
+		command.add("-application");
+		command.add(TestSuiteApplication.APPLICATION_ID);
+
+		return command;
+	}
+
+	private static void delete(final File file) {
+		final File[] children = file.listFiles();
+		if (children != null) {
+			for (final File child : children)
+				delete(child);
+		}
+
+		file.delete();
+	}
+}
@@ -8,7 +8,7 @@
  * Contributors:
  *     Christian Pontesegger - initial API and implementation
  *******************************************************************************/
-package org.eclipse.ease.modules.unittest.ui.views;
+package org.eclipse.ease.modules.unittest.components;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -24,14 +24,15 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.ease.modules.unittest.Bundle;
 import org.eclipse.ease.modules.unittest.ITestListener;
-import org.eclipse.ease.modules.unittest.components.TestFile;
-import org.eclipse.ease.modules.unittest.components.TestStatus;
-import org.eclipse.ease.modules.unittest.components.TestSuite;
-import org.eclipse.ease.modules.unittest.ui.Activator;
 import org.eclipse.ui.IMemento;
 import org.eclipse.ui.XMLMemento;
 
+/**
+ * Runtime history of test files. Keeps the last runtimes of each test file to estimate the runtime of upcoming test runs.
+ */
 public class SuiteRuntimeInformation implements ITestListener {
 
 	private static final String XML_PARAMETER_TIMING = "timing";
@@ -130,7 +131,8 @@ public class SuiteRuntimeInformation implements ITestListener {
 		} catch (final Exception e) {
 		} finally {
 			try {
-				outputStream.close();
+				if (outputStream != null)
+					outputStream.close();
 			} catch (final IOException e) {
 			}
 		}
@@ -175,16 +177,14 @@ public class SuiteRuntimeInformation implements ITestListener {
 	}
 
 	private File getSettingsFile() {
-		final IPath path = Activator.getDefault().getStateLocation().append("timing_" + fTestSuite.getModel().getFile().getProject().hashCode() + ".xml");
+		final IPath path = Platform.getStateLocation(Platform.getBundle(Bundle.PLUGIN_ID)).append("timing_" + fTestSuite.getModel().getFile().getProject().hashCode() + ".xml");
 		return path.toFile();
 	}
 
 	private synchronized void estimateEndOfTests() {
 		long time = 0;
-		for (final TestFile file : fTestFiles) {
-			final RuntimeInformation info = fRuntimes.get(createTestToken(file));
-			time += (info != null) ? info.getEstimatedRuntime() : getAverageTestTime();
-		}
+		for (final TestFile file : fTestFiles)
+			time += getEstimatedRuntime(file);
 
 		fEstimatedEndOfTests = System.currentTimeMillis() + time;
 	}
@@ -207,6 +207,18 @@ public class SuiteRuntimeInformation implements ITestListener {
 		return DEFAULT_RUNTIME;
 	}
 
+	/**
+	 * Get the expected runtime of a test file. Based on previous runs of the file. For files without history the average runtime of all known files is used.
+	 *
+	 * @param testFile
+	 *            test file to get runtime for
+	 * @return expected runtime in [ms]
+	 */
+	public synchronized long getEstimatedRuntime(final TestFile testFile) {
+		final RuntimeInformation info = fRuntimes.get(createTestToken(testFile));
+		return (info != null) ? info.getEstimatedRuntime() : getAverageTestTime();
+	}
+
 	public long getEstimatedTestTime() {
 		return fEstimatedEndOfTests - System.currentTimeMillis();
 	}
@@ -76,6 +76,20 @@ public abstract class TestComposite extends TestEntity implements ITestListener
 		test.setStatus(TestStatus.RUNNING);
 	}
 
+	/**
+	 * Add a test that already got executed elsewhere, eg in a separate process. The test needs to carry its final status and results.
+	 *
+	 * @param test
+	 *            executed test
+	 */
+	public void addExecutedTest(final Test test) {
+		synchronized (fTests) {
+			fTests.add(test);
+		}
+
+		fireTestEvent(test, test.getStatus());
+	}
+
 	public void endTest() {
 		if (fCurrentTest != null) {
 			fCurrentTest.setStatus(TestStatus.PASS);
@@ -91,6 +91,19 @@ public class TestEntity {
 		return fStartTime;
 	}
 
+	/**
+	 * Set execution times of an entity that got executed elsewhere, eg in a separate process. Needs to be called before setting the final status.
+	 *
+	 * @param startTime
+	 *            start time in [ms]
+	 * @param endTime
+	 *            end time in [ms]
+	 */
+	protected void setExecutionTime(final long startTime, final long endTime) {
+		fStartTime = startTime;
+		fEndTime = endTime;
+	}
+
 	public TestComposite getParent() {
 		return fParent;
 	}
@@ -39,143 +39,211 @@ public class TestFile extends TestComposite implements Comparable<TestFile> {
 
 		@Override
 		protected IStatus run(final IProgressMonitor monitor) {
+			return TestFile.this.run(monitor);
+		}
+	}
 
-			final Object testFile = ResourceTools.resolveFile(fFileLocation, getTestSuite().getModel().getFile(), true);
-			if (testFile == null) {
-				// no test file available
-				setStatus(TestStatus.FAILURE);
-				getTestSuite().addTestResult(TestStatus.FAILURE, "Test file \"" + fFileLocation + "\" not found");
-				return Status.CANCEL_STATUS;
-			}
+	private TestFileJob fJob;
+	private final String fFileLocation;
 
-			// clear old tests
-			reset();
-			setStatus(TestStatus.RUNNING);
+	/** Monitor of the current execution, <code>null</code> when not running. */
+	private volatile IProgressMonitor fMonitor = null;
 
-			// setup engine
-			setScriptEngine(getTestSuite().createScriptEngine());
+	public TestFile(final TestSuite suite, final String fileLocation) {
+		super(suite);
+		fFileLocation = fileLocation;
+	}
+
+	public void execute() {
+		fJob = new TestFileJob("TestFile: " + toString());
+		fJob.schedule();
+	}
 
-			// connect output streams
-			getScriptEngine().setOutputStream(getTestSuite().getOutputStream());
-			getScriptEngine().setErrorStream(getTestSuite().getErrorStream());
+	/**
+	 * Execute this test file synchronously in the calling thread. Use {@link #execute()} to run the test file in a background job.
+	 *
+	 * @param monitor
+	 *            progress monitor to check for cancellation
+	 * @return execution status
+	 */
+	public IStatus run(final IProgressMonitor monitor) {
+		return run(monitor, null);
+	}
 
-			// add variables
-			getScriptEngine().setTerminateOnIdle(false);
-			for (final Entry<String, Object> entry : getTestSuite().getVariables().entrySet())
-				if (!entry.getKey().startsWith(EnvironmentModule.MODULE_PREFIX))
-					getScriptEngine().setVariable(entry.getKey(), entry.getValue());
+	/**
+	 * Execute this test file synchronously in the calling thread using a given script engine. The engine gets reset before execution and is kept alive
+	 * afterwards, so it can be reused for further test files.
+	 *
+	 * @param monitor
+	 *            progress monitor to check for cancellation
+	 * @param engine
+	 *            started, idle engine to execute the test file, <code>null</code> to use a dedicated engine which gets terminated afterwards
+	 * @return execution status
+	 */
+	public IStatus run(final IProgressMonitor monitor, final IScriptEngine engine) {
+		final Object testFile = ResourceTools.resolveFile(fFileLocation, getTestSuite().getModel().getFile(), true);
+		if (testFile == null) {
+			// no test file available
+			setStatus(TestStatus.FAILURE);
+			getTestSuite().addTestResult(TestStatus.FAILURE, "Test file \"" + fFileLocation + "\" not found");
+			return Status.CANCEL_STATUS;
+		}
 
-			getScriptEngine().setVariable(CURRENT_TESTCOMPOSITE, TestFile.this);
+		// clear old tests
+		reset();
+		setStatus(TestStatus.RUNNING);
+		fMonitor = monitor;
 
-			// load unit module
-			// TODO make sure this is compatible with any engine
-			getScriptEngine().executeAsync("loadModule('" + UnitTestModule.MODULE_NAME + "')");
+		// setup engine
+		final boolean reuseEngine = (engine != null);
+		if (reuseEngine) {
+			// clear scope of previous test file
+			engine.reset();
+			setScriptEngine(engine);
 
-			// start engine
-			getScriptEngine().schedule();
+		} else
+			setScriptEngine(getTestSuite().createScriptEngine());
 
-			boolean runTeardown = true;
-			try {
-				// check for user abort request
-				if (monitor.isCanceled()) {
-					addTestResult(TestStatus.FAILURE, "Test aborted by user");
-					return Status.CANCEL_STATUS;
-				}
+		// connect output streams
+		getScriptEngine().setOutputStream(getTestSuite().getOutputStream());
+		getScriptEngine().setErrorStream(getTestSuite().getErrorStream());
 
-				// testFile setup()
-				if (!runCodeFragment(TestSuiteModel.CODE_LOCATION_TESTFILE_SETUP, monitor))
-					return Status.OK_STATUS;
+		// add variables
+		getScriptEngine().setTerminateOnIdle(false);
+		for (final Entry<String, Object> entry : getTestSuite().getVariables().entrySet())
+			if (!entry.getKey().startsWith(EnvironmentModule.MODULE_PREFIX))
+				getScriptEngine().setVariable(entry.getKey(), entry.getValue());
 
-				// check for abort request
-				if (monitor.isCanceled()) {
-					addTestResult(TestStatus.FAILURE, "Test aborted by user");
-					return Status.CANCEL_STATUS;
-				}
+		getScriptEngine().setVariable(CURRENT_TESTCOMPOSITE, this);
 
-				// execute test code
-				final ScriptResult testFileResult = getScriptEngine().executeSync(testFile);
-				if (testFileResult.hasException()) {
-					// this is probably an exception due to calling exit()
-					if (!(testFileResult.getException() instanceof ExitException)) {
-						// we had a real exception, inform user
-						addTestResult(TestStatus.FAILURE, TestSuite.getExceptionMessage(testFileResult.getException()));
-						runTeardown = getTestSuite().getModel().getFlag(TestSuiteModel.FLAG_EXECUTE_TEARDOWN_ON_FAILURE, true);
-						return Status.OK_STATUS;
-					}
-				}
+		// load unit module
+		// TODO make sure this is compatible with any engine
+		getScriptEngine().executeAsync("loadModule('" + UnitTestModule.MODULE_NAME + "')");
 
-				// check for abort request
-				if (monitor.isCanceled()) {
-					addTestResult(TestStatus.FAILURE, "Test aborted by user");
-					return Status.CANCEL_STATUS;
-				}
+		// start engine
+		if (!reuseEngine)
+			getScriptEngine().schedule();
+
+		boolean runTeardown = true;
+		try {
+			// check for user abort request
+			if (monitor.isCanceled()) {
+				addTestResult(TestStatus.FAILURE, "Test aborted by user");
+				return Status.CANCEL_STATUS;
+			}
 
-			} catch (final InterruptedException e) {
-				runTeardown = getTestSuite().getModel().getFlag(TestSuiteModel.FLAG_EXECUTE_TEARDOWN_ON_FAILURE, true);
+			// testFile setup()
+			if (!runCodeFragment(TestSuiteModel.CODE_LOCATION_TESTFILE_SETUP, monitor))
+				return Status.OK_STATUS;
+
+			// check for abort request
+			if (monitor.isCanceled()) {
+				addTestResult(TestStatus.FAILURE, "Test aborted by user");
 				return Status.CANCEL_STATUS;
+			}
 
-			} finally {
-				// testFile teardown()
-				if (runTeardown) {
-					try {
-						runCodeFragment(TestSuiteModel.CODE_LOCATION_TESTFILE_TEARDOWN, monitor);
-					} catch (final InterruptedException e) {
-						// TODO handle this exception (but for now, at least know it happened)
-						throw new RuntimeException(e);
-					}
+			// execute test code
+			final ScriptResult testFileResult = getScriptEngine().executeSync(testFile);
+			if (testFileResult.hasException()) {
+				// this is probably an exception due to calling exit()
+				if (!(testFileResult.getException() instanceof ExitException)) {
+					// we had a real exception, inform user
+					addTestResult(TestStatus.FAILURE, TestSuite.getExceptionMessage(testFileResult.getException()));
+					runTeardown = getTestSuite().getModel().getFlag(TestSuiteModel.FLAG_EXECUTE_TEARDOWN_ON_FAILURE, true);
+					return Status.OK_STATUS;
 				}
+			}
+
+			// check for abort request
+			if (monitor.isCanceled()) {
+				addTestResult(TestStatus.FAILURE, "Test aborted by user");
+				return Status.CANCEL_STATUS;
+			}
 
-				// terminate all tests that are still marked as running
-				// used for badly written test cases and when tests fail by throwing an exception
-				for (final Test test : getTests()) {
-					if (test.getStatus() == TestStatus.RUNNING)
-						test.setStatus(TestStatus.PASS);
+		} catch (final InterruptedException e) {
+			runTeardown = getTestSuite().getModel().getFlag(TestSuiteModel.FLAG_EXECUTE_TEARDOWN_ON_FAILURE, true);
+			return Status.CANCEL_STATUS;
+
+		} finally {
+			// testFile teardown()
+			if (runTeardown) {
+				try {
+					runCodeFragment(TestSuiteModel.CODE_LOCATION_TESTFILE_TEARDOWN, monitor);
+				} catch (final InterruptedException e) {
+					// TODO handle this exception (but for now, at least know it happened)
+					throw new RuntimeException(e);
 				}
+			}
 
-				// clean up havoc engines
-				if (!getScriptEngine().isFinished())
-					getScriptEngine().terminate();
+			// terminate all tests that are still marked as running
+			// used for badly written test cases and when tests fail by throwing an exception
+			for (final Test test : getTests()) {
+				if (test.getStatus() == TestStatus.RUNNING)
+					test.setStatus(TestStatus.PASS);
+			}
 
-				setScriptEngine(null);
+			// clean up havoc engines
+			if ((!reuseEngine) && (!getScriptEngine().isFinished()))
+				getScriptEngine().terminate();
 
-				setStatus(TestStatus.PASS);
-			}
+			setScriptEngine(null);
+			fMonitor = null;
 
-			return Status.OK_STATUS;
+			setStatus(TestStatus.PASS);
 		}
 
-		private boolean runCodeFragment(final String fragmentID, final IProgressMonitor monitor) throws InterruptedException {
-			final String fragmentCode = getCodeFragment(fragmentID);
-			if ((fragmentCode != null) && (!fragmentCode.trim().isEmpty())) {
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Apply results of an execution that took place elsewhere, eg in a separate process. Replaces previous results of this test file.
+	 *
+	 * @param status
+	 *            final status of the test file
+	 * @param startTime
+	 *            start time in [ms]
+	 * @param executionTime
+	 *            execution time in [ms]
+	 * @param tests
+	 *            executed tests, carrying their final status
+	 */
+	public void setExecutionResult(final TestStatus status, final long startTime, final long executionTime, final Collection<Test> tests) {
+		reset();
+
+		for (final Test test : tests)
+			addExecutedTest(test);
+
+		setExecutionTime(startTime, startTime + executionTime);
+		setStatus(status);
+	}
 
-				addTest(new Test(TestFile.this, "[" + fragmentID + "]", true));
-				final ScriptResult setupResult = getScriptEngine().executeSync(fragmentCode);
+	private boolean runCodeFragment(final String fragmentID, final IProgressMonitor monitor) throws InterruptedException {
+		final String fragmentCode = getCodeFragment(fragmentID);
+		if ((fragmentCode != null) && (!fragmentCode.trim().isEmpty())) {
 
-				if (setupResult.hasException()) {
-					// testFile setup failed
-					addTestResult(TestStatus.FAILURE, TestSuite.getExceptionMessage(setupResult.getException()));
-					endTest();
-					return false;
-				}
+			addTest(new Test(this, "[" + fragmentID + "]", true));
+			final ScriptResult setupResult = getScriptEngine().executeSync(fragmentCode);
 
+			if (setupResult.hasException()) {
+				// testFile setup failed
+				addTestResult(TestStatus.FAILURE, TestSuite.getExceptionMessage(setupResult.getException()));
 				endTest();
+				return false;
 			}
 
-			return true;
+			endTest();
 		}
-	}
 
-	private TestFileJob fJob;
-	private final String fFileLocation;
-
-	public TestFile(final TestSuite suite, final String fileLocation) {
-		super(suite);
-		fFileLocation = fileLocation;
+		return true;
 	}
 
-	public void execute() {
-		fJob = new TestFileJob("TestFile: " + toString());
-		fJob.schedule();
+	/**
+	 * Get the location of this test file as stored in the test suite.
+	 *
+	 * @return test file location
+	 */
+	public String getLocation() {
+		return fFileLocation;
 	}
 
 	public String getCodeFragment(final String identifier) {
@@ -183,13 +251,16 @@ public class TestFile extends TestComposite implements Comparable<TestFile> {
 	}
 
 	public void terminate() {
-		if (fJob != null) {
+		if (fJob != null)
 			fJob.cancel();
 
-			final IScriptEngine engine = getScriptEngine();
-			if (engine != null)
-				engine.terminateCurrent();
-		}
+		final IProgressMonitor monitor = fMonitor;
+		if (monitor != null)
+			monitor.setCanceled(true);
+
+		final IScriptEngine engine = getScriptEngine();
+		if (engine != null)
+			engine.terminateCurrent();
 	}
 
 	public TestSuite getTestSuite() {
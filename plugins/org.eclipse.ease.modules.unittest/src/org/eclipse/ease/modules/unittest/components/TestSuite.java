@@ -16,16 +16,25 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.debug.core.ILaunch;
@@ -67,19 +76,30 @@ public class TestSuite extends TestComposite {
 		return message;
 	}
 
+	/** Interval to check for termination and thread count changes in [ms]. */
+	private static final long SCHEDULER_POLL_INTERVAL = 200;
+
 	private final TestSuiteModel fTestModel;
-	private boolean fTerminated = false;
+	private volatile boolean fTerminated = false;
 	private final Map<String, TestFile> fTestFiles = new HashMap<String, TestFile>();
 
-	private int fCurrentTestCount;
+	/** Amount of test files currently executed. */
+	private final AtomicInteger fCurrentTestCount = new AtomicInteger();
 	private List<TestFile> fActiveTestFiles = Collections.emptyList();
 
+	/** Amount of threads overriding {@link TestSuiteModel#FLAG_MAX_THREADS}, 0 to use the model setting. */
+	private volatile int fMaxThreads = 0;
+
+	/** Amount of shards overriding {@link TestSuiteModel#FLAG_SHARDS}, 0 to use the model setting. */
+	private volatile int fShards = 0;
+
 	private OutputStream fOutputStream = System.out;
 	private OutputStream fErrorStream = System.err;
 	private InputStream fInputStream = System.in;
 
 	private Map<String, Object> fSetupVariables;
 	private ILaunch fDebugLaunch;
+	private SuiteRuntimeInformation fRuntimeInformation = null;
 
 	private class TestSuiteJob extends Job {
 
@@ -87,8 +107,16 @@ public class TestSuite extends TestComposite {
 			super(name);
 		}
 
+		@Override
+		public boolean belongsTo(final Object family) {
+			return family == TestSuite.this;
+		}
+
 		@Override
 		protected IStatus run(final IProgressMonitor monitor) {
+			// record runtimes of this run
+			getRuntimeInformation();
+
 			// fire testsuite event
 			reset();
 			setStatus(TestStatus.RUNNING);
@@ -97,6 +125,27 @@ public class TestSuite extends TestComposite {
 			for (final TestFile file : fActiveTestFiles)
 				file.reset();
 
+			// execute test files in separate processes
+			final int shards = (fShards > 0) ? fShards : getModel().getFlag(TestSuiteModel.FLAG_SHARDS, 1);
+			if ((shards > 1) && (fActiveTestFiles.size() > 1)) {
+				try {
+					new ShardedExecution(TestSuite.this).run(new ArrayList<TestFile>(fActiveTestFiles), shards, monitor);
+
+				} catch (final IOException e) {
+					addTest(new Test(TestSuite.this, "[Sharding]", true));
+					addTestResult(TestStatus.FAILURE, TestSuite.getExceptionMessage(e));
+					endTest();
+
+				} finally {
+					// persist runtimes for upcoming runs, before listeners learn that the suite is done
+					getRuntimeInformation().save();
+
+					setStatus(TestStatus.PASS);
+				}
+
+				return Status.OK_STATUS;
+			}
+
 			// create master engine, performing testsuite setup & teardown
 			setScriptEngine(createScriptEngine());
 			getScriptEngine().setTerminateOnIdle(false);
@@ -111,8 +160,6 @@ public class TestSuite extends TestComposite {
 
 			getScriptEngine().schedule();
 
-			fCurrentTestCount = 0;
-
 			// parse variables
 			final StringBuffer variablesCode = new StringBuffer();
 			for (final Variable var : fTestModel.getVariables())
@@ -129,44 +176,9 @@ public class TestSuite extends TestComposite {
 
 				// setup done; extract variables
 				fSetupVariables = getScriptEngine().getVariables();
-				final ArrayList<TestFile> launchedTestFiles = new ArrayList<TestFile>();
-
-				// main test execution loop
-				final List<TestFile> filesUnderTest = new ArrayList<TestFile>(fActiveTestFiles);
-				synchronized (TestSuite.this) {
-					while ((!fTerminated) && ((fCurrentTestCount > 0) || (!filesUnderTest.isEmpty()))) {
-
-						// always read number of threads. some testsuites adjust load dynamically
-						final int maxSimultaneousThreads = Math.max(1, fTestModel.getFlag(TestSuiteModel.FLAG_MAX_THREADS, 1));
-
-						if ((!filesUnderTest.isEmpty()) && (fCurrentTestCount < maxSimultaneousThreads)) {
-							// start another test
-							final TestFile testFile = filesUnderTest.remove(0);
-							launchedTestFiles.add(testFile);
-
-							testFile.addTestListener(TestSuite.this);
 
-							fCurrentTestCount++;
-							testFile.execute();
-
-						} else
-							// wait for tests to finish
-							TestSuite.this.wait();
-					}
-				}
-
-				if (fTerminated) {
-					// terminate all running test files
-					for (final TestFile testFile : launchedTestFiles)
-						testFile.terminate();
-
-					// wait for files to shut down
-					synchronized (TestSuite.this) {
-						while (fCurrentTestCount > 0)
-							// wait for tests to finish
-							TestSuite.this.wait();
-					}
-				}
+				// main test execution
+				runTestFiles(new ArrayList<TestFile>(fActiveTestFiles), monitor);
 
 			} catch (final InterruptedException e) {
 				return Status.CANCEL_STATUS;
@@ -190,12 +202,144 @@ public class TestSuite extends TestComposite {
 				getScriptEngine().terminate();
 				setScriptEngine(null);
 
+				// persist runtimes for upcoming runs, before listeners learn that the suite is done
+				getRuntimeInformation().save();
+
 				setStatus(TestStatus.PASS);
 			}
 
 			return Status.OK_STATUS;
 		}
 
+		/**
+		 * Execute test files on a pool of worker threads. The pool size follows {@link TestSuiteModel#FLAG_MAX_THREADS}, changes of the flag are applied
+		 * while the suite is running. A thread count set by {@link TestSuite#setMaxThreads(int)} takes precedence over the flag.
+		 */
+		private void runTestFiles(final List<TestFile> filesUnderTest, final IProgressMonitor monitor) throws InterruptedException {
+			int poolSize = getMaxThreads();
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+
+						private final AtomicInteger fThreadCount = new AtomicInteger();
+
+						@Override
+						public Thread newThread(final Runnable runnable) {
+							final Thread thread = new Thread(runnable, "TestSuite worker " + fThreadCount.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+
+			final CountDownLatch finished = new CountDownLatch(filesUnderTest.size());
+			// monitors of launched files allow to cancel files that did not start their execution yet
+			final Map<TestFile, IProgressMonitor> launchedTestFiles = Collections.synchronizedMap(new HashMap<TestFile, IProgressMonitor>());
+
+			// engines kept by worker threads when engines get reused
+			final boolean reuseEngines = fTestModel.getFlag(TestSuiteModel.FLAG_REUSE_ENGINES, false);
+			final List<IScriptEngine> workerEngines = Collections.synchronizedList(new ArrayList<IScriptEngine>());
+			final ThreadLocal<IScriptEngine> workerEngine = new ThreadLocal<IScriptEngine>();
+
+			for (final TestFile testFile : filesUnderTest) {
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							final IProgressMonitor fileMonitor = new NullProgressMonitor();
+							launchedTestFiles.put(testFile, fileMonitor);
+
+							// re-check after registration, the scheduler only cancels files registered when it handles the termination
+							if (fTerminated)
+								return;
+
+							fCurrentTestCount.incrementAndGet();
+							try {
+								if (reuseEngines) {
+									IScriptEngine engine = workerEngine.get();
+									if ((engine == null) || (engine.isFinished())) {
+										engine = createScriptEngine();
+										engine.setTerminateOnIdle(false);
+										engine.schedule();
+
+										workerEngine.set(engine);
+										workerEngines.add(engine);
+									}
+
+									testFile.run(fileMonitor, engine);
+
+								} else
+									testFile.run(fileMonitor);
+
+							} finally {
+								fCurrentTestCount.decrementAndGet();
+							}
+
+						} finally {
+							finished.countDown();
+						}
+					}
+				});
+			}
+
+			executor.shutdown();
+
+			try {
+				boolean terminationRequested = false;
+				while (!finished.await(SCHEDULER_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if (monitor.isCanceled())
+						terminate();
+
+					if (fTerminated) {
+						if (!terminationRequested) {
+							// terminate all running test files, queued files will be skipped
+							terminationRequested = true;
+							terminateTestFiles(launchedTestFiles);
+						}
+
+					} else {
+						// always read number of threads. some testsuites adjust load dynamically
+						final int maxThreads = getMaxThreads();
+						if (maxThreads > poolSize) {
+							executor.setMaximumPoolSize(maxThreads);
+							executor.setCorePoolSize(maxThreads);
+						} else if (maxThreads < poolSize) {
+							executor.setCorePoolSize(maxThreads);
+							executor.setMaximumPoolSize(maxThreads);
+						}
+
+						poolSize = maxThreads;
+					}
+				}
+
+			} catch (final InterruptedException e) {
+				terminate();
+				terminateTestFiles(launchedTestFiles);
+
+				throw e;
+
+			} finally {
+				synchronized (workerEngines) {
+					for (final IScriptEngine engine : workerEngines)
+						engine.terminate();
+				}
+			}
+		}
+
+		private void terminateTestFiles(final Map<TestFile, IProgressMonitor> launchedTestFiles) {
+			synchronized (launchedTestFiles) {
+				for (final Entry<TestFile, IProgressMonitor> entry : launchedTestFiles.entrySet()) {
+					// files that did not start yet abort on their canceled monitor
+					entry.getValue().setCanceled(true);
+					entry.getKey().terminate();
+				}
+			}
+		}
+
+		private int getMaxThreads() {
+			final int maxThreads = fMaxThreads;
+			return Math.max(1, (maxThreads > 0) ? maxThreads : fTestModel.getFlag(TestSuiteModel.FLAG_MAX_THREADS, 1));
+		}
+
 		private boolean runCodeFragment(final String fragmentID, final IProgressMonitor monitor) throws InterruptedException {
 			return runCode(fragmentID, getCodeFragment(fragmentID), monitor);
 		}
@@ -230,7 +374,7 @@ public class TestSuite extends TestComposite {
 		fTestModel = model;
 
 		for (final String location : fTestModel.getTestFiles())
-			fTestFiles.put(location, new TestFile(this, location));
+			fTestFiles.put(location, createTestFile(location));
 	}
 
 	public TestSuite(final IFile file) throws IOException, CoreException {
@@ -244,6 +388,20 @@ public class TestSuite extends TestComposite {
 		super.finalize();
 	}
 
+	/**
+	 * Create a test file of this suite. The suite listens to all its test files, regardless whether they are executed locally or in a separate process.
+	 *
+	 * @param location
+	 *            test file location
+	 * @return test file
+	 */
+	private TestFile createTestFile(final String location) {
+		final TestFile testFile = new TestFile(this, location);
+		testFile.addTestListener(this);
+
+		return testFile;
+	}
+
 	private String getCodeFragment(final String name) {
 		return fTestModel.getCodeFragment(name);
 	}
@@ -252,19 +410,9 @@ public class TestSuite extends TestComposite {
 	public void notify(final Object testObject, final TestStatus status) {
 		super.notify(testObject, status);
 
-		if ((testObject instanceof TestFile) && (status != TestStatus.RUNNING)) {
-			fCurrentTestCount--;
-
-			final boolean stopOnFailure = fTestModel.getFlag(TestSuiteModel.FLAG_STOP_SUITE_ON_FAILURE, false);
-			if ((stopOnFailure) && (status == TestStatus.FAILURE))
+		if ((testObject instanceof TestFile) && (status == TestStatus.FAILURE)) {
+			if (fTestModel.getFlag(TestSuiteModel.FLAG_STOP_SUITE_ON_FAILURE, false))
 				terminate();
-
-			else {
-				// reactivate TestSuite Job
-				synchronized (this) {
-					notifyAll();
-				}
-			}
 		}
 	}
 
@@ -277,6 +425,12 @@ public class TestSuite extends TestComposite {
 		run(ITestSetFilter.ALL);
 	}
 
+	/**
+	 * Execute all test files matching <i>filter</i>. The suite is executed in a background job, which belongs to the job family of this suite.
+	 *
+	 * @param filter
+	 *            filter to select test files
+	 */
 	public void run(final ITestSetFilter filter) {
 
 		// filter tests
@@ -289,6 +443,22 @@ public class TestSuite extends TestComposite {
 		// sort tests
 		Collections.sort(fActiveTestFiles);
 
+		if (fTestModel.getFlag(TestSuiteModel.FLAG_LONGEST_FIRST, false)) {
+			// start long running files first, so they do not extend the overall runtime when started last
+			final SuiteRuntimeInformation runtimeInformation = getRuntimeInformation();
+			final Map<TestFile, Long> estimatedRuntimes = new HashMap<TestFile, Long>();
+			for (final TestFile testFile : fActiveTestFiles)
+				estimatedRuntimes.put(testFile, runtimeInformation.getEstimatedRuntime(testFile));
+
+			Collections.sort(fActiveTestFiles, new Comparator<TestFile>() {
+
+				@Override
+				public int compare(final TestFile first, final TestFile second) {
+					return estimatedRuntimes.get(second).compareTo(estimatedRuntimes.get(first));
+				}
+			});
+		}
+
 		if (!fActiveTestFiles.isEmpty())
 			// run TestSuite
 			new TestSuiteJob("Testsuite " + toString()).schedule();
@@ -297,23 +467,70 @@ public class TestSuite extends TestComposite {
 			setStatus(TestStatus.PASS);
 	}
 
-	public synchronized void terminate() {
+	public void terminate() {
 		fTerminated = true;
+	}
 
-		// reactivate TestSuite Job
-		synchronized (this) {
-			notifyAll();
-		}
+	/**
+	 * Check whether termination of the suite got requested.
+	 *
+	 * @return <code>true</code> when the suite got terminated
+	 */
+	public boolean isTerminated() {
+		return fTerminated;
+	}
+
+	/**
+	 * Override the amount of threads used to execute test files. Unlike {@link TestSuiteModel#FLAG_MAX_THREADS} the override is not stored in the suite file
+	 * and survives reloads of the model when the suite gets executed.
+	 *
+	 * @param maxThreads
+	 *            amount of threads, 0 to use the model setting
+	 */
+	public void setMaxThreads(final int maxThreads) {
+		fMaxThreads = Math.max(0, maxThreads);
+	}
+
+	/**
+	 * Override the amount of child processes used to execute test files. Unlike {@link TestSuiteModel#FLAG_SHARDS} the override is not stored in the suite
+	 * file and survives reloads of the model when the suite gets executed.
+	 *
+	 * @param shards
+	 *            amount of shards, 1 to execute all test files in this process, 0 to use the model setting
+	 */
+	public void setShards(final int shards) {
+		fShards = Math.max(0, shards);
 	}
 
 	public TestSuiteModel getModel() {
 		return fTestModel;
 	}
 
+	/**
+	 * Get the runtime history of this suite. Runtimes of executed test files are recorded automatically.
+	 *
+	 * @return runtime information
+	 */
+	public synchronized SuiteRuntimeInformation getRuntimeInformation() {
+		if (fRuntimeInformation == null)
+			fRuntimeInformation = new SuiteRuntimeInformation(this);
+
+		return fRuntimeInformation;
+	}
+
 	public int getActiveTestCount() {
 		return fActiveTestFiles.size();
 	}
 
+	/**
+	 * Get the amount of test files currently executed.
+	 *
+	 * @return running test files
+	 */
+	public int getRunningTestCount() {
+		return fCurrentTestCount.get();
+	}
+
 	public void setOutputStream(final OutputStream outputStream) {
 		if (outputStream != null)
 			fOutputStream = outputStream;
@@ -413,7 +630,7 @@ public class TestSuite extends TestComposite {
 			// add new test files
 			for (final String location : fTestModel.getTestFiles()) {
 				if (!fTestFiles.containsKey(location))
-					fTestFiles.put(location, new TestFile(this, location));
+					fTestFiles.put(location, createTestFile(location));
 			}
 
 			// remove obsolete test files
@@ -49,6 +49,24 @@ public class TestSuiteModel implements IResourceChangeListener {
 	public static final String FLAG_PROMOTE_ERRORS_TO_FAILURES = "promote errors to failures";
 	public static final String FLAG_EXECUTE_TEARDOWN_ON_FAILURE = "execute teardown on failure";
 
+	/**
+	 * Start test files with the longest expected runtime first. Combined with {@link #FLAG_MAX_THREADS} this results in a longest processing time first
+	 * schedule, as free workers always pick the longest remaining file.
+	 */
+	public static final String FLAG_LONGEST_FIRST = "longest tests first";
+
+	/**
+	 * Reuse script engines for subsequent test files. Each worker thread keeps its own engine, which gets reset between test files instead of creating a new
+	 * engine for each file.
+	 */
+	public static final String FLAG_REUSE_ENGINES = "reuse engines";
+
+	/**
+	 * Split test files across multiple child processes, each running in its own JVM with a private workspace. Files are distributed according to their
+	 * recorded runtimes. Values &lt;= 1 execute all test files in the current process.
+	 */
+	public static final String FLAG_SHARDS = "shards";
+
 	private static final String XML_NODE_ROOT = "testsuite";
 	private static final String XML_NODE_TESTFILES = "testfiles";
 	private static final String XML_NODE_TESTFILE = "testfile";
@@ -127,6 +145,9 @@ public class TestSuiteModel implements IResourceChangeListener {
 		setFlag(FLAG_PROMOTE_ERRORS_TO_FAILURES, false);
 		setFlag(FLAG_STOP_SUITE_ON_FAILURE, false);
 		setFlag(FLAG_EXECUTE_TEARDOWN_ON_FAILURE, true);
+		setFlag(FLAG_LONGEST_FIRST, false);
+		setFlag(FLAG_REUSE_ENGINES, false);
+		setFlag(FLAG_SHARDS, 1);
 	}
 
 	public void close() {
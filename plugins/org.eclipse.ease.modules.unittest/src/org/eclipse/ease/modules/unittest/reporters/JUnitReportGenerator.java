@@ -12,6 +12,8 @@ package org.eclipse.ease.modules.unittest.reporters;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
 
 import org.eclipse.ease.modules.unittest.components.Test;
 import org.eclipse.ease.modules.unittest.components.TestFile;
@@ -32,16 +34,7 @@ public final class JUnitReportGenerator implements IReportGenerator {
 	public String createReport(final String title, final String description, final TestSuite testSuite) {
 		final XMLMemento root = XMLMemento.createWriteRoot("root");
 
-		final DateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
-
-		final IMemento suiteNode = root.createChild("testsuite");
-		suiteNode.putString("name", title);
-		suiteNode.putString("timestamp", timeFormat.format(testSuite.getStartTime()));
-		suiteNode.putString("hostname", "localhost");
-		suiteNode.putInteger("tests", getTestCount(testSuite));
-		suiteNode.putInteger("failures", getErrors(testSuite));
-		suiteNode.putInteger("errors", getFailures(testSuite));
-		suiteNode.putInteger("time", (int) (testSuite.getExecutionTime() / 1000));
+		final IMemento suiteNode = createSuiteNode(root, title, testSuite.getStartTime(), testSuite.getExecutionTime(), testSuite.getChildren());
 
 		final IMemento propertiesNode = suiteNode.createChild("properties");
 		for (final Variable variable : testSuite.getModel().getVariables()) {
@@ -50,37 +43,73 @@ public final class JUnitReportGenerator implements IReportGenerator {
 			propertyNode.putTextData(escape(variable.getContent()));
 		}
 
-		for (final TestFile testFile : testSuite.getChildren()) {
-			for (final Test test : testFile.getTests()) {
-				final IMemento testcaseNode = suiteNode.createChild("testcase");
-				testcaseNode.putString("name", escape(test.getTitle()));
-				testcaseNode.putString("classname", escape(ResourceTools.toProjectRelativeLocation(testFile.getFile(), null)));
-				testcaseNode.putInteger("time", (int) (test.getExecutionTime() / 1000));
-				for (final TestResult message : test.getMessages()) {
-					if (message.getStatus() == TestStatus.FAILURE) {
-						final IMemento errorNode = testcaseNode.createChild("error");
-						errorNode.putString("message", escape(message.getDescription()));
-						errorNode.putString("type", "script aborted");
-					} else if (message.getStatus() == TestStatus.ERROR) {
-						final IMemento failureNode = testcaseNode.createChild("failure");
-						failureNode.putString("message", escape(message.getDescription()));
-						failureNode.putString("type", "verification mismatch");
-					}
+		for (final TestFile testFile : testSuite.getChildren())
+			addTestCases(suiteNode, testFile);
+
+		return root.toString();
+	}
+
+	/**
+	 * Creates report data for a single test file. Allows to report results of test files as soon as they are finished.
+	 *
+	 * @param testFile
+	 *            test file to be exported
+	 * @return String containing test file report
+	 */
+	public String createReport(final TestFile testFile) {
+		final XMLMemento root = XMLMemento.createWriteRoot("root");
+
+		final IMemento suiteNode = createSuiteNode(root, testFile.toString(), testFile.getStartTime(), testFile.getExecutionTime(),
+				Collections.singleton(testFile));
+		addTestCases(suiteNode, testFile);
+
+		return root.toString();
+	}
+
+	private static IMemento createSuiteNode(final IMemento root, final String title, final long startTime, final long executionTime,
+			final Collection<TestFile> testFiles) {
+		final DateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm");
+
+		final IMemento suiteNode = root.createChild("testsuite");
+		suiteNode.putString("name", title);
+		suiteNode.putString("timestamp", timeFormat.format(startTime));
+		suiteNode.putString("hostname", "localhost");
+		suiteNode.putInteger("tests", getTestCount(testFiles));
+		suiteNode.putInteger("failures", getErrors(testFiles));
+		suiteNode.putInteger("errors", getFailures(testFiles));
+		suiteNode.putInteger("time", (int) (executionTime / 1000));
+
+		return suiteNode;
+	}
+
+	private static void addTestCases(final IMemento suiteNode, final TestFile testFile) {
+		for (final Test test : testFile.getTests()) {
+			final IMemento testcaseNode = suiteNode.createChild("testcase");
+			testcaseNode.putString("name", escape(test.getTitle()));
+			testcaseNode.putString("classname", escape(ResourceTools.toProjectRelativeLocation(testFile.getFile(), null)));
+			testcaseNode.putInteger("time", (int) (test.getExecutionTime() / 1000));
+			for (final TestResult message : test.getMessages()) {
+				if (message.getStatus() == TestStatus.FAILURE) {
+					final IMemento errorNode = testcaseNode.createChild("error");
+					errorNode.putString("message", escape(message.getDescription()));
+					errorNode.putString("type", "script aborted");
+				} else if (message.getStatus() == TestStatus.ERROR) {
+					final IMemento failureNode = testcaseNode.createChild("failure");
+					failureNode.putString("message", escape(message.getDescription()));
+					failureNode.putString("type", "verification mismatch");
 				}
 			}
 		}
-
-		return root.toString();
 	}
 
 	private static String escape(final String variable) {
 		return variable.replace("<", "&lt;").replace(">", "&gt;");
 	}
 
-	private static int getTestCount(final TestSuite testSuite) {
+	private static int getTestCount(final Collection<TestFile> testFiles) {
 		int tests = 0;
 
-		for (final TestFile testFile : testSuite.getChildren()) {
+		for (final TestFile testFile : testFiles) {
 			for (final Test test : testFile.getTests()) {
 				if (!test.isTransient())
 					tests++;
@@ -90,10 +119,10 @@ public final class JUnitReportGenerator implements IReportGenerator {
 		return tests;
 	}
 
-	private static int getErrors(final TestSuite testSuite) {
+	private static int getErrors(final Collection<TestFile> testFiles) {
 		int errors = 0;
 
-		for (final TestFile file : testSuite.getChildren()) {
+		for (final TestFile file : testFiles) {
 			for (final Test test : file.getTests()) {
 				if (test.getMessages(TestStatus.ERROR).size() > 0)
 					errors++;
@@ -103,10 +132,10 @@ public final class JUnitReportGenerator implements IReportGenerator {
 		return errors;
 	}
 
-	private static int getFailures(final TestSuite testSuite) {
+	private static int getFailures(final Collection<TestFile> testFiles) {
 		int errors = 0;
 
-		for (final TestFile file : testSuite.getChildren()) {
+		for (final TestFile file : testFiles) {
 			for (final Test test : file.getTests()) {
 				if (test.getMessages(TestStatus.FAILURE).size() > 0)
 					errors++;
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest.reporters;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser to read lines written by {@link JsonLinesReporter}. Objects are returned as {@link Map}, arrays as {@link List}, numbers as
+ * {@link Long} or {@link Double}.
+ */
+public final class JsonLinesParser {
+
+	private final String fText;
+	private int fPosition = 0;
+
+	/**
+	 * Parse a single JSON value.
+	 *
+	 * @param text
+	 *            JSON text
+	 * @return parsed value
+	 * @throws IllegalArgumentException
+	 *             when <i>text</i> is not valid JSON
+	 */
+	public static Object parse(final String text) {
+		final JsonLinesParser parser = new JsonLinesParser(text);
+		final Object value = parser.parseValue();
+
+		parser.skipWhitespace();
+		if (parser.fPosition < text.length())
+			throw parser.createException("Unexpected content");
+
+		return value;
+	}
+
+	private JsonLinesParser(final String text) {
+		fText = text;
+	}
+
+	private Object parseValue() {
+		skipWhitespace();
+		if (fPosition >= fText.length())
+			throw createException("Unexpected end of input");
+
+		final char character = fText.charAt(fPosition);
+		switch (character) {
+		case '{':
+			return parseObject();
+		case '[':
+			return parseArray();
+		case '"':
+			return parseString();
+		case 't':
+			expect("true");
+			return Boolean.TRUE;
+		case 'f':
+			expect("false");
+			return Boolean.FALSE;
+		case 'n':
+			expect("null");
+			return null;
+		default:
+			return parseNumber();
+		}
+	}
+
+	private Map<String, Object> parseObject() {
+		final Map<String, Object> result = new LinkedHashMap<String, Object>();
+
+		expect("{");
+		skipWhitespace();
+		if (consume('}'))
+			return result;
+
+		do {
+			skipWhitespace();
+			final String key = parseString();
+			skipWhitespace();
+			expect(":");
+			result.put(key, parseValue());
+			skipWhitespace();
+		} while (consume(','));
+
+		expect("}");
+		return result;
+	}
+
+	private List<Object> parseArray() {
+		final List<Object> result = new ArrayList<Object>();
+
+		expect("[");
+		skipWhitespace();
+		if (consume(']'))
+			return result;
+
+		do {
+			result.add(parseValue());
+			skipWhitespace();
+		} while (consume(','));
+
+		expect("]");
+		return result;
+	}
+
+	private String parseString() {
+		expect("\"");
+
+		final StringBuilder result = new StringBuilder();
+		while (fPosition < fText.length()) {
+			final char character = fText.charAt(fPosition++);
+			if (character == '"')
+				return result.toString();
+
+			if (character == '\\') {
+				if (fPosition >= fText.length())
+					break;
+
+				final char escaped = fText.charAt(fPosition++);
+				switch (escaped) {
+				case 'n':
+					result.append('\n');
+					break;
+				case 'r':
+					result.append('\r');
+					break;
+				case 't':
+					result.append('\t');
+					break;
+				case 'b':
+					result.append('\b');
+					break;
+				case 'f':
+					result.append('\f');
+					break;
+				case 'u':
+					if (fPosition + 4 > fText.length())
+						throw createException("Invalid unicode escape");
+
+					try {
+						result.append((char) Integer.parseInt(fText.substring(fPosition, fPosition + 4), 16));
+					} catch (final NumberFormatException e) {
+						throw createException("Invalid unicode escape");
+					}
+					fPosition += 4;
+					break;
+				default:
+					// covers '"', '\\' and '/'
+					result.append(escaped);
+				}
+
+			} else
+				result.append(character);
+		}
+
+		throw createException("Unterminated string");
+	}
+
+	private Number parseNumber() {
+		final int start = fPosition;
+		while ((fPosition < fText.length()) && ("+-0123456789.eE".indexOf(fText.charAt(fPosition)) >= 0))
+			fPosition++;
+
+		final String number = fText.substring(start, fPosition);
+		try {
+			if ((number.indexOf('.') >= 0) || (number.indexOf('e') >= 0) || (number.indexOf('E') >= 0))
+				return Double.valueOf(number);
+
+			return Long.valueOf(number);
+
+		} catch (final NumberFormatException e) {
+			fPosition = start;
+			throw createException("Invalid value");
+		}
+	}
+
+	private void skipWhitespace() {
+		while ((fPosition < fText.length()) && (Character.isWhitespace(fText.charAt(fPosition))))
+			fPosition++;
+	}
+
+	private boolean consume(final char character) {
+		if ((fPosition < fText.length()) && (fText.charAt(fPosition) == character)) {
+			fPosition++;
+			return true;
+		}
+
+		return false;
+	}
+
+	private void expect(final String token) {
+		if (!fText.startsWith(token, fPosition))
+			throw createException("Expected '" + token + "'");
+
+		fPosition += token.length();
+	}
+
+	private IllegalArgumentException createException(final String message) {
+		return new IllegalArgumentException(message + " at position " + fPosition);
+	}
+}
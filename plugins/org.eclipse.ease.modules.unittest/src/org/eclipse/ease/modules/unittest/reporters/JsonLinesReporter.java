@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest.reporters;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+import org.eclipse.ease.modules.unittest.ITestListener;
+import org.eclipse.ease.modules.unittest.components.Test;
+import org.eclipse.ease.modules.unittest.components.TestFile;
+import org.eclipse.ease.modules.unittest.components.TestResult;
+import org.eclipse.ease.modules.unittest.components.TestStatus;
+import org.eclipse.ease.modules.unittest.components.TestSuite;
+
+/**
+ * Streams test results as JSON lines. A line is written for each finished test file, followed by a final line for the test suite. Each line is a
+ * self-contained JSON object, so results can be processed while the suite is still running. Use {@link JsonLinesParser} to read entries.
+ * <p>
+ * Test file entries look like:<br>
+ * <code>{"type":"testfile","location":"...","name":"...","status":"PASS","start":1458900000000,"time":12,"tests":[{"title":"...","status":"ERROR",
+ * "transient":false,"start":1458900000002,"time":3,"messages":[{"status":"ERROR","message":"..."}]}]}</code>
+ * </p>
+ * <p>
+ * The suite entry uses type <code>"testsuite"</code> and contains tests of the suite itself (setup and teardown code) along with the amount of test files.
+ * </p>
+ */
+public class JsonLinesReporter implements ITestListener {
+
+	public static final String TYPE_TESTFILE = "testfile";
+	public static final String TYPE_TESTSUITE = "testsuite";
+
+	private final Writer fOutput;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param output
+	 *            writer to stream results to, gets flushed after each line
+	 */
+	public JsonLinesReporter(final Writer output) {
+		fOutput = output;
+	}
+
+	@Override
+	public void notify(final Object testObject, final TestStatus status) {
+		if ((status == TestStatus.RUNNING) || (status == TestStatus.NOT_RUN))
+			return;
+
+		if (testObject instanceof TestFile)
+			write(createEntry((TestFile) testObject));
+
+		else if (testObject instanceof TestSuite)
+			write(createEntry((TestSuite) testObject));
+	}
+
+	private synchronized void write(final String line) {
+		try {
+			fOutput.write(line);
+			fOutput.write('\n');
+			fOutput.flush();
+		} catch (final IOException e) {
+			// output not available, nothing we can do about it
+		}
+	}
+
+	/**
+	 * Create a JSON entry for a finished test file.
+	 *
+	 * @param testFile
+	 *            test file to serialize
+	 * @return JSON object as single line
+	 */
+	public static String createEntry(final TestFile testFile) {
+		final StringBuilder entry = new StringBuilder();
+		entry.append("{\"type\":");
+		appendString(entry, TYPE_TESTFILE);
+		entry.append(",\"location\":");
+		appendString(entry, testFile.getLocation());
+		entry.append(",\"name\":");
+		appendString(entry, testFile.toString());
+		entry.append(",\"status\":");
+		appendString(entry, testFile.getStatus().name());
+		entry.append(",\"start\":").append(testFile.getStartTime());
+		entry.append(",\"time\":").append(testFile.getExecutionTime());
+		entry.append(",\"tests\":");
+		appendTests(entry, testFile.getTests());
+		entry.append('}');
+
+		return entry.toString();
+	}
+
+	/**
+	 * Create a JSON entry for a finished test suite.
+	 *
+	 * @param testSuite
+	 *            test suite to serialize
+	 * @return JSON object as single line
+	 */
+	public static String createEntry(final TestSuite testSuite) {
+		final StringBuilder entry = new StringBuilder();
+		entry.append("{\"type\":");
+		appendString(entry, TYPE_TESTSUITE);
+		entry.append(",\"name\":");
+		appendString(entry, testSuite.getModel().getFile().getFullPath().toPortableString());
+		entry.append(",\"status\":");
+		appendString(entry, testSuite.getStatus().name());
+		entry.append(",\"time\":").append(testSuite.getExecutionTime());
+		entry.append(",\"testfiles\":").append(testSuite.getActiveTestCount());
+		entry.append(",\"tests\":");
+		appendTests(entry, testSuite.getTests());
+		entry.append('}');
+
+		return entry.toString();
+	}
+
+	private static void appendTests(final StringBuilder entry, final Collection<Test> tests) {
+		entry.append('[');
+
+		boolean first = true;
+		for (final Test test : tests) {
+			if (!first)
+				entry.append(',');
+			first = false;
+
+			entry.append("{\"title\":");
+			appendString(entry, test.getTitle());
+			entry.append(",\"status\":");
+			appendString(entry, test.getStatus().name());
+			entry.append(",\"transient\":").append(test.isTransient());
+			entry.append(",\"start\":").append(test.getStartTime());
+			entry.append(",\"time\":").append(test.getExecutionTime());
+			entry.append(",\"messages\":[");
+
+			boolean firstMessage = true;
+			for (final TestResult message : test.getMessages()) {
+				if (!firstMessage)
+					entry.append(',');
+				firstMessage = false;
+
+				entry.append("{\"status\":");
+				appendString(entry, message.getStatus().name());
+				entry.append(",\"message\":");
+				appendString(entry, message.getDescription());
+				entry.append('}');
+			}
+
+			entry.append("]}");
+		}
+
+		entry.append(']');
+	}
+
+	private static void appendString(final StringBuilder entry, final String text) {
+		if (text == null) {
+			entry.append("null");
+			return;
+		}
+
+		entry.append('"');
+		for (int index = 0; index < text.length(); index++) {
+			final char character = text.charAt(index);
+			switch (character) {
+			case '"':
+				entry.append("\\\"");
+				break;
+			case '\\':
+				entry.append("\\\\");
+				break;
+			case '\n':
+				entry.append("\\n");
+				break;
+			case '\r':
+				entry.append("\\r");
+				break;
+			case '\t':
+				entry.append("\\t");
+				break;
+			default:
+				if (character < 0x20)
+					entry.append(String.format("\\u%04x", (int) character));
+				else
+					entry.append(character);
+			}
+		}
+		entry.append('"');
+	}
+}
@@ -11,6 +11,9 @@
 
 package org.eclipse.ease.modules.platform;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -62,4 +65,33 @@ public class PlatformModuleTest extends AbstractModuleTest {
 
 		assertNotNull(process.getOutput());
 	}
+
+	@Test(timeout = 3000)
+	public void runProcessWithInput() {
+		Future process = PlatformModule.runProcess("cat", null, null, null, "line 1\nline 2\n", 0, 8, null);
+		assertEquals(0, process.getExitCode());
+
+		// buffer keeps the last 8 characters only
+		assertEquals("\nline 2\n", process.getOutput());
+		assertTrue(process.isTruncated());
+	}
+
+	@Test(timeout = 10000)
+	public void runProcessKeepsAllOutput() {
+		// more than 1 MiB of output
+		Future process = PlatformModule.runProcess("sh", new String[] { "-c", "yes 0123456789 | head -n 120000" }, null, null, null, 0, 0, null);
+		assertEquals(0, process.getExitCode());
+
+		assertEquals(120000 * 11, process.getOutput().length());
+		assertFalse(process.isTruncated());
+	}
+
+	@Test(timeout = 5000)
+	public void runProcesses() throws InterruptedException {
+		ProcessBatch batch = PlatformModule.runProcesses(new Object[] { "true", new String[] { "sh", "-c", "exit 3" }, "echo done" }, 2, false, null, null, 0);
+
+		assertArrayEquals(new int[] { 0, 3, 0 }, batch.getExitCodes());
+		assertEquals("done\n", batch.getOutputs()[2]);
+		assertEquals(1, batch.getFailedCount());
+	}
 }
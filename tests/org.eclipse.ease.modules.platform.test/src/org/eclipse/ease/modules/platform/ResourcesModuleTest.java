@@ -11,13 +11,34 @@
 
 package org.eclipse.ease.modules.platform;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.ease.IScriptEngine;
 import org.junit.Test;
 
@@ -52,4 +73,498 @@ public class ResourcesModuleTest extends AbstractModuleTest {
 		// cleanup
 		tempFile.delete();
 	}
+
+	@Test
+	public void mappedRead() throws Exception {
+		File tempFile = File.createTempFile("ease_unittest_", "");
+		FileOutputStream output = new FileOutputStream(tempFile);
+		StringBuilder content = new StringBuilder();
+		for (int line = 0; line < 10000; line++)
+			content.append("line ").append(line).append(" \u00e4\u00f6\u00fc\n");
+		output.write(content.toString().getBytes());
+		output.close();
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.getExecutedFile()).thenReturn(tempFile);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		// compare mapped access against the reader based access
+		assertEquals(module.readFile(tempFile, -1), module.readFile(module.openFile(tempFile, ResourcesModule.READ | ResourcesModule.MAPPED, null), -1));
+
+		IFileHandle handle = module.openFile(tempFile, ResourcesModule.READ | ResourcesModule.MAPPED, null);
+		assertEquals("line 0 \u00e4\u00f6\u00fc", module.readLine(handle));
+		assertEquals("line 1 \u00e4\u00f6\u00fc", module.readLine(handle));
+		assertEquals("line", module.readFile(handle, 4));
+		module.closeFile(handle);
+
+		handle = module.openFile(tempFile, ResourcesModule.READ | ResourcesModule.MAPPED, null);
+		String line = null;
+		int lines = 0;
+		while ((line = module.readLine(handle)) != null)
+			assertEquals("line " + lines++ + " \u00e4\u00f6\u00fc", line);
+
+		assertEquals(10000, lines);
+		assertNull(module.readLine(handle));
+		module.closeFile(handle);
+
+		// cleanup
+		tempFile.delete();
+	}
+
+	@Test
+	public void mappedByteAccess() throws Exception {
+		File tempFile = File.createTempFile("ease_unittest_", "");
+		FileOutputStream output = new FileOutputStream(tempFile);
+		output.write("first \u00e4\u00f6\u00fc\nsecond\nthird".getBytes("ISO-8859-1"));
+		output.close();
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.getExecutedFile()).thenReturn(tempFile);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		// charset parameter is used for decoding
+		IFileHandle handle = module.openFile(tempFile, ResourcesModule.READ | ResourcesModule.MAPPED, "ISO-8859-1");
+		assertEquals("ISO-8859-1", handle.getCharset().name());
+		assertEquals("first \u00e4\u00f6\u00fc", module.readLine(handle));
+
+		// byte access continues behind the last character read
+		assertArrayEquals("sec".getBytes("ISO-8859-1"), handle.readBytes(3));
+
+		ByteBuffer buffer = ByteBuffer.allocate(3);
+		assertEquals(3, handle.readInto(buffer));
+		assertArrayEquals("ond".getBytes("ISO-8859-1"), buffer.array());
+
+		// character access continues behind the last byte read
+		assertEquals("", module.readLine(handle));
+		assertEquals("thi", module.readFile(handle, 3));
+		assertArrayEquals("rd".getBytes("ISO-8859-1"), handle.readBytes(-1));
+
+		// EOF
+		assertNull(handle.readBytes(1));
+		assertEquals(-1, handle.readInto(ByteBuffer.allocate(1)));
+		module.closeFile(handle);
+
+		// cleanup
+		tempFile.delete();
+	}
+
+	@Test
+	public void iterateLines() throws Exception {
+		File tempFile = File.createTempFile("ease_unittest_", "");
+		FileOutputStream output = new FileOutputStream(tempFile);
+		for (int line = 0; line < 1000; line++)
+			output.write(("line " + line + "\n").getBytes("UTF-8"));
+		output.close();
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.getExecutedFile()).thenReturn(tempFile);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		// test
+		LineIterator iterator = module.iterateLines(tempFile, "UTF-8", 16);
+		int lines = 0;
+		while (iterator.hasNext())
+			assertEquals("line " + lines++, iterator.next());
+
+		assertEquals(1000, lines);
+		assertFalse(iterator.hasNext());
+		assertNull(iterator.nextLine());
+
+		// cleanup
+		tempFile.delete();
+	}
+
+	@Test
+	public void tailFile() throws Exception {
+		File tempFile = File.createTempFile("ease_unittest_", "");
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.getExecutedFile()).thenReturn(tempFile);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		// pull mode keeps incomplete lines
+		FileTail tail = module.tailFile(tempFile, null, "UTF-8", true);
+		appendToFile(tempFile, "first\nsec", true);
+		assertTrue(tail.waitForData(10000));
+		assertArrayEquals(new String[] { "first" }, tail.readLines());
+
+		appendToFile(tempFile, "ond\n", true);
+		assertTrue(tail.waitForData(10000));
+		assertArrayEquals(new String[] { "second" }, tail.readLines());
+		assertFalse(tail.waitForData(100));
+
+		// truncated files are read from the beginning
+		appendToFile(tempFile, "new\n", false);
+		assertArrayEquals(new String[] { "new" }, tail.readLines());
+		assertEquals(4, tail.getOffset());
+		tail.close();
+
+		// listener mode consumes data
+		final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+		tail = module.tailFile(tempFile, new IFileTailListener() {
+
+			@Override
+			public void dataAppended(final FileTail fileTail, final byte[] data, final String[] lines) {
+				received.addAll(Arrays.asList(lines));
+			}
+		}, "UTF-8", true);
+
+		appendToFile(tempFile, "third\nfourth\n", true);
+		for (int retry = 0; (retry < 100) && (received.size() < 2); retry++)
+			Thread.sleep(100);
+
+		assertEquals(Arrays.asList("third", "fourth"), received);
+		assertFalse(tail.waitForData(100));
+		tail.close();
+
+		// cleanup
+		tempFile.delete();
+	}
+
+	private static void appendToFile(final File file, final String data, final boolean append) throws IOException {
+		FileOutputStream output = new FileOutputStream(file, append);
+		output.write(data.getBytes("UTF-8"));
+		output.close();
+	}
+
+	@Test
+	public void findFiles() throws Exception {
+		File rootFolder = File.createTempFile("ease_unittest_", "");
+		rootFolder.delete();
+		new File(rootFolder, "src/sub").mkdirs();
+		new File(rootFolder, "target/classes").mkdirs();
+		new File(rootFolder, "src/a.txt").createNewFile();
+		new File(rootFolder, "src/sub/b.txt").createNewFile();
+		new File(rootFolder, "src/sub/c.bin").createNewFile();
+		new File(rootFolder, "target/classes/d.txt").createNewFile();
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.getExecutedFile()).thenReturn(rootFolder);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		// test
+		assertEquals(3, module.findFiles("*.txt", rootFolder, true, null).length);
+		assertEquals(2, module.findFiles("*.txt", rootFolder, true, new String[] { "**/target/**" }).length);
+		assertEquals(0, module.findFiles("*.txt", rootFolder, false, null).length);
+
+		// cleanup
+		for (String path : new String[] { "src/a.txt", "src/sub/b.txt", "src/sub/c.bin", "target/classes/d.txt", "src/sub", "src", "target/classes", "target" })
+			new File(rootFolder, path).delete();
+
+		rootFolder.delete();
+	}
+
+	@Test
+	public void copyBinaryFolder() throws Exception {
+		File sourceFolder = File.createTempFile("ease_unittest_", "");
+		sourceFolder.delete();
+		new File(sourceFolder, "sub").mkdirs();
+		new File(sourceFolder, "empty/nested").mkdirs();
+
+		// binary content including invalid character sequences
+		byte[] content = new byte[256 * 1024];
+		for (int index = 0; index < content.length; index++)
+			content[index] = (byte) index;
+
+		FileOutputStream output = new FileOutputStream(new File(sourceFolder, "sub/data.bin"));
+		output.write(content);
+		output.close();
+
+		File targetFolder = File.createTempFile("ease_unittest_", "");
+		targetFolder.delete();
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.getExecutedFile()).thenReturn(sourceFolder);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		// test
+		assertEquals(1, module.copyFolder(sourceFolder, targetFolder, 2));
+		assertTrue(new File(targetFolder, "empty/nested").isDirectory());
+
+		module.copyFile(new File(targetFolder, "sub/data.bin"), new File(targetFolder, "copy.bin"));
+
+		// copying a file onto itself keeps its content
+		module.copyFile(new File(targetFolder, "copy.bin"), new File(targetFolder, "sub/../copy.bin"));
+
+		for (File file : new File[] { new File(targetFolder, "sub/data.bin"), new File(targetFolder, "copy.bin") }) {
+			byte[] copied = new byte[content.length];
+			FileInputStream input = new FileInputStream(file);
+			int offset = 0;
+			int length;
+			while ((length = input.read(copied, offset, copied.length - offset)) > 0)
+				offset += length;
+			input.close();
+
+			assertEquals(content.length, file.length());
+			assertArrayEquals(content, copied);
+		}
+
+		// cleanup
+		for (String path : new String[] { "sub/data.bin", "sub", "empty/nested", "empty", "" })
+			new File(sourceFolder, path).delete();
+
+		for (String path : new String[] { "sub/data.bin", "copy.bin", "sub", "empty/nested", "empty", "" })
+			new File(targetFolder, path).delete();
+	}
+
+	@Test
+	public void workspaceFileIndex() throws Exception {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject("ease_unittest_index");
+		project.create(null);
+		project.open(null);
+		project.getFolder("target").create(true, true, null);
+		project.getFile("index_a.txt").create(new ByteArrayInputStream(new byte[0]), true, null);
+		project.getFile("target/index_a.txt").create(new ByteArrayInputStream(new byte[0]), true, null);
+
+		try {
+			// build index
+			ResourcesModule.enableFileIndex(true);
+			WorkspaceFileIndex index = WorkspaceFileIndex.getInstance();
+			assertEquals(2, index.find(FileSearch.compileNamePattern("index_a.txt"), null).size());
+			assertEquals(1, index.find(FileSearch.compileNamePattern("index_a.txt"), FileSearch.compileGlobs(new String[] { "**/target/**" })).size());
+			assertEquals(0, index.find(FileSearch.compileNamePattern("index_b.txt"), null).size());
+
+			// incremental updates
+			project.getFile("index_b.txt").create(new ByteArrayInputStream(new byte[0]), true, null);
+			assertEquals(1, index.find(FileSearch.compileNamePattern("index_b.txt"), null).size());
+
+			project.getFile("index_a.txt").delete(true, null);
+			assertEquals(1, index.find(FileSearch.compileNamePattern("index_a.txt"), null).size());
+
+			project.close(null);
+			assertEquals(0, index.find(FileSearch.compileNamePattern("index_*.txt"), null).size());
+
+			project.open(null);
+			assertEquals(2, index.find(FileSearch.compileNamePattern("index_*.txt"), null).size());
+			assertTrue((Integer) ResourcesModule.getFileIndexStatistics().get("files") >= 2);
+
+			// dispose
+			ResourcesModule.enableFileIndex(false);
+			assertFalse(WorkspaceFileIndex.isActive());
+			assertNull(ResourcesModule.getFileIndexStatistics());
+
+		} finally {
+			WorkspaceFileIndex.dispose();
+			project.delete(true, true, null);
+		}
+	}
+
+	@Test
+	public void bufferedResourceWrite() throws Exception {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject("ease_unittest_buffered");
+		project.create(null);
+		project.open(null);
+		IFile file = project.getFile("buffered.txt");
+		file.create(new ByteArrayInputStream(new byte[0]), true, null);
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		try {
+			// data is committed on flush only
+			IFileHandle handle = module.openFile(file, ResourcesModule.WRITE | ResourcesModule.BUFFERED, "UTF-8");
+			assertTrue(handle.write("first"));
+			assertEquals("", module.readFile(file, -1));
+			assertTrue(module.flushFile(handle));
+			assertEquals("first", module.readFile(file, -1));
+
+			// subsequent writes are appended on close
+			assertTrue(handle.write(" second"));
+			assertEquals("first", module.readFile(file, -1));
+			module.closeFile(handle);
+			assertEquals("first second", module.readFile(file, -1));
+
+			// exceed memory threshold to spill data to disk
+			handle = module.openFile(file, ResourcesModule.WRITE | ResourcesModule.BUFFERED, "UTF-8");
+			((ResourceHandle) handle).setBufferThreshold(16);
+			StringBuilder expected = new StringBuilder();
+			for (int index = 0; index < 100; index++) {
+				assertTrue(handle.write("line " + index + "\n"));
+				expected.append("line ").append(index).append('\n');
+			}
+			assertEquals("first second", module.readFile(file, -1));
+			module.closeFile(handle);
+			assertEquals(expected.toString(), module.readFile(file, -1));
+
+			// failed flush keeps buffered data
+			handle = module.openFile(file, ResourcesModule.WRITE | ResourcesModule.BUFFERED, "UTF-8");
+			((ResourceHandle) handle).setBufferThreshold(4);
+			assertTrue(handle.write("kept data"));
+			file.delete(true, null);
+			assertFalse(module.flushFile(handle));
+
+			file.create(new ByteArrayInputStream(new byte[0]), true, null);
+			assertTrue(handle.write(" and more"));
+			assertTrue(module.flushFile(handle));
+			assertEquals("kept data and more", module.readFile(file, -1));
+			module.closeFile(handle);
+
+			// failed commit on close removes the temporary file
+			File tempFolder = new File(System.getProperty("java.io.tmpdir"));
+			List<String> tempFiles = Arrays.asList(tempFolder.list());
+			handle = module.openFile(file, ResourcesModule.WRITE | ResourcesModule.BUFFERED, "UTF-8");
+			((ResourceHandle) handle).setBufferThreshold(4);
+			assertTrue(handle.write("lost data"));
+
+			int spillFiles = 0;
+			for (String name : tempFolder.list()) {
+				if ((name.startsWith("ease_buffer_")) && (!tempFiles.contains(name)))
+					spillFiles++;
+			}
+			assertEquals(1, spillFiles);
+
+			file.delete(true, null);
+			module.closeFile(handle);
+			for (String name : tempFolder.list())
+				assertFalse((name.startsWith("ease_buffer_")) && (!tempFiles.contains(name)));
+
+		} finally {
+			project.delete(true, true, null);
+		}
+	}
+
+	@Test
+	public void createProblemMarkers() throws Exception {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject("ease_unittest_markers");
+		project.create(null);
+		project.open(null);
+		IFile file = project.getFile("markers.txt");
+		file.create(new ByteArrayInputStream("first\nsecond\nthird".getBytes()), true, null);
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		when(mockEngine.getErrorStream()).thenReturn(new PrintStream(errors, true));
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		try {
+			Map<String, Object> mapDescription = new HashMap<String, Object>();
+			mapDescription.put("severity", "warning");
+			mapDescription.put("location", file);
+			mapDescription.put("lineNumber", "2");
+			mapDescription.put("message", "from map");
+
+			// invalid rows are skipped, valid ones are created
+			Object[] markers = new Object[] { new Object[] { "error", file, 1, "from array" }, mapDescription, new Object[] { null, file, null, null },
+					new Object[] { "error", file, "invalid", "bad line" }, new Object[] { "error", file } };
+
+			assertEquals(3, module.createProblemMarkers(markers, IMarker.PROBLEM, true, false));
+			assertTrue(errors.toString().contains("index 3"));
+			assertTrue(errors.toString().contains("index 4"));
+
+			IMarker[] created = file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO);
+			assertEquals(3, created.length);
+
+			int withoutLine = 0;
+			for (IMarker marker : created) {
+				if ("from array".equals(marker.getAttribute(IMarker.MESSAGE))) {
+					assertEquals(1, marker.getAttribute(IMarker.LINE_NUMBER, -1));
+					assertEquals(IMarker.SEVERITY_ERROR, marker.getAttribute(IMarker.SEVERITY, -1));
+
+				} else if ("from map".equals(marker.getAttribute(IMarker.MESSAGE))) {
+					assertEquals(2, marker.getAttribute(IMarker.LINE_NUMBER, -1));
+					assertEquals(IMarker.SEVERITY_WARNING, marker.getAttribute(IMarker.SEVERITY, -1));
+
+				} else {
+					// null values are not stored as text
+					assertNull(marker.getAttribute(IMarker.MESSAGE));
+					assertNull(marker.getAttribute(IMarker.LINE_NUMBER));
+					assertEquals(IMarker.SEVERITY_INFO, marker.getAttribute(IMarker.SEVERITY, -1));
+					withoutLine++;
+				}
+			}
+			assertEquals(1, withoutLine);
+
+			// add to existing markers
+			assertEquals(1, module.createProblemMarkers(new Object[] { new Object[] { "info", file, 3, "added" } }, IMarker.PROBLEM, true, false));
+			assertEquals(4, file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO).length);
+
+			// replace existing markers
+			assertEquals(1, module.createProblemMarkers(new Object[] { new Object[] { "info", file, 3, "replaced" } }, IMarker.PROBLEM, true, true));
+			created = file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO);
+			assertEquals(1, created.length);
+			assertEquals("replaced", created[0].getAttribute(IMarker.MESSAGE));
+
+		} finally {
+			project.delete(true, true, null);
+		}
+	}
+
+	@Test
+	public void createProblemMarkersFromLists() throws Exception {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject("ease_unittest_markers");
+		project.create(null);
+		project.open(null);
+		IFile file = project.getFile("markers.txt");
+		file.create(new ByteArrayInputStream("first\nsecond\nthird".getBytes()), true, null);
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		when(mockEngine.getErrorStream()).thenReturn(new PrintStream(errors, true));
+
+		// initialize module
+		ResourcesModule module = new ResourcesModule();
+		module.initialize(mockEngine, null);
+
+		try {
+			// script engines pass nested script arrays as lists
+			List<Object> markers = new ArrayList<Object>();
+			markers.add(Arrays.asList("error", "workspace://ease_unittest_markers/markers.txt", 3, "invalid value"));
+			markers.add(Arrays.<Object> asList("warning", file, 1.0, "deprecated call"));
+			markers.add(Arrays.<Object> asList("error", file));
+
+			assertEquals(2, module.createProblemMarkers(markers, IMarker.PROBLEM, true, false));
+			assertTrue(errors.toString().contains("index 2"));
+
+			IMarker[] created = file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO);
+			assertEquals(2, created.length);
+
+			for (IMarker marker : created) {
+				if ("invalid value".equals(marker.getAttribute(IMarker.MESSAGE))) {
+					assertEquals(3, marker.getAttribute(IMarker.LINE_NUMBER, -1));
+					assertEquals(IMarker.SEVERITY_ERROR, marker.getAttribute(IMarker.SEVERITY, -1));
+
+				} else {
+					assertEquals("deprecated call", marker.getAttribute(IMarker.MESSAGE));
+					assertEquals(1, marker.getAttribute(IMarker.LINE_NUMBER, -1));
+					assertEquals(IMarker.SEVERITY_WARNING, marker.getAttribute(IMarker.SEVERITY, -1));
+				}
+			}
+
+		} finally {
+			project.delete(true, true, null);
+		}
+	}
 }
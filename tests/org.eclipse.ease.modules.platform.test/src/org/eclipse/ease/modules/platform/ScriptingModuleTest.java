@@ -12,13 +12,31 @@
 package org.eclipse.ease.modules.platform;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.ease.IExecutionListener;
 import org.eclipse.ease.IScriptEngine;
+import org.eclipse.ease.lang.javascript.rhino.RhinoScriptEngine;
+import org.eclipse.ease.service.ScriptService;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
@@ -137,4 +155,334 @@ public class ScriptingModuleTest {
 		// reset the object
 		modifierModule.setSharedObject("foreignShared", testObject, false, false);
 	}
+
+	@Test
+	public void computeSharedObject() {
+		Object testObject = new Object();
+
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+		when(mockEngine.inject("createObject()")).thenReturn(testObject);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		// create once, retrieve afterwards
+		assertEquals(testObject, module.computeSharedObject("computed", "createObject()", false, false));
+		assertEquals(testObject, module.computeSharedObject("computed", "createObject()", false, false));
+		verify(mockEngine, times(1)).inject("createObject()");
+	}
+
+	@Test
+	public void compareAndSetSharedObject() throws IllegalAccessException {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		assertTrue(module.compareAndSetSharedObject("counter", null, 1, false, false));
+		assertFalse(module.compareAndSetSharedObject("counter", null, 2, false, false));
+		assertTrue(module.compareAndSetSharedObject("counter", 1, 2, false, false));
+		assertEquals(2, module.getSharedObject("counter"));
+	}
+
+	@Test
+	public void channels() throws InterruptedException {
+		ScriptingModule.createChannel("testChannel", 2);
+
+		assertTrue(ScriptingModule.send("testChannel", "first", -1));
+		assertTrue(ScriptingModule.send("testChannel", "second", -1));
+
+		// channel is full
+		assertFalse(ScriptingModule.send("testChannel", "third", -1));
+
+		assertEquals("first", ScriptingModule.receive("testChannel", -1));
+		assertTrue(ScriptingModule.send("testChannel", "third", -1));
+		assertEquals(2, ScriptingModule.drain("testChannel", -1, -1).length);
+		assertNull(ScriptingModule.receive("testChannel", 10));
+
+		ScriptingModule.deleteChannel("testChannel");
+	}
+
+	@Test
+	public void parallelMap() throws InterruptedException {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		Integer[] elements = new Integer[100];
+		for (int index = 0; index < elements.length; index++)
+			elements[index] = index;
+
+		ParallelExecution execution = module.parallelMap(elements, new IParallelFunction() {
+
+			@Override
+			public Object apply(Object element) throws Exception {
+				if (((Integer) element) == 13)
+					throw new Exception("unlucky");
+
+				return ((Integer) element) * 2;
+			}
+		}, 4);
+
+		assertEquals(198, execution.getResults()[99]);
+		assertNull(execution.getResults()[13]);
+		assertEquals(1, execution.getExceptions().size());
+		assertTrue(execution.getExceptions().containsKey(13));
+	}
+
+	@Test(timeout = 30000)
+	public void terminateParallelMap() throws InterruptedException {
+		final AtomicInteger processed = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+
+		IScriptEngine engine = ScriptService.getService().getEngineByID(RhinoScriptEngine.ENGINE_ID).createEngine();
+		engine.setVariable("slowFunction", new IParallelFunction() {
+
+			@Override
+			public Object apply(Object element) throws Exception {
+				started.countDown();
+				Thread.sleep(20);
+				return processed.incrementAndGet();
+			}
+		});
+
+		// takes about 10 seconds when not canceled
+		engine.executeAsync("loadModule('" + ScriptingModule.MODULE_ID + "');\nparallelMap(java.util.Collections.nCopies(1000, 'x'), slowFunction, 2);");
+		engine.schedule();
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		engine.terminate();
+
+		// elements in progress still finish, remaining elements are skipped
+		Thread.sleep(500);
+		int count = processed.get();
+		Thread.sleep(500);
+
+		assertEquals(count, processed.get());
+		assertTrue(count < 1000);
+	}
+
+	@Test
+	public void joinPooledFork() throws IOException {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		// pooled engines do not terminate, join waits for the forked script only
+		IScriptEngine engine = module.fork(createScript("java.lang.Thread.sleep(200); 'done'"), null, RhinoScriptEngine.ENGINE_ID, true);
+		assertTrue(module.join(engine, 10000));
+		assertFalse(engine.isFinished());
+
+		// a script of another caller on the same engine is not considered
+		ScriptingModule otherModule = new ScriptingModule();
+		otherModule.initialize(mock(IScriptEngine.class), null);
+		IScriptEngine otherEngine = otherModule.fork(createScript("java.lang.Thread.sleep(2000); 'done'"), null, RhinoScriptEngine.ENGINE_ID, true);
+		assertTrue(module.join(engine, 500));
+		assertTrue(otherModule.join(otherEngine, 10000));
+	}
+
+	@Test
+	public void cleanupPooledSharedObjects() throws IOException {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		// temporary objects of a lease are removed when the engine returns to the pool
+		File script = createScript("loadModule('" + ScriptingModule.MODULE_ID + "'); setSharedObject('pooledTemp', 'value', false, false);");
+		IScriptEngine engine = module.fork(script, null, RhinoScriptEngine.ENGINE_ID, true);
+		assertTrue(module.join(engine, 10000));
+		assertNull(module.getSharedObject("pooledTemp"));
+	}
+
+	@Test
+	public void joinMultiplePooledForks() throws IOException {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		IScriptEngine fastEngine = module.fork(createScript("java.lang.Thread.sleep(100); 'fast'"), null, RhinoScriptEngine.ENGINE_ID, true);
+		IScriptEngine slowEngine = module.fork(createScript("java.lang.Thread.sleep(3000); 'slow'"), null, RhinoScriptEngine.ENGINE_ID, true);
+		IScriptEngine[] engines = new IScriptEngine[] { fastEngine, slowEngine };
+
+		assertEquals(fastEngine, module.joinAny(engines, 10000));
+		assertFalse(module.joinAll(engines, 100));
+
+		// each call waits for its own timeout
+		assertNull(module.joinAny(new IScriptEngine[] { slowEngine }, 100));
+		assertNull(module.joinAny(new IScriptEngine[] { slowEngine }, 100));
+
+		assertTrue(module.joinAll(engines, 0));
+		assertEquals(fastEngine, module.joinAny(engines, 100));
+	}
+
+	@Test
+	public void submitScript() throws Exception {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		for (boolean pooled : new boolean[] { false, true }) {
+			ScriptFuture future = module.submit(createScript("'done'"), null, RhinoScriptEngine.ENGINE_ID, pooled);
+			assertEquals("done", future.get(10, TimeUnit.SECONDS));
+			assertTrue(future.isDone());
+			assertFalse(future.isCancelled());
+			assertNull(future.getException());
+		}
+	}
+
+	@Test
+	public void chainScripts() throws Exception {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		Map<String, Object> statistics = ScriptingModule.getEnginePoolStatistics(RhinoScriptEngine.ENGINE_ID);
+		long leases = (Long) statistics.get("hits") + (Long) statistics.get("misses");
+
+		// chained scripts get the result of their predecessor and inherit pooling
+		ScriptFuture future = module.submit(createScript("'first'"), null, RhinoScriptEngine.ENGINE_ID, true).then(createScript("input + ' second'"), null,
+				RhinoScriptEngine.ENGINE_ID);
+		assertEquals("first second", future.get(10, TimeUnit.SECONDS));
+
+		statistics = ScriptingModule.getEnginePoolStatistics(RhinoScriptEngine.ENGINE_ID);
+		assertEquals(leases + 2, (Long) statistics.get("hits") + (Long) statistics.get("misses"));
+
+		// failures are passed to chained scripts
+		future = module.submit(createScript("throw 'failed';"), null, RhinoScriptEngine.ENGINE_ID, true).then(createScript("'not executed'"), null,
+				RhinoScriptEngine.ENGINE_ID);
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("chained script should fail");
+		} catch (ExecutionException e) {
+			assertNotNull(future.getException());
+		}
+	}
+
+	@Test
+	public void cancelScript() throws Exception {
+		// mocked script engine
+		IScriptEngine mockEngine = mock(IScriptEngine.class);
+
+		// initialize module
+		ScriptingModule module = new ScriptingModule();
+		module.initialize(mockEngine, null);
+
+		ScriptFuture future = module.submit(createScript("java.lang.Thread.sleep(10000); 'done'"), null, RhinoScriptEngine.ENGINE_ID, true);
+		ScriptFuture chained = future.then(createScript("'not executed'"), null, RhinoScriptEngine.ENGINE_ID);
+
+		assertTrue(future.cancel(true));
+		assertTrue(future.isCancelled());
+		assertTrue(future.isDone());
+		assertFalse(future.cancel(true));
+
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("canceled script should not provide a result");
+		} catch (CancellationException e) {
+			// expected
+		}
+
+		assertTrue(chained.isCancelled());
+	}
+
+	@Test
+	public void persistSharedObjectsAcrossInstances() throws IOException {
+		File folder = createFolder();
+
+		PersistentScriptStorage storage = new PersistentScriptStorage(folder);
+		storage.put("payload", new Payload("first"));
+		storage.put("Payload", new Payload("second"));
+		storage.put("a/b key", "value");
+		assertNull(storage.get("unknown"));
+
+		// a new instance reads the index from disk and loads values lazily
+		PersistentScriptStorage reloaded = new PersistentScriptStorage(folder);
+		assertEquals(3, reloaded.getKeys().size());
+		assertEquals(new Payload("first"), reloaded.get("payload"));
+		assertEquals(new Payload("second"), reloaded.get("Payload"));
+		assertEquals("value", reloaded.get("a/b key"));
+		assertFalse(reloaded.containsKey("unknown"));
+
+		// values dropped from the cache get reloaded
+		reloaded.setCacheSize(0);
+		assertEquals(new Payload("first"), reloaded.get("payload"));
+
+		reloaded.remove("payload");
+		assertNull(reloaded.get("payload"));
+		assertEquals(new Payload("second"), new PersistentScriptStorage(folder).get("Payload"));
+		assertFalse(new PersistentScriptStorage(folder).containsKey("payload"));
+	}
+
+	@Test
+	public void encodePersistentKeys() {
+		// keys differing in case only must not collide on case insensitive file systems
+		assertFalse(PersistentScriptStorage.encodeKey("key").equalsIgnoreCase(PersistentScriptStorage.encodeKey("Key")));
+		assertFalse(PersistentScriptStorage.encodeKey("a/b").equalsIgnoreCase(PersistentScriptStorage.encodeKey("a%2Fb")));
+
+		for (String key : new String[] { "key", "Key", "a/b key", "a%2Fb", "a+b", "\u00e4\u20ac" })
+			assertEquals(key, PersistentScriptStorage.decodeKey(PersistentScriptStorage.encodeKey(key)));
+	}
+
+	private static File createFolder() throws IOException {
+		File folder = File.createTempFile("ease_unittest_", "");
+		folder.delete();
+		folder.mkdirs();
+		folder.deleteOnExit();
+
+		return folder;
+	}
+
+	private static class Payload implements Serializable {
+
+		private static final long serialVersionUID = 2883962262353036011L;
+
+		private final String fContent;
+
+		public Payload(final String content) {
+			fContent = content;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return (obj instanceof Payload) && (fContent.equals(((Payload) obj).fContent));
+		}
+
+		@Override
+		public int hashCode() {
+			return fContent.hashCode();
+		}
+	}
+
+	private static File createScript(final String code) throws IOException {
+		File file = File.createTempFile("ease_unittest_", ".js");
+		file.deleteOnExit();
+
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(code.getBytes("UTF-8"));
+		output.close();
+
+		return file;
+	}
 }
@@ -11,12 +11,13 @@
 
 package org.eclipse.ease.modules.unittest.components;
 
+import org.eclipse.ease.modules.unittest.reporters.JsonLinesReporterTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestSuiteModelTest.class })
+@SuiteClasses({ TestSuiteModelTest.class, ShardedExecutionTest.class, TestSuiteTest.class, JsonLinesReporterTest.class })
 public class AllTests {
 
 }
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedExecutionTest {
+
+	private static final long[] RUNTIMES = new long[] { 1200, 300, 250, 200, 100, 90, 60, 50, 40, 30, 20, 10 };
+
+	private List<TestFile> fTestFiles;
+	private Map<TestFile, Long> fRuntimes;
+
+	@Before
+	public void setUp() {
+		fTestFiles = new ArrayList<TestFile>();
+		fRuntimes = new HashMap<TestFile, Long>();
+
+		for (int index = 0; index < RUNTIMES.length; index++) {
+			final TestFile testFile = new TestFile(null, "file" + index);
+			fTestFiles.add(testFile);
+			fRuntimes.put(testFile, RUNTIMES[index]);
+		}
+	}
+
+	@Test
+	public void distributeAllFiles() {
+		final List<List<TestFile>> shards = ShardedExecution.createShards(fTestFiles, fRuntimes, 4);
+		assertEquals(4, shards.size());
+
+		final Set<TestFile> distributed = new HashSet<TestFile>();
+		for (final List<TestFile> shard : shards)
+			distributed.addAll(shard);
+
+		assertEquals(new HashSet<TestFile>(fTestFiles), distributed);
+	}
+
+	@Test
+	public void balanceByRuntime() {
+		final List<List<TestFile>> shards = ShardedExecution.createShards(fTestFiles, fRuntimes, 4);
+
+		// the longest file gets a shard on its own
+		assertEquals(1, shards.get(0).size());
+		assertEquals(fTestFiles.get(0), shards.get(0).get(0));
+
+		// remaining files are spread evenly
+		for (int index = 1; index < shards.size(); index++) {
+			long runtime = 0;
+			for (final TestFile testFile : shards.get(index))
+				runtime += fRuntimes.get(testFile);
+
+			assertTrue((runtime >= 370) && (runtime <= 400));
+		}
+	}
+
+	@Test
+	public void omitEmptyShards() {
+		assertEquals(2, ShardedExecution.createShards(fTestFiles.subList(0, 2), fRuntimes, 5).size());
+		assertEquals(0, ShardedExecution.createShards(new ArrayList<TestFile>(), fRuntimes, 3).size());
+	}
+}
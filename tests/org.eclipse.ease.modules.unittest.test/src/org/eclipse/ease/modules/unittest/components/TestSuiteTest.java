@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.ease.debugging.IScriptDebugFrame;
+import org.eclipse.ease.modules.unittest.ITestListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSuiteTest {
+
+	private IProject fProject;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject = ResourcesPlugin.getWorkspace().getRoot().getProject("ease_unittest_suite");
+		if (!fProject.exists())
+			fProject.create(null);
+
+		fProject.open(null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fProject.delete(true, true, null);
+	}
+
+	@Test(timeout = 60000)
+	public void resizeThreadPool() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		for (int index = 0; index < 6; index++)
+			addTestFile(model, "file" + index + ".js", "java.lang.Thread.sleep(500);");
+
+		TestSuite suite = createSuite(model);
+		CountDownLatch done = runSuite(suite);
+
+		// raise the thread count while the suite is running
+		while (suite.getRunningTestCount() == 0)
+			Thread.sleep(10);
+
+		suite.getModel().setFlag(TestSuiteModel.FLAG_MAX_THREADS, 3);
+
+		int maxRunning = 0;
+		while (!done.await(10, TimeUnit.MILLISECONDS))
+			maxRunning = Math.max(maxRunning, suite.getRunningTestCount());
+
+		assertEquals(3, maxRunning);
+		assertEquals(TestStatus.PASS, suite.getStatus());
+		assertEquals(0, getTestFileCount(suite, TestStatus.NOT_RUN));
+	}
+
+	@Test(timeout = 60000)
+	public void overrideThreadsOfSuiteFile() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		model.setFlag(TestSuiteModel.FLAG_MAX_THREADS, 1);
+		for (int index = 0; index < 6; index++)
+			addTestFile(model, "file" + index + ".js", "java.lang.Thread.sleep(500);");
+
+		TestSuite suite = createSuite(model);
+		suite.setMaxThreads(3);
+
+		// a dirty model gets reloaded from the suite file when the suite starts
+		suite.getModel().setFlag(TestSuiteModel.FLAG_LONGEST_FIRST, false);
+		CountDownLatch done = runSuite(suite);
+
+		int maxRunning = 0;
+		while (!done.await(10, TimeUnit.MILLISECONDS))
+			maxRunning = Math.max(maxRunning, suite.getRunningTestCount());
+
+		assertEquals(3, maxRunning);
+		assertEquals(1, suite.getModel().getFlag(TestSuiteModel.FLAG_MAX_THREADS, 0));
+		assertEquals(TestStatus.PASS, suite.getStatus());
+	}
+
+	@Test(timeout = 60000)
+	public void runShardOfShardedSuite() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		model.setFlag(TestSuiteModel.FLAG_SHARDS, 2);
+		addTestFile(model, "a.js", "java.lang.System.setProperty('ease.unittest.shard.a', 'local');");
+		addTestFile(model, "b.js", "java.lang.System.setProperty('ease.unittest.shard.b', 'local');");
+
+		// a child process executes its subset of files locally, whatever the suite file says
+		TestSuite suite = createSuite(model);
+		suite.setShards(1);
+		suite.getModel().setFlag(TestSuiteModel.FLAG_LONGEST_FIRST, false);
+
+		try {
+			assertTrue(runSuite(suite).await(30, TimeUnit.SECONDS));
+
+			assertEquals(2, suite.getModel().getFlag(TestSuiteModel.FLAG_SHARDS, 0));
+			assertEquals("local", System.getProperty("ease.unittest.shard.a"));
+			assertEquals("local", System.getProperty("ease.unittest.shard.b"));
+			assertEquals(2, getTestFileCount(suite, TestStatus.PASS));
+			assertEquals(TestStatus.PASS, suite.getStatus());
+
+		} finally {
+			System.clearProperty("ease.unittest.shard.a");
+			System.clearProperty("ease.unittest.shard.b");
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void terminateSuite() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		model.setFlag(TestSuiteModel.FLAG_MAX_THREADS, 2);
+		for (int index = 0; index < 6; index++)
+			addTestFile(model, "file" + index + ".js", "for (var i = 0; i < 100; i++) java.lang.Thread.sleep(50);");
+
+		TestSuite suite = createSuite(model);
+		CountDownLatch done = runSuite(suite);
+
+		while (suite.getRunningTestCount() < 2)
+			Thread.sleep(10);
+
+		suite.terminate();
+
+		// running files get terminated, queued files are skipped
+		assertTrue(done.await(4, TimeUnit.SECONDS));
+		assertEquals(0, suite.getRunningTestCount());
+		assertEquals(4, getTestFileCount(suite, TestStatus.NOT_RUN));
+	}
+
+	@Test(timeout = 60000)
+	public void stopOnFailure() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		model.setFlag(TestSuiteModel.FLAG_STOP_SUITE_ON_FAILURE, true);
+		addTestFile(model, "a.js", "failure('expected failure');");
+		addTestFile(model, "b.js", "java.lang.Thread.sleep(10);");
+		addTestFile(model, "c.js", "java.lang.Thread.sleep(10);");
+
+		TestSuite suite = createSuite(model);
+		assertTrue(runSuite(suite).await(30, TimeUnit.SECONDS));
+
+		assertEquals(TestStatus.FAILURE, suite.getStatus());
+		assertEquals(1, getTestFileCount(suite, TestStatus.FAILURE));
+		assertEquals(2, getTestFileCount(suite, TestStatus.NOT_RUN));
+		assertTrue(suite.isTerminated());
+	}
+
+	@Test(timeout = 60000)
+	public void reuseCleanEngine() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		model.setFlag(TestSuiteModel.FLAG_REUSE_ENGINES, true);
+		model.addVariable("base", "1", "setup variable");
+		model.setCodeFragment(TestSuiteModel.CODE_LOCATION_TESTFILE_SETUP, "setupDone = true;");
+
+		// both files modify the global scope, the second file needs to start clean anyway
+		String code = "if (typeof leaked != 'undefined') failure('variable leaked from previous file');\n"
+				+ "if (base != 1) failure('setup variable not applied');\n" + "leaked = true;\n" + "base = 2;\n";
+		addTestFile(model, "a.js", code);
+		addTestFile(model, "b.js", code);
+
+		TestSuite suite = createSuite(model);
+
+		// collect engines used by test files
+		final Set<Object> engines = Collections.synchronizedSet(new HashSet<Object>());
+		suite.addTestListener(new ITestListener() {
+
+			@Override
+			public void notify(final Object testObject, final TestStatus status) {
+				if ((status == TestStatus.RUNNING) && (testObject instanceof TestEntity) && (((TestEntity) testObject).getParent() instanceof TestFile))
+					engines.add(((TestFile) ((TestEntity) testObject).getParent()).getScriptEngine());
+			}
+		});
+
+		assertTrue(runSuite(suite).await(30, TimeUnit.SECONDS));
+
+		assertEquals(1, engines.size());
+		assertEquals(2, getTestFileCount(suite, TestStatus.PASS));
+		assertEquals(TestStatus.PASS, suite.getStatus());
+	}
+
+	@Test
+	public void propagateTestFileEvents() throws Exception {
+		TestSuiteModel model = new TestSuiteModel();
+		model.setFlag(TestSuiteModel.FLAG_STOP_SUITE_ON_FAILURE, true);
+		addTestFile(model, "a.js", "");
+
+		TestSuite suite = createSuite(model);
+
+		final List<Object> failures = Collections.synchronizedList(new ArrayList<Object>());
+		suite.addTestListener(new ITestListener() {
+
+			@Override
+			public void notify(final Object testObject, final TestStatus status) {
+				if (status == TestStatus.FAILURE)
+					failures.add(testObject);
+			}
+		});
+
+		// results of sharded executions get applied to test files that never ran locally
+		TestFile testFile = suite.getChildren().iterator().next();
+		org.eclipse.ease.modules.unittest.components.Test test = new org.eclipse.ease.modules.unittest.components.Test(testFile, "remote", false);
+		test.addMessage(new TestResult(TestStatus.FAILURE, "failed in shard", Collections.<IScriptDebugFrame> emptyList()));
+		test.setStatus(TestStatus.FAILURE);
+		testFile.setExecutionResult(TestStatus.FAILURE, 1000, 10, Collections.singletonList(test));
+
+		assertTrue(failures.contains(test));
+		assertTrue(failures.contains(testFile));
+		assertTrue(suite.isTerminated());
+	}
+
+	private void addTestFile(final TestSuiteModel model, final String name, final String code) throws Exception {
+		IFile file = fProject.getFile(name);
+		file.create(new ByteArrayInputStream(code.getBytes("UTF-8")), true, null);
+
+		model.addTestFile("workspace:/" + file.getFullPath());
+	}
+
+	private TestSuite createSuite(final TestSuiteModel model) throws Exception {
+		StringWriter writer = new StringWriter();
+		model.toMemento().save(writer);
+
+		IFile file = fProject.getFile("test.suite");
+		file.create(new ByteArrayInputStream(writer.toString().getBytes("UTF-8")), true, null);
+
+		return new TestSuite(file);
+	}
+
+	private static CountDownLatch runSuite(final TestSuite suite) {
+		final CountDownLatch done = new CountDownLatch(1);
+		suite.addTestListener(new ITestListener() {
+
+			@Override
+			public void notify(final Object testObject, final TestStatus status) {
+				if ((testObject == suite) && (status != TestStatus.NOT_RUN) && (status != TestStatus.RUNNING))
+					done.countDown();
+			}
+		});
+
+		suite.run();
+		return done;
+	}
+
+	private static int getTestFileCount(final TestSuite suite, final TestStatus status) {
+		int count = 0;
+		for (TestFile testFile : suite.getChildren()) {
+			if (testFile.getStatus() == status)
+				count++;
+		}
+
+		return count;
+	}
+}
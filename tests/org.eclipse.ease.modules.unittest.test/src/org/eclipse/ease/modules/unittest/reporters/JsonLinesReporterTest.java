@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Christian Pontesegger and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Christian Pontesegger - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ease.modules.unittest.reporters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.ease.debugging.IScriptDebugFrame;
+import org.eclipse.ease.modules.unittest.components.TestFile;
+import org.eclipse.ease.modules.unittest.components.TestResult;
+import org.eclipse.ease.modules.unittest.components.TestStatus;
+import org.eclipse.ease.modules.unittest.components.TestSuite;
+import org.eclipse.ease.modules.unittest.components.TestSuiteModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JsonLinesReporterTest {
+
+	private IProject fProject;
+	private TestSuite fTestSuite;
+	private TestFile fTestFile;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject = ResourcesPlugin.getWorkspace().getRoot().getProject("ease_unittest_reporter");
+		if (!fProject.exists())
+			fProject.create(null);
+
+		fProject.open(null);
+
+		TestSuiteModel model = new TestSuiteModel();
+		model.addTestFile("workspace://ease_unittest_reporter/file.js");
+
+		StringWriter writer = new StringWriter();
+		model.toMemento().save(writer);
+		IFile file = fProject.getFile("test.suite");
+		file.create(new ByteArrayInputStream(writer.toString().getBytes("UTF-8")), true, null);
+
+		fTestSuite = new TestSuite(file);
+		fTestFile = fTestSuite.getChildren().iterator().next();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fTestSuite.getModel().close();
+		fProject.delete(true, true, null);
+	}
+
+	@Test
+	public void writeFinishedEntitiesOnly() {
+		StringWriter output = new StringWriter();
+		JsonLinesReporter reporter = new JsonLinesReporter(output);
+
+		reporter.notify(fTestFile, TestStatus.NOT_RUN);
+		reporter.notify(fTestFile, TestStatus.RUNNING);
+		reporter.notify(new Object(), TestStatus.PASS);
+		assertEquals("", output.toString());
+
+		reporter.notify(fTestFile, TestStatus.PASS);
+		reporter.notify(fTestSuite, TestStatus.PASS);
+
+		String[] lines = output.toString().split("\n", -1);
+		assertEquals(3, lines.length);
+		assertTrue(lines[0].startsWith("{\"type\":\"testfile\",\"location\":\"workspace://ease_unittest_reporter/file.js\","));
+		assertTrue(lines[1].startsWith("{\"type\":\"testsuite\",\"name\":\"/ease_unittest_reporter/test.suite\","));
+		assertEquals("", lines[2]);
+	}
+
+	@Test
+	public void testFileEntry() {
+		org.eclipse.ease.modules.unittest.components.Test test = new org.eclipse.ease.modules.unittest.components.Test(fTestFile, "say \"hello\"", false);
+		test.addMessage(new TestResult(TestStatus.ERROR, "first\nsecond\ttab\\\u0001", Collections.<IScriptDebugFrame> emptyList()));
+		test.setStatus(TestStatus.ERROR);
+
+		fTestFile.setExecutionResult(TestStatus.ERROR, 1000, 12, Collections.singletonList(test));
+
+		String entry = JsonLinesReporter.createEntry(fTestFile);
+		assertEquals(-1, entry.indexOf('\n'));
+		assertTrue(entry.contains(",\"status\":\"ERROR\",\"start\":1000,\"time\":12,\"tests\":[{"));
+		assertTrue(entry.contains("{\"title\":\"say \\\"hello\\\"\",\"status\":\"ERROR\",\"transient\":false,\"start\":0,\"time\":0,"));
+		assertTrue(entry.endsWith("\"messages\":[{\"status\":\"ERROR\",\"message\":\"first\\nsecond\\ttab\\\\\\u0001\"}]}]}"));
+	}
+
+	@Test
+	public void testSuiteEntry() {
+		String entry = JsonLinesReporter.createEntry(fTestSuite);
+
+		assertTrue(entry.startsWith("{\"type\":\"testsuite\",\"name\":\"/ease_unittest_reporter/test.suite\",\"status\":\"NOT_RUN\","));
+		assertTrue(entry.endsWith(",\"testfiles\":0,\"tests\":[]}"));
+	}
+
+	@Test
+	public void parseTestFileEntry() {
+		String message = "quote \" backslash \\ slash / newline \n tab \t control \u0001 umlaut \u00e4 euro \u20ac";
+
+		org.eclipse.ease.modules.unittest.components.Test test = new org.eclipse.ease.modules.unittest.components.Test(fTestFile, message, true);
+		test.addMessage(new TestResult(TestStatus.FAILURE, message, Collections.<IScriptDebugFrame> emptyList()));
+		test.addMessage(new TestResult(TestStatus.PASS, null, Collections.<IScriptDebugFrame> emptyList()));
+		test.setStatus(TestStatus.FAILURE);
+
+		fTestFile.setExecutionResult(TestStatus.FAILURE, 1000, 12, Collections.singletonList(test));
+
+		Map<?, ?> entry = (Map<?, ?>) JsonLinesParser.parse(JsonLinesReporter.createEntry(fTestFile));
+		assertEquals(JsonLinesReporter.TYPE_TESTFILE, entry.get("type"));
+		assertEquals(fTestFile.getLocation(), entry.get("location"));
+		assertEquals(fTestFile.toString(), entry.get("name"));
+		assertEquals("FAILURE", entry.get("status"));
+		assertEquals(1000L, entry.get("start"));
+		assertEquals(12L, entry.get("time"));
+
+		List<?> tests = (List<?>) entry.get("tests");
+		assertEquals(1, tests.size());
+
+		Map<?, ?> testEntry = (Map<?, ?>) tests.get(0);
+		assertEquals(message, testEntry.get("title"));
+		assertEquals("FAILURE", testEntry.get("status"));
+		assertEquals(Boolean.TRUE, testEntry.get("transient"));
+
+		List<?> messages = (List<?>) testEntry.get("messages");
+		assertEquals(2, messages.size());
+		assertEquals("FAILURE", ((Map<?, ?>) messages.get(0)).get("status"));
+		assertEquals(message, ((Map<?, ?>) messages.get(0)).get("message"));
+		assertEquals("PASS", ((Map<?, ?>) messages.get(1)).get("status"));
+		assertTrue(((Map<?, ?>) messages.get(1)).containsKey("message"));
+		assertNull(((Map<?, ?>) messages.get(1)).get("message"));
+	}
+
+	@Test
+	public void parseTestSuiteEntry() {
+		Map<?, ?> entry = (Map<?, ?>) JsonLinesParser.parse(JsonLinesReporter.createEntry(fTestSuite));
+
+		assertEquals(JsonLinesReporter.TYPE_TESTSUITE, entry.get("type"));
+		assertEquals("/ease_unittest_reporter/test.suite", entry.get("name"));
+		assertEquals("NOT_RUN", entry.get("status"));
+		assertEquals(0L, entry.get("testfiles"));
+		assertEquals(Collections.emptyList(), entry.get("tests"));
+	}
+
+	@Test
+	public void parseInvalidEntries() {
+		for (String line : new String[] { "", "{", "{\"type\":}", "{\"type\":\"testfile\"", "{\"a\":1} trailing", "{\"a\":\"\\u00\"}", "[1,]" }) {
+			try {
+				JsonLinesParser.parse(line);
+				fail("Invalid JSON accepted: " + line);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}